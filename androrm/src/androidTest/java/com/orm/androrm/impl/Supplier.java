@@ -47,6 +47,10 @@ public class Supplier extends Model {
 		mProducts.addAll(products);
 	}
 	
+	public void removeProduct(Product p) {
+		mProducts.remove(p);
+	}
+	
 	public int productCount(Context context) {
 		return mProducts.get(context, this).count();
 	}
@@ -50,6 +50,28 @@ public class ModelTest extends AndroidTestCase {
 		assertTrue(m.save(getContext()));
 	}
 	
+	public void testSaveUpdatesExistingRow() {
+		BlankModel m = new BlankModel();
+		m.setName("foo");
+		m.save(getContext());
+		
+		int id = m.getId();
+		
+		m.setName("it's");
+		assertTrue(m.save(getContext()));
+		assertEquals(id, m.getId());
+		assertEquals(1, Model.objects(getContext(), BlankModel.class).count());
+		assertEquals("it's", Model.objects(getContext(), BlankModel.class).get(id).getName());
+	}
+	
+	public void testSaveNoAutoincrementInsertsOnce() {
+		BlankModelNoAutoincrement m = new BlankModelNoAutoincrement();
+		
+		assertTrue(m.save(getContext(), 3));
+		assertTrue(m.save(getContext()));
+		assertEquals(1, Model.objects(getContext(), BlankModelNoAutoincrement.class).count());
+	}
+	
 	public void testDelete() {
 		BlankModel m = new BlankModel();
 		
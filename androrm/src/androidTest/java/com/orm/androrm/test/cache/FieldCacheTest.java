@@ -1,11 +1,13 @@
 package com.orm.androrm.test.cache;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
 
 import android.test.AndroidTestCase;
 
 import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.DatabaseBuilder;
 import com.orm.androrm.Model;
 import com.orm.androrm.ModelCache;
 import com.orm.androrm.field.CharField;
@@ -58,6 +60,32 @@ public class FieldCacheTest extends AndroidTestCase {
 		assertNotNull(ModelCache.getField(BlankModelNoAutoincrement.class, "mName"));
 	}
 	
+	public void testFieldsAreNotDuplicated() {
+		List<Field> fields = new ArrayList<Field>();
+		fields.add(getDeclaredField(BlankModel.class, "mName"));
+		
+		ModelCache.addModel(BlankModel.class);
+		ModelCache.setModelFields(BlankModel.class, fields);
+		ModelCache.setModelFields(BlankModel.class, fields);
+		
+		assertEquals(1, ModelCache.fieldsForModel(BlankModel.class).size());
+		assertNull(ModelCache.getField(BlankModel.class, "mLocation"));
+		
+		ModelCache.reset(DatabaseBuilder.getTableName(BlankModel.class));
+		
+		assertFalse(ModelCache.knowsFields(BlankModel.class));
+	}
+	
+	private static Field getDeclaredField(Class<?> clazz, String name) {
+		try {
+			return clazz.getDeclaredField(name);
+		} catch(NoSuchFieldException e) {
+			fail();
+		}
+		
+		return null;
+	}
+	
 	public void tearDown() {
 		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
 		adapter.drop();
@@ -9,6 +9,15 @@ public class AllTest extends TestSuite {
 		TestSuite suite = new TestSuite();
 		
 		suite.addTestSuite(TransactionTest.class);
+		suite.addTestSuite(PersistentConnectionTest.class);
+		suite.addTestSuite(IdentityMapTest.class);
+		suite.addTestSuite(WriteBatchTest.class);
+		suite.addTestSuite(DirtyFieldTest.class);
+		suite.addTestSuite(WriteBehindTest.class);
+		suite.addTestSuite(ThreadingTest.class);
+		suite.addTestSuite(DatabaseProfileTest.class);
+		suite.addTestSuite(SaveAllTest.class);
+		suite.addTestSuite(QueryCacheTest.class);
 		
 		return suite;
 	}
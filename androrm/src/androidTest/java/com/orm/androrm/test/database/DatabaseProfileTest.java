@@ -0,0 +1,80 @@
+package com.orm.androrm.test.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.DatabaseProfile;
+import com.orm.androrm.Model;
+import com.orm.androrm.impl.BlankModel;
+
+import android.database.Cursor;
+import android.test.AndroidTestCase;
+
+public class DatabaseProfileTest extends AndroidTestCase {
+
+	@Override
+	public void setUp() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.setProfile(DatabaseProfile.performance());
+		
+		List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+		models.add(BlankModel.class);
+		
+		adapter.setModels(models);
+	}
+	
+	private String pragma(String name) {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.open();
+		
+		Cursor c = adapter.query("PRAGMA " + name + ";");
+		
+		try {
+			assertTrue(c.moveToFirst());
+			
+			return c.getString(0);
+		} finally {
+			c.close();
+			adapter.close();
+		}
+	}
+	
+	public void testPerformanceProfile() {
+		assertEquals("wal", pragma("journal_mode").toLowerCase());
+		// NORMAL
+		assertEquals("1", pragma("synchronous"));
+		// MEMORY
+		assertEquals("2", pragma("temp_store"));
+		assertEquals("-" + DatabaseProfile.DEFAULT_CACHE_SIZE, pragma("cache_size"));
+	}
+	
+	public void testCheckpoint() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		int checkpoints = adapter.getCheckpoints();
+		
+		new BlankModel().save(getContext());
+		adapter.checkpoint();
+		
+		assertEquals(checkpoints + 1, adapter.getCheckpoints());
+		assertEquals(1, BlankModel.objects(getContext()).count());
+	}
+	
+	public void testCheckpointSkippedInTransaction() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		int checkpoints = adapter.getCheckpoints();
+		
+		adapter.beginTransaction();
+		adapter.checkpoint();
+		adapter.commitTransaction();
+		
+		assertEquals(checkpoints, adapter.getCheckpoints());
+	}
+	
+	@Override
+	public void tearDown() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.drop();
+		adapter.setProfile(null);
+	}
+}
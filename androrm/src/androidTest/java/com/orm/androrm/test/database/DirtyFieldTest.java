@@ -0,0 +1,110 @@
+package com.orm.androrm.test.database;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.orm.androrm.BatchResult;
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.Model;
+import com.orm.androrm.WriteBatch;
+import com.orm.androrm.field.CharField;
+import com.orm.androrm.field.IntegerField;
+import com.orm.androrm.impl.BlankModel;
+
+import android.test.AndroidTestCase;
+
+public class DirtyFieldTest extends AndroidTestCase {
+
+	@Override
+	public void setUp() {
+		List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+		models.add(BlankModel.class);
+
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.setModels(models);
+	}
+	
+	public void testSetMarksDirty() {
+		IntegerField i = new IntegerField();
+		
+		assertFalse(i.isDirty());
+		
+		i.set(0);
+		assertFalse(i.isDirty());
+		
+		i.set(3);
+		assertTrue(i.isDirty());
+		
+		i.setDirty(false);
+		i.set(3);
+		assertFalse(i.isDirty());
+		
+		CharField c = new CharField();
+		c.set("test");
+		
+		assertTrue(c.isDirty());
+	}
+	
+	public void testUnchangedSaveSkipsWrite() {
+		BlankModel b = new BlankModel();
+		b.setName("test");
+		b.save(getContext());
+		
+		BlankModel loaded = BlankModel.objects(getContext()).get(b.getId());
+		loaded.setName("test");
+		
+		WriteBatch batch = new WriteBatch();
+		batch.save(b).save(loaded);
+		
+		BatchResult result = batch.commit(getContext());
+		
+		assertEquals(2, result.getUpdates());
+		assertEquals(0, result.getRows());
+	}
+	
+	public void testSaveOnlyWritesChangedColumns() {
+		BlankModel b = new BlankModel();
+		b.setName("test");
+		b.save(getContext());
+		
+		BlankModel first = BlankModel.objects(getContext()).get(b.getId());
+		BlankModel second = BlankModel.objects(getContext()).get(b.getId());
+		
+		Date date = new Date();
+		first.setName("changed");
+		second.setDate(date);
+		
+		assertTrue(first.save(getContext()));
+		assertTrue(second.save(getContext()));
+		
+		BlankModel loaded = BlankModel.objects(getContext()).get(b.getId());
+		
+		assertEquals("changed", loaded.getName());
+		assertNotNull(loaded.getDate());
+	}
+	
+	public void testSaveAfterDeleteInsertsAllColumns() {
+		BlankModel b = new BlankModel();
+		b.setName("test");
+		b.save(getContext());
+		
+		BlankModel loaded = BlankModel.objects(getContext()).get(b.getId());
+		b.delete(getContext());
+		
+		loaded.setDate(new Date());
+		
+		assertTrue(loaded.save(getContext()));
+		
+		List<BlankModel> rows = BlankModel.objects(getContext()).all().toList();
+		
+		assertEquals(1, rows.size());
+		assertEquals("test", rows.get(0).getName());
+	}
+	
+	@Override
+	public void tearDown() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.drop();
+	}
+}
@@ -0,0 +1,133 @@
+package com.orm.androrm.test.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.DatabaseBuilder;
+import com.orm.androrm.Filter;
+import com.orm.androrm.IdentityMap;
+import com.orm.androrm.Model;
+import com.orm.androrm.impl.Branch;
+import com.orm.androrm.impl.Brand;
+import com.orm.androrm.impl.Product;
+import com.orm.androrm.impl.Supplier;
+
+import android.test.AndroidTestCase;
+
+public class IdentityMapTest extends AndroidTestCase {
+
+	@Override
+	public void setUp() {
+		List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+		models.add(Branch.class);
+		models.add(Brand.class);
+		models.add(Product.class);
+		models.add(Supplier.class);
+
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.setModels(models);
+		adapter.enableIdentityMap(false);
+	}
+	
+	public void testSameInstance() {
+		Brand b = new Brand();
+		b.setName("Copcal");
+		b.save(getContext());
+		
+		IdentityMap identities = DatabaseAdapter.getInstance(getContext()).getIdentityMap();
+		identities.resetStatistics();
+		
+		assertSame(b, Brand.objects(getContext()).get(b.getId()));
+		assertSame(b, Brand.objects(getContext()).all().toList().get(0));
+		assertEquals(2, identities.getHits());
+		assertEquals(0, identities.getMisses());
+	}
+	
+	public void testForeignKey() {
+		Brand b = new Brand();
+		b.setName("Copcal");
+		b.save(getContext());
+		
+		Branch branch = new Branch();
+		branch.setName("Cashbuild");
+		branch.setBrand(b);
+		branch.save(getContext());
+		
+		Branch loaded = Branch.objects(getContext()).all().toList().get(0);
+		
+		assertSame(branch, loaded);
+		
+		DatabaseAdapter.getInstance(getContext()).getIdentityMap().clear();
+		
+		loaded = Branch.objects(getContext()).all().toList().get(0);
+		
+		assertNotSame(branch, loaded);
+		assertSame(loaded.getBrand(getContext()), loaded.getBrand(getContext()));
+	}
+	
+	public void testDeleteInvalidates() {
+		Brand b = new Brand();
+		b.setName("Copcal");
+		b.save(getContext());
+		
+		int id = b.getId();
+		b.delete(getContext());
+		
+		IdentityMap identities = DatabaseAdapter.getInstance(getContext()).getIdentityMap();
+		
+		assertNull(identities.get(Brand.class, id));
+		assertNull(Brand.objects(getContext()).get(id));
+	}
+	
+	public void testSetDeleteInvalidates() {
+		Brand copcal = new Brand();
+		copcal.setName("Copcal");
+		copcal.save(getContext());
+		
+		Brand other = new Brand();
+		other.setName("Pick n Pay");
+		other.save(getContext());
+		
+		Filter filter = new Filter();
+		filter.is("mName", "Copcal");
+		
+		assertEquals(1, Brand.objects(getContext()).filter(filter).delete(getContext()));
+		
+		IdentityMap identities = DatabaseAdapter.getInstance(getContext()).getIdentityMap();
+		
+		// only the deleted row is forgotten
+		assertNull(identities.get(Brand.class, copcal.getId()));
+		assertSame(other, identities.get(Brand.class, other.getId()));
+		assertNull(Brand.objects(getContext()).get(copcal.getId()));
+	}
+	
+	public void testRefreshOnHit() {
+		Brand b = new Brand();
+		b.setName("Copcal");
+		b.save(getContext());
+		
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		String table = DatabaseBuilder.getTableName(Brand.class);
+		
+		adapter.open();
+		adapter.exec("UPDATE `" + table + "` SET `mName` = 'Pick n Pay' WHERE `mId` = " + b.getId());
+		adapter.close();
+		
+		assertSame(b, Brand.objects(getContext()).get(b.getId()));
+		assertEquals("Pick n Pay", b.getName());
+		
+		// changes, that have not been saved yet, are kept
+		b.setName("Copcal");
+		
+		assertSame(b, Brand.objects(getContext()).all().toList().get(0));
+		assertEquals("Copcal", b.getName());
+	}
+	
+	@Override
+	public void tearDown() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.disableIdentityMap();
+		adapter.drop();
+	}
+}
@@ -0,0 +1,60 @@
+package com.orm.androrm.test.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.Model;
+import com.orm.androrm.impl.BlankModel;
+
+import android.test.AndroidTestCase;
+
+public class PersistentConnectionTest extends AndroidTestCase {
+
+	@Override
+	public void setUp() {
+		List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+		models.add(BlankModel.class);
+
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.setModels(models);
+	}
+	
+	public void testOpensAvoided() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.openPersistent();
+		adapter.resetOpenCounters();
+		
+		BlankModel b1 = new BlankModel();
+		b1.save(getContext());
+		
+		BlankModel b2 = new BlankModel();
+		b2.save(getContext());
+		
+		assertEquals(2, BlankModel.objects(getContext()).count());
+		assertEquals(0, adapter.getOpenCount());
+		assertTrue(adapter.getAvoidedOpenCount() > 0);
+		
+		adapter.closePersistent();
+		
+		assertFalse(adapter.isPersistent());
+	}
+	
+	public void testNonPersistent() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.resetOpenCounters();
+		
+		BlankModel b1 = new BlankModel();
+		b1.save(getContext());
+		
+		assertTrue(adapter.getOpenCount() > 0);
+		assertEquals(0, adapter.getAvoidedOpenCount());
+	}
+	
+	@Override
+	public void tearDown() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.closePersistent();
+		adapter.drop();
+	}
+}
@@ -0,0 +1,112 @@
+package com.orm.androrm.test.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.Filter;
+import com.orm.androrm.Model;
+import com.orm.androrm.QueryCache;
+import com.orm.androrm.impl.BlankModel;
+
+import android.test.AndroidTestCase;
+
+public class QueryCacheTest extends AndroidTestCase {
+	
+	@Override
+	public void setUp() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.enableQueryCache(2);
+		
+		List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+		models.add(BlankModel.class);
+		
+		adapter.setModels(models);
+	}
+	
+	private QueryCache getCache() {
+		return DatabaseAdapter.getInstance(getContext()).getQueryCache();
+	}
+	
+	private int countNamed(String name) {
+		Filter filter = new Filter();
+		filter.is("mName", name);
+		
+		return BlankModel.objects(getContext()).filter(filter).count();
+	}
+	
+	public void testRepeatedCount() {
+		BlankModel b = new BlankModel();
+		b.setName("test");
+		b.save(getContext());
+		
+		QueryCache cache = getCache();
+		cache.resetStatistics();
+		
+		assertEquals(1, countNamed("test"));
+		assertEquals(1, countNamed("test"));
+		
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+	
+	public void testInvalidateOnSave() {
+		BlankModel b = new BlankModel();
+		b.setName("test");
+		b.save(getContext());
+		
+		assertEquals(1, countNamed("test"));
+		
+		b = new BlankModel();
+		b.setName("test");
+		b.save(getContext());
+		
+		assertEquals(2, countNamed("test"));
+		
+		b.delete(getContext());
+		
+		assertEquals(1, countNamed("test"));
+		assertTrue(getCache().getInvalidations() > 0);
+	}
+	
+	public void testValuesAreCopies() {
+		BlankModel b = new BlankModel();
+		b.setName("test");
+		b.save(getContext());
+		
+		List<Map<String, String>> values = BlankModel.objects(getContext()).all().values("mName");
+		values.get(0).put("mName", "changed");
+		
+		values = BlankModel.objects(getContext()).all().values("mName");
+		
+		assertEquals("test", values.get(0).get("mName"));
+	}
+	
+	public void testEviction() {
+		QueryCache cache = getCache();
+		cache.resetStatistics();
+		
+		countNamed("a");
+		countNamed("b");
+		countNamed("c");
+		
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictions());
+		
+		countNamed("a");
+		
+		assertEquals(0, cache.getHits());
+		
+		countNamed("c");
+		
+		assertEquals(1, cache.getHits());
+	}
+	
+	@Override
+	public void tearDown() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.drop();
+		adapter.disableQueryCache();
+	}
+}
@@ -0,0 +1,102 @@
+package com.orm.androrm.test.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orm.androrm.BatchResult;
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.Model;
+import com.orm.androrm.impl.BlankModel;
+import com.orm.androrm.impl.Branch;
+import com.orm.androrm.impl.Brand;
+import com.orm.androrm.impl.Product;
+import com.orm.androrm.impl.Supplier;
+
+import android.test.AndroidTestCase;
+
+public class SaveAllTest extends AndroidTestCase {
+
+	@Override
+	public void setUp() {
+		List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+		models.add(BlankModel.class);
+		models.add(Brand.class);
+		models.add(Branch.class);
+		models.add(Product.class);
+		models.add(Supplier.class);
+
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.setModels(models);
+	}
+	
+	public void testIdsAreAssigned() {
+		List<BlankModel> models = new ArrayList<BlankModel>();
+		
+		for(int i = 0; i < 10; i++) {
+			BlankModel b = new BlankModel();
+			b.setName("model " + i);
+			
+			models.add(b);
+		}
+		
+		BatchResult result = Model.saveAll(getContext(), models);
+		
+		assertEquals(10, result.getInserts());
+		assertEquals(0, result.getFailures());
+		assertEquals(10, BlankModel.objects(getContext()).count());
+		
+		for(BlankModel b : models) {
+			assertTrue(b.getId() != 0);
+			assertEquals(b.getName(), BlankModel.objects(getContext()).get(b.getId()).getName());
+		}
+	}
+	
+	public void testExistingAreUpdated() {
+		BlankModel existing = new BlankModel();
+		existing.setName("before");
+		existing.save(getContext());
+		
+		existing.setName("after");
+		
+		List<Model> models = new ArrayList<Model>();
+		models.add(existing);
+		models.add(new BlankModel());
+		models.add(existing);
+		
+		BatchResult result = Model.saveAll(getContext(), models);
+		
+		assertEquals(1, result.getInserts());
+		assertEquals(1, result.getUpdates());
+		assertEquals(2, BlankModel.objects(getContext()).count());
+		assertEquals("after", BlankModel.objects(getContext()).get(existing.getId()).getName());
+	}
+	
+	public void testForeignKeysToBatch() {
+		Brand brand = new Brand();
+		brand.setName("Copcal");
+		
+		Branch branch = new Branch();
+		branch.setName("Pittsburgh");
+		branch.setBrand(brand);
+		
+		// the branch comes first, so its brand has to be saved on demand
+		List<Model> models = new ArrayList<Model>();
+		models.add(branch);
+		models.add(brand);
+		
+		BatchResult result = Model.saveAll(getContext(), models);
+		
+		assertEquals(2, result.getInserts());
+		assertTrue(brand.getId() != 0);
+		
+		Branch loaded = Branch.objects(getContext()).get(branch.getId());
+		
+		assertEquals(brand.getId(), loaded.getBrand(getContext()).getId());
+	}
+	
+	@Override
+	public void tearDown() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.drop();
+	}
+}
@@ -0,0 +1,111 @@
+package com.orm.androrm.test.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.Model;
+import com.orm.androrm.impl.BlankModel;
+
+import android.test.AndroidTestCase;
+
+public class ThreadingTest extends AndroidTestCase {
+
+	@Override
+	public void setUp() {
+		List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+		models.add(BlankModel.class);
+
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.setModels(models);
+	}
+	
+	public void testConcurrentSaves() throws InterruptedException {
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		Thread[] threads = new Thread[4];
+		
+		for(int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				
+				@Override
+				public void run() {
+					try {
+						for(int j = 0; j < 25; j++) {
+							new BlankModel().save(getContext());
+							BlankModel.objects(getContext()).count();
+						}
+					} catch(Throwable e) {
+						synchronized(errors) {
+							errors.add(e);
+						}
+					}
+				}
+			};
+			
+			threads[i].start();
+		}
+		
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		
+		assertTrue(errors.isEmpty());
+		assertEquals(100, BlankModel.objects(getContext()).count());
+	}
+	
+	public void testTransactionsArePerThread() throws InterruptedException {
+		final DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		final int[] running = new int[] { -1 };
+		
+		adapter.beginTransaction();
+		
+		Thread other = new Thread() {
+			
+			@Override
+			public void run() {
+				running[0] = adapter.runningTransactions();
+			}
+		};
+		
+		other.start();
+		other.join();
+		
+		assertEquals(1, adapter.runningTransactions());
+		assertEquals(0, running[0]);
+		assertTrue(adapter.isWriting());
+		
+		adapter.commitTransaction();
+		
+		assertEquals(0, adapter.runningTransactions());
+		assertFalse(adapter.isWriting());
+	}
+	
+	public void testDiagnostics() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.setDiagnostics(true);
+		
+		int violations = adapter.getViolations();
+		
+		adapter.open();
+		adapter.getStatement("SELECT 1");
+		adapter.close();
+		
+		assertEquals(violations + 1, adapter.getViolations());
+		
+		adapter.beginWrite();
+		adapter.open();
+		adapter.getStatement("SELECT 1");
+		adapter.close();
+		adapter.endWrite();
+		
+		assertEquals(violations + 1, adapter.getViolations());
+		
+		adapter.setDiagnostics(false);
+	}
+	
+	@Override
+	public void tearDown() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.drop();
+	}
+}
@@ -54,6 +54,91 @@ public class TransactionTest extends AndroidTestCase {
 		assertEquals(2, BlankModel.objects(getContext()).count());
 	}
 	
+	public void testRollbackRestoresModels() {
+		BlankModel existing = new BlankModel();
+		existing.setName("saved");
+		existing.save(getContext());
+		
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.beginTransaction();
+		
+		BlankModel created = new BlankModel();
+		created.setName("created");
+		created.save(getContext());
+		
+		existing.setName("changed");
+		existing.save(getContext());
+		
+		adapter.rollbackTransaction();
+		
+		assertEquals(0, created.getId());
+		assertEquals("saved", BlankModel.objects(getContext()).get(existing.getId()).getName());
+		
+		// both are written again on the next save
+		assertTrue(created.save(getContext()));
+		assertTrue(existing.save(getContext()));
+		
+		assertEquals(2, BlankModel.objects(getContext()).count());
+		assertEquals("changed", BlankModel.objects(getContext()).get(existing.getId()).getName());
+	}
+	
+	public void testRollbackKeepsDeletedModels() {
+		BlankModel b = new BlankModel();
+		b.setName("test");
+		b.save(getContext());
+		
+		int id = b.getId();
+		
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.beginTransaction();
+		
+		assertTrue(b.delete(getContext()));
+		
+		adapter.rollbackTransaction();
+		
+		assertEquals(id, b.getId());
+		assertEquals("test", b.getName());
+		assertEquals(1, BlankModel.objects(getContext()).count());
+		
+		// the instance is only reset, once the delete has been committed
+		adapter.beginTransaction();
+		
+		assertTrue(b.delete(getContext()));
+		assertEquals(id, b.getId());
+		
+		adapter.commitTransaction();
+		
+		assertEquals(0, b.getId());
+		assertEquals(0, BlankModel.objects(getContext()).count());
+	}
+	
+	public void testFailedBatchRestoresModels() {
+		final BlankModel b = new BlankModel();
+		b.setName("test");
+		
+		try {
+			DatabaseAdapter.getInstance(getContext()).batch(new Runnable() {
+				
+				@Override
+				public void run() {
+					b.save(getContext());
+					
+					throw new IllegalStateException("a later write failed");
+				}
+			});
+			
+			fail();
+		} catch(IllegalStateException e) {
+			// expected
+		}
+		
+		assertEquals(0, b.getId());
+		assertEquals(0, BlankModel.objects(getContext()).count());
+		
+		assertTrue(b.save(getContext()));
+		assertEquals(1, BlankModel.objects(getContext()).count());
+	}
+	
 	@Override
 	public void tearDown() {
 		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
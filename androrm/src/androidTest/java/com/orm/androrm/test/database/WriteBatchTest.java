@@ -0,0 +1,81 @@
+package com.orm.androrm.test.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orm.androrm.BatchResult;
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.Model;
+import com.orm.androrm.WriteBatch;
+import com.orm.androrm.impl.BlankModel;
+
+import android.test.AndroidTestCase;
+
+public class WriteBatchTest extends AndroidTestCase {
+
+	@Override
+	public void setUp() {
+		List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+		models.add(BlankModel.class);
+
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.setModels(models);
+	}
+	
+	public void testCommit() {
+		BlankModel existing = new BlankModel();
+		existing.save(getContext());
+		
+		BlankModel obsolete = new BlankModel();
+		obsolete.save(getContext());
+		
+		existing.setName("changed");
+		
+		WriteBatch batch = new WriteBatch();
+		batch.save(new BlankModel())
+			 .save(new BlankModel())
+			 .save(existing)
+			 .save(existing)
+			 .delete(obsolete);
+		
+		assertEquals(4, batch.size());
+		
+		BatchResult result = batch.commit(getContext());
+		
+		assertEquals(2, result.getInserts());
+		assertEquals(1, result.getUpdates());
+		assertEquals(1, result.getDeletes());
+		assertEquals(0, result.getFailures());
+		assertEquals(4, result.getRows());
+		assertTrue(batch.isEmpty());
+		assertEquals(3, BlankModel.objects(getContext()).count());
+	}
+	
+	public void testRollback() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		
+		try {
+			adapter.batch(new Runnable() {
+				
+				@Override
+				public void run() {
+					new BlankModel().save(getContext());
+					
+					throw new IllegalStateException();
+				}
+			});
+			
+			fail();
+		} catch(IllegalStateException e) {
+			// expected
+		}
+		
+		assertEquals(0, BlankModel.objects(getContext()).count());
+	}
+	
+	@Override
+	public void tearDown() {
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.drop();
+	}
+}
@@ -0,0 +1,135 @@
+package com.orm.androrm.test.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.DatabaseBuilder;
+import com.orm.androrm.Filter;
+import com.orm.androrm.Model;
+import com.orm.androrm.WriteBehind;
+import com.orm.androrm.impl.BlankModel;
+
+import android.test.AndroidTestCase;
+
+public class WriteBehindTest extends AndroidTestCase {
+
+	@Override
+	public void setUp() {
+		List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+		models.add(BlankModel.class);
+
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.setModels(models);
+		
+		WriteBehind writer = WriteBehind.getInstance(getContext());
+		writer.setDelay(10000);
+		writer.resetStatistics();
+	}
+	
+	public void testUnsavedModelIsSavedRightAway() {
+		BlankModel b = new BlankModel();
+		b.saveAsync(getContext());
+		
+		assertTrue(b.getId() != 0);
+		assertEquals(0, WriteBehind.getInstance(getContext()).size());
+	}
+	
+	public void testCoalesce() {
+		BlankModel b = new BlankModel();
+		b.save(getContext());
+		
+		b.setName("one");
+		b.saveAsync(getContext());
+		b.setName("two");
+		b.saveAsync(getContext());
+		
+		WriteBehind writer = WriteBehind.getInstance(getContext());
+		
+		assertEquals(1, writer.size());
+		assertEquals(1, writer.getCoalesced());
+		
+		writer.flush();
+		
+		assertEquals(0, writer.size());
+		assertEquals(1, writer.getCommits());
+		
+		BlankModel loaded = BlankModel.objects(getContext()).get(b.getId());
+		
+		assertEquals("two", loaded.getName());
+	}
+	
+	public void testQueryWritesPendingModels() {
+		BlankModel b = new BlankModel();
+		b.save(getContext());
+		
+		b.setName("test");
+		b.saveAsync(getContext());
+		
+		Filter filter = new Filter();
+		filter.is("mName", "test");
+		
+		assertEquals(1, BlankModel.objects(getContext()).filter(filter).count());
+		assertEquals(0, WriteBehind.getInstance(getContext()).size());
+	}
+	
+	public void testDeleteAsync() {
+		BlankModel b = new BlankModel();
+		b.save(getContext());
+		
+		b.setName("test");
+		b.saveAsync(getContext());
+		b.deleteAsync(getContext());
+		
+		WriteBehind writer = WriteBehind.getInstance(getContext());
+		
+		assertEquals(1, writer.size());
+		
+		writer.flush();
+		
+		assertEquals(0, BlankModel.objects(getContext()).count());
+	}
+	
+	public void testFailedWriteStaysQueued() {
+		BlankModel b = new BlankModel();
+		b.save(getContext());
+		
+		b.setName("test");
+		b.saveAsync(getContext());
+		
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.drop(DatabaseBuilder.getTableName(BlankModel.class));
+		
+		WriteBehind writer = WriteBehind.getInstance(getContext());
+		
+		try {
+			writer.flush();
+			
+			fail();
+		} catch(RuntimeException e) {
+			// the table is gone
+		}
+		
+		assertEquals(1, writer.size());
+		assertEquals(0, writer.getCommits());
+		
+		List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+		models.add(BlankModel.class);
+		adapter.setModels(models);
+		
+		writer.flush();
+		
+		assertEquals(0, writer.size());
+		assertEquals("test", BlankModel.objects(getContext()).get(b.getId()).getName());
+	}
+	
+	@Override
+	public void tearDown() {
+		WriteBehind writer = WriteBehind.getInstance(getContext());
+		writer.flush();
+		writer.setDelay(WriteBehind.DEFAULT_DELAY);
+		
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.drop();
+	}
+}
@@ -6,8 +6,10 @@ import android.test.AndroidTestCase;
 
 import com.orm.androrm.Model;
 import com.orm.androrm.TableDefinition;
+import com.orm.androrm.field.CharField;
 import com.orm.androrm.field.ForeignKeyField;
 import com.orm.androrm.field.IntegerField;
+import com.orm.androrm.field.LocationField;
 import com.orm.androrm.impl.Product;
 
 public class TableDefinitionTest extends AndroidTestCase {
@@ -56,6 +58,45 @@ public class TableDefinitionTest extends AndroidTestCase {
 					+ "ON DELETE SET NULL);", def.toString());
 	}
 	
+	public void testIndex() {
+		TableDefinition def = new TableDefinition("foo");
+		IntegerField i = new IntegerField();
+		i.index();
+		
+		def.addField("pk", i);
+		
+		List<String> indexes = def.getIndexDefinitions();
+		
+		assertEquals(1, indexes.size());
+		assertEquals("CREATE INDEX IF NOT EXISTS `foo_pk_idx` ON `foo` (`pk`);", indexes.get(0));
+	}
+	
+	public void testCompositeUniqueIndex() {
+		TableDefinition def = new TableDefinition("foo");
+		ForeignKeyField<Product> fk = new ForeignKeyField<Product>(Product.class);
+		fk.unique("name");
+		
+		def.addField("product", fk);
+		def.addField("name", new CharField());
+		
+		List<String> indexes = def.getIndexDefinitions();
+		
+		assertEquals(1, indexes.size());
+		assertEquals("CREATE UNIQUE INDEX IF NOT EXISTS `foo_product_name_idx` "
+				+ "ON `foo` (`product`,`name`);", indexes.get(0));
+	}
+	
+	public void testLocationIndex() {
+		TableDefinition def = new TableDefinition("foo");
+		LocationField l = new LocationField();
+		l.index();
+		
+		def.addField("pos", l);
+		
+		assertEquals("CREATE INDEX IF NOT EXISTS `foo_pos_idx` ON `foo` (`posLat`,`posLng`);", 
+				def.getIndexDefinitions().get(0));
+	}
+	
 	public void testRelationalClasses() {
 		TableDefinition def = new TableDefinition("foo");
 		
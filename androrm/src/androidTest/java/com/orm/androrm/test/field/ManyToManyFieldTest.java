@@ -163,6 +163,83 @@ public class ManyToManyFieldTest extends AndroidTestCase {
 		assertTrue(b2.getProducts(getContext()).contains(p));
 	}
 
+	public void testRemove() {
+		Product p1 = new Product();
+		p1.setName("test1");
+		p1.save(getContext());
+
+		Product p2 = new Product();
+		p2.setName("test2");
+		p2.save(getContext());
+		
+		Brand b = new Brand();
+		b.setName("Copcal");
+		b.save(getContext());
+
+		Supplier s = new Supplier();
+		s.setName("ACME");
+		s.setBrand(b);
+		s.addProducts(Arrays.asList(new Product[] { p1, p2 }));
+		s.save(getContext());
+		
+		s.removeProduct(p1);
+		s.save(getContext());
+		
+		s = Supplier.objects(getContext()).get(s.getId());
+		QuerySet<Product> products = s.getProducts(getContext());
+
+		assertEquals(1, products.count());
+		assertTrue(products.contains(p2));
+	}
+	
+	public void testPrefetchRelated() {
+		Product p1 = new Product();
+		p1.setName("test1");
+		p1.save(getContext());
+
+		Product p2 = new Product();
+		p2.setName("test2");
+		p2.save(getContext());
+		
+		Brand b = new Brand();
+		b.setName("Copcal");
+		b.save(getContext());
+
+		Supplier s1 = new Supplier();
+		s1.setName("ACME");
+		s1.setBrand(b);
+		s1.addProducts(Arrays.asList(new Product[] { p1, p2 }));
+		s1.save(getContext());
+		
+		Supplier s2 = new Supplier();
+		s2.setName("Initech");
+		s2.setBrand(b);
+		s2.addProduct(p2);
+		s2.save(getContext());
+		
+		Supplier s3 = new Supplier();
+		s3.setName("Globex");
+		s3.setBrand(b);
+		s3.save(getContext());
+		
+		List<Supplier> suppliers = Supplier.objects(getContext())
+				.all()
+				.orderBy("mName")
+				.prefetchRelated("mProducts")
+				.toList();
+		
+		assertEquals(3, suppliers.size());
+		
+		// ACME, Globex, Initech
+		List<Product> products = suppliers.get(0).getProducts(getContext()).toList();
+		
+		assertEquals(2, products.size());
+		assertTrue(products.contains(p1));
+		assertTrue(products.contains(p2));
+		assertTrue(suppliers.get(1).getProducts(getContext()).toList().isEmpty());
+		assertEquals(p2, suppliers.get(2).getProducts(getContext()).toList().get(0));
+	}
+
 	public void testReset() {
 		Product p1 = new Product();
 		p1.setName("test1");
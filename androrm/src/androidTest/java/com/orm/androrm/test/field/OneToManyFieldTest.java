@@ -62,6 +62,41 @@ public class OneToManyFieldTest extends AndroidTestCase {
 		assertEquals(b, b2.getBrand(getContext()));
 	}
 	
+	public void testPrefetchRelated() {
+		Brand b1 = new Brand();
+		b1.setName("Copcal");
+		b1.save(getContext());
+		
+		Brand b2 = new Brand();
+		b2.setName("Mercedes");
+		b2.save(getContext());
+		
+		Branch branch1 = new Branch();
+		branch1.setName("test1");
+		branch1.setBrand(b1);
+		branch1.save(getContext());
+		
+		Branch branch2 = new Branch();
+		branch2.setName("test2");
+		branch2.setBrand(b1);
+		branch2.save(getContext());
+		
+		List<Brand> brands = Brand.objects(getContext())
+				.all()
+				.orderBy("mName")
+				.prefetchRelated("mBranches")
+				.toList();
+		
+		assertEquals(2, brands.size());
+		
+		List<Branch> branches = brands.get(0).getBranches(getContext()).toList();
+		
+		assertEquals(2, branches.size());
+		assertTrue(branches.contains(branch1));
+		assertTrue(branches.contains(branch2));
+		assertTrue(brands.get(1).getBranches(getContext()).toList().isEmpty());
+	}
+	
 	public void testAddAllAndGet() {
 		Brand b = new Brand();
 		b.setName("Copcal");
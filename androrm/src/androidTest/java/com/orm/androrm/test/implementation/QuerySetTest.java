@@ -2,9 +2,11 @@ package com.orm.androrm.test.implementation;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import android.test.AndroidTestCase;
 
+import com.orm.androrm.CursorIterator;
 import com.orm.androrm.DatabaseAdapter;
 import com.orm.androrm.Filter;
 import com.orm.androrm.Model;
@@ -87,6 +89,150 @@ public class QuerySetTest extends AndroidTestCase {
 		assertFalse(result.contains(notContained));
 	}
 	
+	public void testChainedFiltersAreFlat() {
+		Filter pretoria = new Filter();
+		pretoria.contains("mName", "Pretoria");
+		
+		Filter cashbuild = new Filter();
+		cashbuild.contains("mName", "Cashbuild");
+		
+		QuerySet<Branch> result = Branch.objects(getContext())
+				.filter(pretoria)
+				.filter(cashbuild);
+		
+		assertFalse(result.explain().contains("JOIN"));
+		assertEquals(1, result.count());
+	}
+	
+	public void testForeignKeyFilterIsFlat() {
+		Brand b = Brand.objects(getContext()).get(1);
+		
+		Filter filter = new Filter();
+		filter.is("mBrand", b)
+			  .contains("mName", "Pretoria");
+		
+		QuerySet<Branch> result = Branch.objects(getContext()).filter(filter);
+		
+		assertFalse(result.explain().contains("JOIN"));
+		assertEquals(2, result.count());
+	}
+	
+	public void testStream() {
+		Filter filter = new Filter();
+		filter.contains("mName", "Pretoria");
+		
+		CursorIterator<Branch> branches = Branch.objects(getContext()).filter(filter).stream();
+		
+		assertTrue(branches.hasNext());
+		assertEquals("Cashbuild Pretoria", branches.next().getName());
+		assertTrue(branches.hasNext());
+		assertEquals("Plumblink Pretoria", branches.next().getName());
+		assertFalse(branches.hasNext());
+		
+		// closing an exhausted iterator must not fail
+		branches.close();
+	}
+	
+	public void testForEach() {
+		final List<String> names = new ArrayList<String>();
+		
+		Branch.objects(getContext()).all().forEach(new QuerySet.Callback<Branch>() {
+			
+			@Override
+			public void call(Branch item) {
+				names.add(item.getName());
+				
+				// writing while the cursor is still open
+				item.save(getContext());
+			}
+		});
+		
+		assertEquals(3, names.size());
+		assertEquals(3, Branch.objects(getContext()).count());
+	}
+	
+	public void testDelete() {
+		Filter filter = new Filter();
+		filter.contains("mName", "Pretoria");
+		
+		assertEquals(2, Branch.objects(getContext()).filter(filter).delete(getContext()));
+		assertEquals(1, Branch.objects(getContext()).count());
+		assertEquals("The third Branch", Branch.objects(getContext()).get(3).getName());
+	}
+	
+	public void testAggregates() {
+		assertEquals(6.0, Branch.objects(getContext()).sum(Model.PK));
+		assertEquals(1.0, Branch.objects(getContext()).min(Model.PK));
+		assertEquals(3.0, Branch.objects(getContext()).max(Model.PK));
+		
+		Filter filter = new Filter();
+		filter.contains("mName", "Pretoria");
+		
+		assertEquals(3.0, Branch.objects(getContext()).filter(filter).sum(Model.PK));
+		
+		filter = new Filter();
+		filter.is("mName", "Unknown");
+		
+		assertEquals(0.0, Branch.objects(getContext()).filter(filter).max(Model.PK));
+	}
+	
+	public void testGroupBy() {
+		Map<String, Integer> counts = Branch.objects(getContext()).groupBy("mBrand").count();
+		
+		assertEquals(1, counts.size());
+		assertEquals(3, (int) counts.get("1"));
+		
+		Map<String, Double> sums = Branch.objects(getContext()).groupBy("mBrand").sum(Model.PK);
+		
+		assertEquals(6.0, sums.get("1"));
+	}
+	
+	public void testValues() {
+		List<Map<String, String>> values = Branch.objects(getContext()).all().orderBy("mName").values("mName");
+		
+		assertEquals(3, values.size());
+		assertEquals("Cashbuild Pretoria", values.get(0).get("mName"));
+		assertEquals(1, values.get(0).size());
+	}
+	
+	public void testSelectRelated() {
+		Branch orphan = new Branch();
+		orphan.setName("Orphan");
+		orphan.save(getContext());
+		
+		List<Branch> branches = Branch.objects(getContext())
+				.all()
+				.orderBy("mName")
+				.selectRelated("mBrand")
+				.toList();
+		
+		assertEquals(4, branches.size());
+		
+		// the brands are gone, but have already been loaded with the branches
+		Brand.objects(getContext()).all().delete(getContext());
+		
+		assertEquals("Copcal", branches.get(0).getBrand(getContext()).getName());
+		assertEquals(branches.get(0).getBrand(getContext()), branches.get(2).getBrand(getContext()));
+		// Orphan
+		assertNull(branches.get(1).getBrand(getContext()));
+	}
+	
+	public void testSelectRelatedKeepsOrder() {
+		List<Branch> branches = Branch.objects(getContext())
+				.all()
+				.orderBy("-mName")
+				.selectRelated("mBrand")
+				.toList();
+		
+		assertEquals(3, branches.size());
+		
+		for(int i = 1; i < branches.size(); i++) {
+			String previous = branches.get(i - 1).getName().toUpperCase();
+			
+			assertTrue(previous.compareTo(branches.get(i).getName().toUpperCase()) >= 0);
+		}
+	}
+	
 	public void tearDown() {
 		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
 		adapter.drop();
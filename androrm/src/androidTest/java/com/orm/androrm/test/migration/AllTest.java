@@ -13,6 +13,8 @@ public class AllTest extends TestSuite {
 		suite.addTestSuite(RenameModelMigrationTest.class);
 		suite.addTestSuite(ForeignKeyMigrationTest.class);
 		suite.addTestSuite(ModelTest.class);
+		suite.addTestSuite(IndexMigrationTest.class);
+		suite.addTestSuite(MigrationRegistryTest.class);
 		
 		return suite;
 	}
@@ -0,0 +1,44 @@
+package com.orm.androrm.test.migration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.Model;
+import com.orm.androrm.impl.migration.OneFieldModel;
+import com.orm.androrm.migration.Migrator;
+
+public class IndexMigrationTest extends AbstractMigrationTest {
+
+	@Override
+	public void setUp() {
+		List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+		models.add(OneFieldModel.class);
+		
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.setModels(models);
+		
+		super.setUp();
+	}
+	
+	public void testAddIndex() {
+		Migrator<OneFieldModel> migrator = new Migrator<OneFieldModel>(OneFieldModel.class);
+		
+		assertFalse(mHelper.indexExists("onefieldmodel_mName_idx"));
+		
+		migrator.addIndex("mName");
+		migrator.migrate(getContext());
+		
+		assertTrue(mHelper.indexExists("onefieldmodel_mName_idx"));
+	}
+	
+	public void testAddUniqueIndex() {
+		Migrator<OneFieldModel> migrator = new Migrator<OneFieldModel>(OneFieldModel.class);
+		
+		migrator.addUniqueIndex("mName");
+		migrator.migrate(getContext());
+		
+		assertTrue(mHelper.indexExists("onefieldmodel_mName_idx"));
+	}
+	
+}
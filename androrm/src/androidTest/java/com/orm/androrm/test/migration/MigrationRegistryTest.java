@@ -0,0 +1,95 @@
+package com.orm.androrm.test.migration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.DatabaseBuilder;
+import com.orm.androrm.Index;
+import com.orm.androrm.Model;
+import com.orm.androrm.field.CharField;
+import com.orm.androrm.impl.migration.EmptyModel;
+import com.orm.androrm.impl.migration.OneFieldModel;
+import com.orm.androrm.migration.MigrationRegistry;
+import com.orm.androrm.migration.Migrator;
+
+public class MigrationRegistryTest extends AbstractMigrationTest {
+
+	@Override
+	public void setUp() {
+		List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+		models.add(EmptyModel.class);
+		models.add(OneFieldModel.class);
+		
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(getContext());
+		adapter.setModels(models);
+		
+		super.setUp();
+	}
+	
+	private MigrationRegistry apply() {
+		MigrationRegistry registry = MigrationRegistry.begin(getContext());
+		
+		try {
+			Migrator<EmptyModel> empty = new Migrator<EmptyModel>(EmptyModel.class);
+			empty.addField("mName", new CharField());
+			empty.addIndex("mName");
+			empty.migrate(getContext());
+			
+			Migrator<OneFieldModel> oneField = new Migrator<OneFieldModel>(OneFieldModel.class);
+			oneField.addField("mName", new CharField());
+			oneField.migrate(getContext());
+			
+			// nothing is executed, before the registry applies the migrations
+			assertFalse(mHelper.hasField(EmptyModel.class, "mName"));
+			
+			registry.apply();
+		} finally {
+			registry.end();
+		}
+		
+		return registry;
+	}
+	
+	public void testApply() {
+		MigrationRegistry registry = apply();
+		
+		assertFalse(registry.isUpToDate());
+		assertEquals(3, registry.getExecuted());
+		assertTrue(mHelper.hasField(EmptyModel.class, "mName"));
+		assertTrue(mHelper.indexExists(new Index("mName").getName(DatabaseBuilder.getTableName(EmptyModel.class))));
+	}
+	
+	public void testSkipUnchanged() {
+		apply();
+		
+		MigrationRegistry registry = apply();
+		
+		assertTrue(registry.isUpToDate());
+		assertEquals(0, registry.getExecuted());
+	}
+	
+	public void testChangedMigrations() {
+		apply();
+		
+		MigrationRegistry registry = MigrationRegistry.begin(getContext());
+		
+		try {
+			Migrator<EmptyModel> empty = new Migrator<EmptyModel>(EmptyModel.class);
+			empty.addField("mName", new CharField());
+			empty.addIndex("mName");
+			empty.addField("mTitle", new CharField());
+			empty.migrate(getContext());
+			
+			registry.apply();
+		} finally {
+			registry.end();
+		}
+		
+		assertFalse(registry.isUpToDate());
+		// only the new field is added, all others are known to be applied
+		assertEquals(1, registry.getExecuted());
+		assertTrue(mHelper.hasField(EmptyModel.class, "mTitle"));
+	}
+	
+}
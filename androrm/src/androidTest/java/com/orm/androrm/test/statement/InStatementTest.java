@@ -24,6 +24,20 @@ public class InStatementTest extends AndroidTestCase {
 		assertEquals("foo IN ('1','2','3')", in.toString());
 	}
 	
+	public void testToSQL() {
+		List<Object> values = new ArrayList<Object>();
+		values.add(1);
+		values.add(2);
+		
+		List<String> args = new ArrayList<String>();
+		InStatement in = new InStatement("foo", values);
+		
+		assertEquals("foo IN (?,?)", in.toSQL(args));
+		assertEquals(2, args.size());
+		assertEquals("1", args.get(0));
+		assertEquals("2", args.get(1));
+	}
+	
 	public void testGetKeys() {
 		List<Object> values = new ArrayList<Object>();
 		values.add(1);
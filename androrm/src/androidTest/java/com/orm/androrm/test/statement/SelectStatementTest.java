@@ -1,5 +1,8 @@
 package com.orm.androrm.test.statement;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import android.test.AndroidTestCase;
 
 import com.orm.androrm.Limit;
@@ -64,6 +67,28 @@ public class SelectStatementTest extends AndroidTestCase {
 		assertEquals("SELECT * FROM `table` WHERE foo = 'bar'", mSelect.toString());
 	}
 	
+	public void testToSQL() {
+		Where inner = new Where();
+		inner.setStatement(new Statement("foo", "bar"));
+		
+		SelectStatement select = new SelectStatement();
+		select.from("another_table")
+			  .where(inner);
+		
+		Where outer = new Where();
+		outer.setStatement(new Statement("baz", 1));
+		
+		mSelect.from(select)
+			   .where(outer);
+		
+		List<String> args = new ArrayList<String>();
+		
+		assertEquals("SELECT * FROM (SELECT * FROM `another_table` WHERE foo = ?) WHERE baz = ?", mSelect.toSQL(args));
+		assertEquals(2, args.size());
+		assertEquals("bar", args.get(0));
+		assertEquals("1", args.get(1));
+	}
+	
 	public void testOrderBy() {
 		mSelect.orderBy("column");
 		
@@ -81,4 +106,12 @@ public class SelectStatementTest extends AndroidTestCase {
 		
 		assertEquals("SELECT COUNT(*) AS " + Model.COUNT + " FROM `table`", mSelect.toString());
 	}
+	
+	public void testGroupBy() {
+		mSelect.select("field1", "COUNT(*)")
+			   .groupBy("field1")
+			   .orderBy("field1");
+		
+		assertEquals("SELECT field1, COUNT(*) FROM `table` GROUP BY `field1` ORDER BY UPPER(field1) ASC", mSelect.toString());
+	}
 }
@@ -0,0 +1,102 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+/**
+ * Summary of the writes done by {@link DatabaseAdapter#batch(Runnable)}
+ * or a {@link WriteBatch}. 
+ */
+public class BatchResult {
+
+	/**
+	 * Number of rows changed by all statements of the batch, as 
+	 * reported by the database. 
+	 */
+	private int mRows;
+	private int mInserts;
+	private int mUpdates;
+	private int mDeletes;
+	private int mFailures;
+	/**
+	 * Time spent on the batch in milliseconds, including the commit.
+	 */
+	private long mElapsed;
+	
+	protected void setRows(int rows) {
+		mRows = rows;
+	}
+	
+	protected void setElapsed(long elapsed) {
+		mElapsed = elapsed;
+	}
+	
+	protected void addInsert() {
+		mInserts++;
+	}
+	
+	protected void addUpdate() {
+		mUpdates++;
+	}
+	
+	protected void addDelete() {
+		mDeletes++;
+	}
+	
+	protected void addFailure() {
+		mFailures++;
+	}
+	
+	public int getRows() {
+		return mRows;
+	}
+	
+	public int getInserts() {
+		return mInserts;
+	}
+	
+	public int getUpdates() {
+		return mUpdates;
+	}
+	
+	public int getDeletes() {
+		return mDeletes;
+	}
+	
+	public int getFailures() {
+		return mFailures;
+	}
+	
+	public long getElapsed() {
+		return mElapsed;
+	}
+	
+	@Override
+	public String toString() {
+		return mRows + " rows (" 
+				+ mInserts + " inserts, " 
+				+ mUpdates + " updates, " 
+				+ mDeletes + " deletes, " 
+				+ mFailures + " failures) in " 
+				+ mElapsed + "ms";
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import android.database.Cursor;
+
+/**
+ * Iterates over the result of a query while reading only one row at
+ * a time from the underlying {@link Cursor}. The connection to the 
+ * database is held until the iterator is closed, which happens 
+ * automatically after the last row has been read. 
+ * 
+ * @see QuerySet#stream()
+ *
+ * @param <T>	Type of the model.
+ */
+public class CursorIterator<T extends Model> implements Iterator<T> {
+
+	private DatabaseAdapter mAdapter;
+	private Cursor mCursor;
+	private RowReader<T> mReader;
+	/**
+	 * Indicates, that the cursor has already been moved to the row, 
+	 * that will be returned by the next call to {@link CursorIterator#next()}.
+	 */
+	private boolean mFetched;
+	private boolean mHasNext;
+	private boolean mClosed;
+	
+	CursorIterator(DatabaseAdapter adapter, Cursor c, RowReader<T> reader) {
+		mAdapter = adapter;
+		mCursor = c;
+		mReader = reader;
+	}
+	
+	@Override
+	public boolean hasNext() {
+		if(mClosed) {
+			return false;
+		}
+		
+		if(!mFetched) {
+			mHasNext = mCursor.moveToNext();
+			mFetched = true;
+			
+			if(!mHasNext) {
+				close();
+			}
+		}
+		
+		return mHasNext;
+	}
+
+	@Override
+	public T next() {
+		if(!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		
+		mFetched = false;
+		
+		return mReader.read();
+	}
+
+	/**
+	 * Removing items is not supported. Use {@link Model#delete(android.content.Context)}
+	 * instead. 
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Closes the cursor and releases the connection. Calling this more 
+	 * than once has no effect. 
+	 */
+	public void close() {
+		if(!mClosed) {
+			mClosed = true;
+			mCursor.close();
+			mAdapter.release();
+		}
+	}
+}
@@ -22,24 +22,42 @@
  */
 package com.orm.androrm;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
 
 import com.orm.androrm.migration.Migration;
 import com.orm.androrm.statement.SelectStatement;
 
 /**
  * This class provides access to the underlying SQLite database. 
+ * <br /><br />
+ * The adapter can be used by several threads at once. Writes are 
+ * serialized by a write lock, that is held for the whole duration of
+ * a transaction, while reads run without it. With write-ahead logging
+ * enabled (see {@link DatabaseAdapter#enableWriteAheadLogging()}) reads
+ * no longer wait for a running write transaction either. Transactions
+ * are tracked per thread. 
  * 
  * @author Philipp Giese
  */
 public class DatabaseAdapter {
 	
+	private static final String TAG = "ANDRORM:DATABASE:ADAPTER";
+	
 	/**
 	 * Name that will be used for the database. Defaults
 	 * to "my_database".
@@ -48,6 +66,11 @@ public class DatabaseAdapter {
 	
 	private static DatabaseAdapter mInstance;
 	
+	/**
+	 * Maximum number of compiled statements kept per connection.
+	 */
+	private static final int STATEMENT_CACHE_SIZE = 25;
+	
 	/**
 	 * Set the name, that will be used for the database.
 	 * 
@@ -61,7 +84,7 @@ public class DatabaseAdapter {
 		return DATABASE_NAME;
 	}
 	
-	public static final DatabaseAdapter getInstance(Context context) {
+	public static final synchronized DatabaseAdapter getInstance(Context context) {
 		if(mInstance == null) {
 			mInstance = new DatabaseAdapter(context);
 		}
@@ -77,11 +100,105 @@ public class DatabaseAdapter {
 	/**
 	 * {@link android.database.sqlite.SQLiteDatabase SQLite database} to store the data.
 	 */
-	private SQLiteDatabase mDb;	
+	private volatile SQLiteDatabase mDb;	
 	
 	private Context mContext;
 	
+	/**
+	 * Number of transactions running on any thread.
+	 */
 	private int mRunningTransactions;
+	/**
+	 * Number of transactions running on the current thread. 
+	 */
+	private final ThreadLocal<Integer> mThreadTransactions = new ThreadLocal<Integer>() {
+		
+		@Override
+		protected Integer initialValue() {
+			return 0;
+		}
+	};
+	/**
+	 * Serializes all writes. Held from the beginning of a transaction
+	 * until its end. 
+	 */
+	private final ReentrantLock mWriteLock = new ReentrantLock();
+	/**
+	 * Thread currently holding the write lock, for diagnostics.
+	 */
+	private volatile Thread mWriter;
+	/**
+	 * If set, misuse of the adapter across threads is logged.
+	 */
+	private boolean mDiagnostics;
+	/**
+	 * Number of misuses reported in diagnostic mode.
+	 */
+	private int mViolations;
+	/**
+	 * If set, the connection acquired by {@link DatabaseAdapter#open()} is
+	 * kept until {@link DatabaseAdapter#closePersistent()} is called instead
+	 * of being released after every operation.
+	 */
+	private boolean mPersistent;
+	/**
+	 * Number of checkpoints run since the adapter has been created.
+	 */
+	private int mCheckpoints;
+	/**
+	 * Number of times a connection has actually been acquired from the
+	 * {@link DatabaseHelper}.
+	 */
+	private int mOpenCount;
+	/**
+	 * Number of calls to {@link DatabaseAdapter#open()} that could be served
+	 * by the persistent connection.
+	 */
+	private int mAvoidedOpenCount;
+	/**
+	 * Compiled statements of the current connection keyed by their SQL. 
+	 * Once {@link DatabaseAdapter#STATEMENT_CACHE_SIZE} is exceeded the
+	 * least recently used statement is closed. 
+	 */
+	private Map<String, SQLiteStatement> mStatements;
+	/**
+	 * Instances loaded through this adapter, if the identity map has been
+	 * enabled. <code>null</code> otherwise. 
+	 */
+	private IdentityMap mIdentityMap;
+	
+	private volatile QueryCache mQueryCache;
+	/**
+	 * Tables written while the current thread holds the write lock. 
+	 * Only accessed by the thread holding it. 
+	 */
+	private final Set<String> mWrittenTables = new HashSet<String>();
+	/**
+	 * Depth of the transactions started by the thread holding the write
+	 * lock. Only accessed by that thread. 
+	 */
+	private int mTransactionDepth;
+	/**
+	 * Set, if the running transaction or one nested in it has been 
+	 * rolled back. 
+	 */
+	private boolean mTransactionFailed;
+	/**
+	 * States of the models written within the running transaction, to 
+	 * be restored if it is rolled back. 
+	 */
+	private final List<Model.State> mTracked = new ArrayList<Model.State>();
+	/**
+	 * Models deleted within the running transaction. They are only reset
+	 * once it has been committed. 
+	 */
+	private final Map<Model, Boolean> mDeleted = new IdentityHashMap<Model, Boolean>();
+	/**
+	 * Number of calls to {@link DatabaseAdapter#open()}, that have not 
+	 * been followed by a call to {@link DatabaseAdapter#close()} yet. 
+	 * The connection is only closed, once nobody uses it anymore. 
+	 */
+	private int mUsers;
 	
 	/**
 	 * This constructor is deprecated. In order to retrieve an instance
@@ -94,19 +211,288 @@ public class DatabaseAdapter {
 		mDbHelper = new DatabaseHelper(context, DATABASE_NAME);
 		mContext = context;
 		mRunningTransactions = 0;
+		mPersistent = false;
+		mStatements = new LinkedHashMap<String, SQLiteStatement>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+				if(size() > STATEMENT_CACHE_SIZE) {
+					eldest.getValue().close();
+					
+					return true;
+				}
+				
+				return false;
+			}
+		};
+	}
+	
+	private static String[] toArgs(List<String> args) {
+		return args.toArray(new String[args.size()]);
+	}
+	
+	private static String getWhereClause(Where where, List<String> args) {
+		if(where != null && where.getStatement() != null) {
+			return where.getStatement().toSQL(args);
+		}
+		
+		return null;
 	}
 	
 	/**
 	 * Closes the current connection to the database.
 	 * Call this method after every database interaction to prevent
-	 * data leaks.
+	 * data leaks. 
+	 * <br /><br />
+	 * While a persistent connection is held (see {@link DatabaseAdapter#openPersistent()})
+	 * this call has no effect. The connection is only closed, if no 
+	 * other caller, on any thread, still uses it. 
 	 */
-	public void close() {
-		if(mRunningTransactions == 0) {
+	public synchronized void close() {
+		if(mUsers > 0) {
+			mUsers--;
+		}
+		
+		if(mUsers == 0 && mRunningTransactions == 0 && !mPersistent) {
+			releaseStatements();
 			mDbHelper.close();
 		}
 	}
 	
+	/**
+	 * Opens the connection and keeps it open until the same number of
+	 * calls to {@link DatabaseAdapter#release()} has been made. 
+	 * Use this while a {@link Cursor} is read, that other database 
+	 * operations must not invalidate. 
+	 * 
+	 * @return <code>this</code> for chaining.
+	 * @throws SQLException
+	 */
+	public DatabaseAdapter acquire() throws SQLException {
+		return open();
+	}
+	
+	/**
+	 * See {@link DatabaseAdapter#acquire()}.
+	 */
+	public void release() {
+		close();
+	}
+	
+	/**
+	 * Closes all compiled statements of the current connection. 
+	 */
+	private void releaseStatements() {
+		for(SQLiteStatement statement : mStatements.values()) {
+			statement.close();
+		}
+		
+		mStatements.clear();
+	}
+	
+	/**
+	 * Returns a compiled statement for the given SQL. Statements are
+	 * cached for as long as the current connection is open, so that
+	 * subsequent calls with the same SQL only need to re-bind their
+	 * arguments. 
+	 * <br /><br />
+	 * Call {@link DatabaseAdapter#open()} before using this method. As 
+	 * the statements are shared, the caller must hold the write lock
+	 * (see {@link DatabaseAdapter#beginWrite()}) until it is done with 
+	 * the statement.
+	 * 
+	 * @param sql	SQL of the statement, using ? as placeholders.
+	 * @return	Compiled {@link SQLiteStatement} with cleared bindings.
+	 */
+	public SQLiteStatement getStatement(String sql) {
+		if(mDiagnostics && !mWriteLock.isHeldByCurrentThread()) {
+			report("compiled statement used without holding the write lock");
+		}
+		
+		if(mQueryCache != null) {
+			String table = QueryCache.getWrittenTable(sql);
+			
+			if(table != null) {
+				written(table);
+			}
+		}
+		
+		return getCachedStatement(sql);
+	}
+	
+	private synchronized SQLiteStatement getCachedStatement(String sql) {
+		SQLiteStatement statement = mStatements.get(sql);
+		
+		if(statement == null) {
+			statement = mDb.compileStatement(sql);
+			mStatements.put(sql, statement);
+		} else {
+			statement.clearBindings();
+		}
+		
+		return statement;
+	}
+	
+	/**
+	 * @return	Number of rows changed by the last INSERT, UPDATE or DELETE
+	 * 			executed on the current connection. 
+	 */
+	public int changes() {
+		return (int) getStatement("SELECT changes()").simpleQueryForLong();
+	}
+	
+	/**
+	 * Opens a connection, that will be kept for all following database
+	 * interactions until {@link DatabaseAdapter#closePersistent()} is 
+	 * called. Use this for the lifetime of a session in order to avoid 
+	 * re-acquiring the database on every single operation. 
+	 * 
+	 * @return <code>this</code> for chaining.
+	 * @throws SQLException
+	 */
+	public synchronized DatabaseAdapter openPersistent() throws SQLException {
+		if(!mPersistent) {
+			open();
+			mPersistent = true;
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Releases the connection opened by {@link DatabaseAdapter#openPersistent()}.
+	 * Afterwards the adapter falls back to opening and closing the 
+	 * connection for every operation. 
+	 */
+	public synchronized void closePersistent() {
+		if(mPersistent) {
+			mPersistent = false;
+			
+			close();
+		}
+	}
+	
+	/**
+	 * @return <code>true</code> if a persistent connection is currently held.
+	 */
+	public boolean isPersistent() {
+		return mPersistent;
+	}
+	
+	/**
+	 * @return Number of times a connection has been acquired from the database.
+	 */
+	public int getOpenCount() {
+		return mOpenCount;
+	}
+	
+	/**
+	 * @return Number of calls to {@link DatabaseAdapter#open()}, that did not 
+	 * 			need to acquire a new connection, because a persistent one was held.
+	 */
+	public int getAvoidedOpenCount() {
+		return mAvoidedOpenCount;
+	}
+	
+	/**
+	 * Resets the connection counters. 
+	 */
+	public void resetOpenCounters() {
+		mOpenCount = 0;
+		mAvoidedOpenCount = 0;
+	}
+	
+	/**
+	 * Enables the {@link IdentityMap}. From then on, every row, that is 
+	 * loaded through a {@link QuerySet} or a {@link com.orm.androrm.field.ForeignKeyField}, 
+	 * is resolved to the instance already known for it, if any. Fields
+	 * of that instance, that have not been changed since, are refreshed 
+	 * from the row. 
+	 * 
+	 * @param soft	If <code>true</code> instances are held by soft instead
+	 * 				of weak references. 
+	 * @return <code>this</code> for chaining.
+	 */
+	public DatabaseAdapter enableIdentityMap(boolean soft) {
+		if(mIdentityMap == null) {
+			mIdentityMap = new IdentityMap(soft);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Disables the {@link IdentityMap} and forgets all known instances.
+	 */
+	public void disableIdentityMap() {
+		mIdentityMap = null;
+	}
+	
+	/**
+	 * @return The {@link IdentityMap} or <code>null</code> if it is not enabled.
+	 */
+	public IdentityMap getIdentityMap() {
+		return mIdentityMap;
+	}
+	
+	/**
+	 * Enables the {@link QueryCache}. From then on, the results of 
+	 * counts, aggregates and values of a {@link QuerySet} are kept until
+	 * a table they have been read from is written. 
+	 * 
+	 * @param size	Maximum number of cached results.
+	 * @return <code>this</code> for chaining.
+	 */
+	public DatabaseAdapter enableQueryCache(int size) {
+		if(mQueryCache == null) {
+			mQueryCache = new QueryCache(size);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Disables the {@link QueryCache} and drops all cached results.
+	 */
+	public void disableQueryCache() {
+		mQueryCache = null;
+	}
+	
+	/**
+	 * @return The {@link QueryCache} or <code>null</code> if it is not enabled.
+	 */
+	public QueryCache getQueryCache() {
+		return mQueryCache;
+	}
+	
+	/**
+	 * Drops all cached results read from the table. The table is dropped
+	 * again, when the write lock is released, so that results of queries 
+	 * run by other threads before the changes have been committed are 
+	 * not kept either.
+	 * 
+	 * @param table	Name of the table or <code>null</code> if unknown.
+	 */
+	private void written(String table) {
+		QueryCache cache = mQueryCache;
+		
+		if(cache == null) {
+			return;
+		}
+		
+		if(table == null || table.length() == 0) {
+			cache.clear();
+		} else {
+			cache.invalidate(table);
+		}
+		
+		if(mWriteLock.isHeldByCurrentThread()) {
+			mWrittenTables.add(table == null ? "" : table);
+		}
+	}
+	
 	/**
 	 * Delete one object or a set of objects from a specific table.
 	 * 
@@ -115,11 +501,75 @@ public class DatabaseAdapter {
 	 * @return	Number of affected rows.
 	 */
 	public int delete(String table, Where where) {
+		List<String> args = new ArrayList<String>();
+		String whereClause = getWhereClause(where, args);
+		
+		beginWrite();
 		open();	
-		int affectedRows = mDb.delete(table, where.toString().replace(" WHERE ", ""), null);
-		close();
 		
-		return affectedRows;
+		try {
+			written(table);
+			
+			return mDb.delete(table, whereClause, toArgs(args));
+		} finally {
+			close();
+			endWrite();
+		}
+	}
+	
+	/**
+	 * Deletes all rows of a table, that are selected by the given query, 
+	 * using one single DELETE statement. 
+	 * 
+	 * @param table		Name of the table to delete from.
+	 * @param query		{@link SelectStatement} selecting rows of that table.
+	 * @return	Number of affected rows.
+	 */
+	public int delete(String table, SelectStatement query) {
+		return delete(table, query, null);
+	}
+	
+	/**
+	 * See {@link DatabaseAdapter#delete(String, SelectStatement)}. If a
+	 * list is given, the ids of the rows are read before they are 
+	 * deleted, while the write lock is held, so that they match the 
+	 * deleted rows. 
+	 * 
+	 * @param table		Name of the table to delete from.
+	 * @param query		{@link SelectStatement} selecting rows of that table.
+	 * @param ids		{@link List} to add the ids of the deleted rows to 
+	 * 					or <code>null</code>.
+	 * @return	Number of affected rows.
+	 */
+	public int delete(String table, SelectStatement query, List<Integer> ids) {
+		List<String> args = new ArrayList<String>();
+		String select = "SELECT `" + Model.PK + "` FROM (" + query.toSQL(args) + ")";
+		String sql = "DELETE FROM `" + table + "` WHERE `" + Model.PK + "` IN (" + select + ")";
+		
+		beginWrite();
+		open();
+		
+		try {
+			if(ids != null) {
+				Cursor c = mDb.rawQuery(select, toArgs(args));
+				
+				try {
+					while(c.moveToNext()) {
+						ids.add(c.getInt(0));
+					}
+				} finally {
+					c.close();
+				}
+			}
+			
+			written(table);
+			mDb.execSQL(sql, args.toArray());
+			
+			return changes();
+		} finally {
+			close();
+			endWrite();
+		}
 	}
 	
 	/**
@@ -132,18 +582,28 @@ public class DatabaseAdapter {
 	 * @return 	The number of rows affected on update, the rowId on insert, -1 on error.		
 	 */
 	public int doInsertOrUpdate(String table, ContentValues values, Where where) {
+		beginWrite();
+		
+		try {
+			written(table);
+			
+			return insertOrUpdate(table, values, where);
+		} finally {
+			endWrite();
+		}
+	}
+	
+	private int insertOrUpdate(String table, ContentValues values, Where where) {
 		int result;
 		
 		open();
 		Cursor oldVersion = get(table, where, null);
 		
 		if(oldVersion.moveToNext() && values.size() != 0) {	
-			String whereClause = null;
-			if(where != null) {
-				whereClause = where.toString().replace(" WHERE ", "");
-			}
+			List<String> args = new ArrayList<String>();
+			String whereClause = getWhereClause(where, args);
 
-			result = mDb.update(table, values, whereClause, null);
+			result = mDb.update(table, values, whereClause, toArgs(args));
 		} else {	
 			String nullColumnHack = null;
 			
@@ -162,11 +622,16 @@ public class DatabaseAdapter {
 	}
 	
 	public void reloadSchema() {
+		beginWrite();
 		open();
 		
-		mDbHelper.onCreate(mDb);
-		
-		close();
+		try {
+			written(null);
+			mDbHelper.onCreate(mDb);
+		} finally {
+			close();
+			endWrite();
+		}
 	}
 	
 	/**
@@ -180,32 +645,41 @@ public class DatabaseAdapter {
 	 * @param to	Desired name of the table. 
 	 */
 	public void renameTable(String from, String to) {
+		beginWrite();
 		open();
 		
 		try {
+			written(null);
 			mDbHelper.renameTable(mDb, from, to);
 			
 			drop(from);
-		} catch(SQLException e) {
+		} finally {
 			close();
-			
-			throw e;
+			endWrite();
 		}
-		
-		close();
 	}
 	
 	/**
 	 * Drops all tables of the current database. 
 	 */
 	public void drop() {
+		beginWrite();
 		open();
 		
-		mDbHelper.drop(mDb);		
-		
-		close();
+		try {
+			written(null);
+			releaseStatements();
+			mDbHelper.drop(mDb);
+		} finally {
+			close();
+			endWrite();
+		}
 		
 		ModelCache.reset();
+		
+		if(mIdentityMap != null) {
+			mIdentityMap.clear();
+		}
 	}
 	
 	/**
@@ -214,25 +688,42 @@ public class DatabaseAdapter {
 	 * @param 	tableName	Name of the table to drop.
 	 */
 	public void drop(String tableName) {
+		String sql = "DROP TABLE IF EXISTS `" + tableName + "`;";
+		
+		beginWrite();
 		open();
 		
-		String sql = "DROP TABLE IF EXISTS `" + tableName + "`;";
-		mDb.execSQL(sql);
+		try {
+			written(null);
+			releaseStatements();
+			mDb.execSQL(sql);
+		} finally {
+			close();
+			endWrite();
+		}
 		
 		ModelCache.reset(tableName);
 		
-		close();
+		if(mIdentityMap != null) {
+			mIdentityMap.clear();
+		}
 	}
 	
 	public void resetMigrations() {
+		String sql = "DROP TABLE IF EXISTS `" + DatabaseBuilder.getTableName(Migration.class) + "`;";
+		
+		beginWrite();
 		open();
 		
-		String sql = "DROP TABLE IF EXISTS `" + DatabaseBuilder.getTableName(Migration.class) + "`;";
-		mDb.execSQL(sql);
+		try {
+			written(null);
+			mDb.execSQL(sql);
+		} finally {
+			close();
+			endWrite();
+		}
 
 		ModelCache.reset(DatabaseBuilder.getTableName(Migration.class));
-		
-		close();
 	}
 	
 	/**
@@ -244,10 +735,8 @@ public class DatabaseAdapter {
 	 * @return	{@link Cursor} that represents the query result.
 	 */
 	private Cursor get(String table, Where where, Limit limit) {
-		String whereClause = null;
-		if(where != null) {
-			whereClause = where.toString().replace(" WHERE ", "");
-		} 
+		List<String> args = new ArrayList<String>();
+		String whereClause = getWhereClause(where, args);
 		
 		String limitClause = null;
 		if(limit != null) {
@@ -257,7 +746,7 @@ public class DatabaseAdapter {
 		Cursor result = mDb.query(table, 
 				null, 
 				whereClause, 
-				null, 
+				toArgs(args), 
 				null, 
 				null, 
 				null, 
@@ -266,20 +755,95 @@ public class DatabaseAdapter {
 		return result;
 	}
 	
-	public void increaseTransactionCounter() {
+	public synchronized void increaseTransactionCounter() {
+		mThreadTransactions.set(mThreadTransactions.get() + 1);
 		mRunningTransactions++;
 	}
 	
-	public void decreaseTransactionCounter() {
-		mRunningTransactions--;
+	public synchronized void decreaseTransactionCounter() {
+		int running = mThreadTransactions.get();
+		
+		if(running > 0) {
+			mThreadTransactions.set(running - 1);
+			mRunningTransactions--;
+		}
 	}
 	
-	public void resetTransactionCounter() {
-		mRunningTransactions = 0;
+	public synchronized void resetTransactionCounter() {
+		mRunningTransactions -= mThreadTransactions.get();
+		mThreadTransactions.set(0);
 	}
 	
+	/**
+	 * @return Number of transactions running on the current thread.
+	 */
 	public int runningTransactions() {
-		return mRunningTransactions;
+		return mThreadTransactions.get();
+	}
+	
+	/**
+	 * Acquires the write lock. Only one thread at a time can hold it, 
+	 * others wait until it is released by {@link DatabaseAdapter#endWrite()}.
+	 * The lock is reentrant and is also taken by 
+	 * {@link DatabaseAdapter#beginTransaction()}. 
+	 * 
+	 * @return <code>this</code> for chaining.
+	 */
+	public DatabaseAdapter beginWrite() {
+		if(!mDiagnostics) {
+			mWriteLock.lock();
+		} else if(!mWriteLock.tryLock()) {
+			Thread writer = mWriter;
+			
+			report("waiting for the write lock held by " 
+					+ (writer == null ? "another thread" : writer.getName()));
+			
+			mWriteLock.lock();
+		}
+		
+		mWriter = Thread.currentThread();
+		
+		return this;
+	}
+	
+	/**
+	 * Releases the write lock acquired by {@link DatabaseAdapter#beginWrite()}.
+	 */
+	public void endWrite() {
+		if(!mWriteLock.isHeldByCurrentThread()) {
+			report("write lock released by a thread, that does not hold it");
+			
+			return;
+		}
+		
+		if(mWriteLock.getHoldCount() == 1) {
+			mWriter = null;
+			
+			if(!mWrittenTables.isEmpty()) {
+				QueryCache cache = mQueryCache;
+				
+				for(String table : mWrittenTables) {
+					if(cache == null) {
+						break;
+					} else if(table.length() == 0) {
+						cache.clear();
+					} else {
+						cache.invalidate(table);
+					}
+				}
+				
+				mWrittenTables.clear();
+			}
+		}
+		
+		mWriteLock.unlock();
+	}
+	
+	/**
+	 * @return <code>true</code> if the current thread holds the write lock.
+	 */
+	public boolean isWriting() {
+		return mWriteLock.isHeldByCurrentThread();
 	}
 	
 	/**
@@ -287,13 +851,28 @@ public class DatabaseAdapter {
 	 * can also be nested. So in order to work properly ALWAYS acquire a
 	 * {@link DatabaseAdapter} instance via the {@link DatabaseAdapter#getInstance(Context)}
 	 * method.
+	 * <br /><br />
+	 * The write lock is held by the calling thread until the transaction
+	 * is committed or rolled back, so these calls must be done by the 
+	 * same thread. 
 	 * 
 	 * @return Current {@link DatabaseAdapter} instance.
 	 */
 	public DatabaseAdapter beginTransaction() {
-		open();
+		beginWrite();
+		
+		try {
+			open();
+			
+			mDb.beginTransactionWithListener(TransactionListener.getFor(this));
+		} catch(RuntimeException e) {
+			close();
+			endWrite();
+			
+			throw e;
+		}
 		
-		mDb.beginTransactionWithListener(TransactionListener.getFor(this));
+		mTransactionDepth++;
 		
 		return this;
 	}
@@ -304,22 +883,200 @@ public class DatabaseAdapter {
 	 * @return
 	 */
 	public DatabaseAdapter commitTransaction() {
-		mDb.setTransactionSuccessful();
-		mDb.endTransaction();
+		if(mDiagnostics && runningTransactions() == 0) {
+			report("commit without a transaction on this thread");
+		}
 		
-		close();
+		boolean committed = false;
+		
+		try {
+			mDb.setTransactionSuccessful();
+			mDb.endTransaction();
+			
+			committed = true;
+		} finally {
+			endTracking(!committed);
+			close();
+			endWrite();
+		}
 		
 		return this;
 	}
 
 	public DatabaseAdapter rollbackTransaction() {
-		mDb.endTransaction();
+		if(mDiagnostics && runningTransactions() == 0) {
+			report("rollback without a transaction on this thread");
+		}
 		
-		close();
+		try {
+			mDb.endTransaction();
+		} finally {
+			endTracking(true);
+			close();
+			endWrite();
+		}
 		
 		return this;
 	}
 	
+	/**
+	 * Remembers the state of the model before it is written, if the 
+	 * current thread runs a transaction. Should that transaction be 
+	 * rolled back, the model is reset to this state. 
+	 * 
+	 * @param model	{@link Model} about to be written.
+	 */
+	void track(Model model) {
+		if(inTransaction()) {
+			mTracked.add(new Model.State(model));
+			mDeleted.remove(model);
+		}
+	}
+	
+	/**
+	 * Defers resetting a deleted model until the transaction run by the
+	 * current thread has been committed, so that it keeps its id and 
+	 * values, if the transaction is rolled back. 
+	 * 
+	 * @param model	{@link Model}, whose row has been deleted.
+	 * @return <code>true</code> if the reset has been deferred, 
+	 * 			<code>false</code> if no transaction is running and the 
+	 * 			caller has to reset it right away.
+	 */
+	boolean trackDelete(Model model) {
+		if(inTransaction()) {
+			mDeleted.put(model, Boolean.TRUE);
+			
+			return true;
+		}
+		
+		return false;
+	}
+	
+	private boolean inTransaction() {
+		return mWriteLock.isHeldByCurrentThread() && mTransactionDepth > 0;
+	}
+	
+	/**
+	 * Ends a transaction started by {@link DatabaseAdapter#beginTransaction()}.
+	 * Once the outermost transaction ends, all models written within it
+	 * are restored, if it or any transaction nested in it failed, as 
+	 * SQLite then rolls back all of them. Otherwise the models deleted
+	 * within it are reset. 
+	 * 
+	 * @param failed	<code>true</code> if the transaction has not been
+	 * 					committed. 
+	 */
+	private void endTracking(boolean failed) {
+		if(failed) {
+			mTransactionFailed = true;
+		}
+		
+		if(mTransactionDepth > 0) {
+			mTransactionDepth--;
+		}
+		
+		if(mTransactionDepth == 0) {
+			if(mTransactionFailed) {
+				for(int i = mTracked.size() - 1; i >= 0; i--) {
+					mTracked.get(i).restore(mIdentityMap);
+				}
+			} else {
+				for(Model model : mDeleted.keySet()) {
+					model.detach(mIdentityMap);
+				}
+			}
+			
+			mTracked.clear();
+			mDeleted.clear();
+			mTransactionFailed = false;
+		}
+	}
+	
+	/**
+	 * Enables or disables the diagnostic mode. In diagnostic mode misuse
+	 * of the adapter across threads, like using a compiled statement 
+	 * without holding the write lock or waiting for a write lock held
+	 * by another thread, is logged together with a stack trace.
+	 * 
+	 * @param enabled	<code>true</code> to enable diagnostics.
+	 * @return <code>this</code> for chaining.
+	 */
+	public DatabaseAdapter setDiagnostics(boolean enabled) {
+		mDiagnostics = enabled;
+		
+		return this;
+	}
+	
+	/**
+	 * @return Number of problems reported in diagnostic mode.
+	 */
+	public synchronized int getViolations() {
+		return mViolations;
+	}
+	
+	private void report(String problem) {
+		synchronized(this) {
+			mViolations++;
+		}
+		
+		Log.w(TAG, problem + " on thread " + Thread.currentThread().getName(), 
+				new IllegalStateException(problem));
+	}
+	
+	/**
+	 * Runs all database operations of the given {@link Runnable} within
+	 * one transaction. If the runnable throws, the transaction is rolled
+	 * back and the exception is passed on. 
+	 * 
+	 * @param work	Operations to run.
+	 * @return {@link BatchResult} with the number of changed rows and 
+	 * 			the elapsed time.
+	 */
+	public BatchResult batch(Runnable work) {
+		return batch(work, new BatchResult());
+	}
+	
+	/**
+	 * See {@link DatabaseAdapter#batch(Runnable)}. The write lock is held
+	 * for the whole transaction, so that batches written by a 
+	 * {@link WriteBehind} thread are not interleaved with other writes.
+	 * 
+	 * @param work		Operations to run.
+	 * @param result	{@link BatchResult} to fill.
+	 * @return The given result.
+	 */
+	protected BatchResult batch(Runnable work, BatchResult result) {
+		long start = System.nanoTime();
+		
+		beginTransaction();
+		long changes = totalChanges();
+		
+		try {
+			work.run();
+			
+			result.setRows((int) (totalChanges() - changes));
+		} catch(RuntimeException e) {
+			rollbackTransaction();
+			
+			throw e;
+		}
+		
+		commitTransaction();
+		
+		result.setElapsed((System.nanoTime() - start) / 1000000);
+		
+		return result;
+	}
+	
+	/**
+	 * @return	Number of rows changed on the current connection since 
+	 * 			it has been opened.
+	 */
+	private long totalChanges() {
+		return getStatement("SELECT total_changes()").simpleQueryForLong();
+	}
+	
 	/**
 	 * This opens a new database connection. If a connection or database already exists
 	 * the system will ensure that getWritableDatabase() will return this Database.
@@ -330,29 +1087,139 @@ public class DatabaseAdapter {
 	 * @return this to enable chaining.
 	 * @throws SQLException
 	 */
-	public DatabaseAdapter open() throws SQLException {
-		if(mRunningTransactions == 0) {
-			mDb = mDbHelper.getWritableDatabase();
+	public synchronized DatabaseAdapter open() throws SQLException {
+		if(runningTransactions() == 0) {
+			if(mPersistent && mDb != null && mDb.isOpen()) {
+				mAvoidedOpenCount++;
+			} else {
+				mDb = mDbHelper.getWritableDatabase();
+				mOpenCount++;
+			}
+		}
+		
+		mUsers++;
+		
+		return this;
+	}
+	
+	/**
+	 * Enables write-ahead logging for all following connections, so that 
+	 * readers are no longer blocked by a running write transaction. 
+	 * This is only supported by Android 3.0 and above. Call this before 
+	 * the first connection is opened. 
+	 * 
+	 * @return <code>this</code> for chaining.
+	 */
+	public DatabaseAdapter enableWriteAheadLogging() {
+		DatabaseHelper.getProfile().setWriteAheadLogging(true);
+		
+		return this;
+	}
+	
+	/**
+	 * Sets the {@link DatabaseProfile}, that is applied to all following
+	 * connections. Call this before the first connection is opened. 
+	 * 
+	 * @param profile	{@link DatabaseProfile} instance.
+	 * @return <code>this</code> for chaining.
+	 */
+	public DatabaseAdapter setProfile(DatabaseProfile profile) {
+		DatabaseHelper.setProfile(profile);
+		
+		return this;
+	}
+	
+	/**
+	 * Moves the content of the write-ahead log back into the database 
+	 * and lets SQLite update the statistics of the query planner. Call 
+	 * this when the application is paused, so that the log does not 
+	 * grow without bounds and later opens are fast. 
+	 * <br /><br />
+	 * Nothing is done while a transaction is running on the current 
+	 * thread. 
+	 * 
+	 * @return <code>this</code> for chaining.
+	 */
+	public DatabaseAdapter checkpoint() {
+		if(runningTransactions() > 0) {
+			return this;
+		}
+		
+		beginWrite();
+		open();
+		
+		try {
+			if(DatabaseHelper.getProfile().isWriteAheadLogging()) {
+				DatabaseProfile.query(mDb, "PRAGMA wal_checkpoint(PASSIVE);");
+			}
+			
+			// ignored by SQLite versions, that don't know this pragma
+			DatabaseProfile.query(mDb, "PRAGMA optimize;");
+			
+			mCheckpoints++;
+		} catch(SQLException e) {
+			Log.w(TAG, "checkpoint failed", e);
+		} finally {
+			close();
+			endWrite();
 		}
 		
 		return this;
 	}
 	
+	/**
+	 * @return Number of checkpoints run by {@link DatabaseAdapter#checkpoint()}.
+	 */
+	public int getCheckpoints() {
+		return mCheckpoints;
+	}
+	
+	/**
+	 * Runs the given select on the database. All values of the select
+	 * are handed to the database as bind arguments, so that the SQL only 
+	 * depends on the structure of the query and its compiled form can be 
+	 * reused by the connection. 
+	 * 
+	 * @param select	{@link SelectStatement} to execute.
+	 * @return	{@link Cursor} that represents the query result.
+	 */
 	public Cursor query(SelectStatement select) {
-		return mDb.rawQuery(select.toString(), null);
+		List<String> args = new ArrayList<String>();
+		String sql = select.toSQL(args);
+		
+		return mDb.rawQuery(sql, toArgs(args));
 	}
 	
 	public Cursor query(String query) {
 		return mDb.rawQuery(query, null);
 	}
 	
+	/**
+	 * Runs the given query, binding the given arguments to its 
+	 * placeholders.
+	 * 
+	 * @param query	SQL of the query.
+	 * @param args	Values of all placeholders in order.
+	 * @return	{@link Cursor} that represents the query result.
+	 */
+	public Cursor query(String query, List<String> args) {
+		return mDb.rawQuery(query, toArgs(args));
+	}
+	
 	/**
 	 * Execute a single SQL statement that is NOT a SELECT or any other SQL statement that returns data.
 	 * 
 	 * @param query
 	 */
 	public void exec(String query) {
-		mDb.execSQL(query);
+		beginWrite();
+		
+		try {
+			written(null);
+			mDb.execSQL(query);
+		} finally {
+			endWrite();
+		}
 	}
 	
 	/**
@@ -362,11 +1229,16 @@ public class DatabaseAdapter {
 	 * @param models	{@link List} of classes inheriting from {@link Model}.
 	 */
 	public void setModels(List<Class<? extends Model>> models) {
+		beginWrite();
 		open();
 		
-		mDbHelper.setModels(mDb, models);
-		
-		close();
+		try {
+			written(null);
+			mDbHelper.setModels(mDb, models);
+		} finally {
+			close();
+			endWrite();
+		}
 		
 		// After all tables have initially been created, run the migrations 
 		// on them in order to get all of them up to date.
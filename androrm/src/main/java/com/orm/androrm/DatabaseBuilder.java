@@ -26,6 +26,8 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.orm.androrm.field.DataField;
 import com.orm.androrm.field.ForeignKeyField;
@@ -42,8 +44,38 @@ public class DatabaseBuilder {
 
 	private static final String TAG = "ANDORM:DATABASE:BUILDER";
 	
+	/**
+	 * Table names by model class. Computing them is cheap, but they are
+	 * looked up on nearly every database operation. 
+	 */
+	private static final Map<Class<?>, String> TABLE_NAMES = new ConcurrentHashMap<Class<?>, String>();
+	
 	public static final String getTableName(Class<?> clazz) {
-		return clazz.getSimpleName().toLowerCase();
+		String name = TABLE_NAMES.get(clazz);
+		
+		if(name == null) {
+			name = clazz.getSimpleName().toLowerCase();
+			TABLE_NAMES.put(clazz, name);
+		}
+		
+		return name;
+	}
+	
+	/**
+	 * See {@link TableDefinition#getColumnNames(List)}.
+	 * 
+	 * @param clazz		{@link Model} class.
+	 * @param fields	Field names of that class.
+	 * @return	{@link List} of column names.
+	 */
+	public static final <T extends Model> List<String> getColumnNames(Class<T> clazz, List<String> fields) {
+		List<TableDefinition> definitions = getTableDefinitions(clazz);
+		
+		if(definitions == null || definitions.isEmpty()) {
+			return fields;
+		}
+		
+		return definitions.get(0).getColumnNames(fields);
 	}
 	
 	protected static final<T extends Model> List<TableDefinition> getTableDefinitions(Class<T> clazz) {
@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Set;
 
 import android.content.Context;
+import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
@@ -58,6 +59,28 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 			FOREIGN_KEY_CONSTRAINTS = "OFF";
 		}
 	}
+	/**
+	 * {@link DatabaseProfile} applied on the primary connection, whenever
+	 * the database is opened. 
+	 */
+	private static DatabaseProfile PROFILE = new DatabaseProfile();
+	/**
+	 * Sets the {@link DatabaseProfile}, that is applied whenever the 
+	 * database is opened. Connections, that are already open, keep 
+	 * their settings. 
+	 * 
+	 * @param profile	{@link DatabaseProfile} instance.
+	 */
+	public static final void setProfile(DatabaseProfile profile) {
+		if(profile == null) {
+			profile = new DatabaseProfile();
+		}
+		
+		PROFILE = profile;
+	}
+	public static final DatabaseProfile getProfile() {
+		return PROFILE;
+	}
 	/**
 	 * {@link Set} containing names of all tables, that were
 	 * created by this class.
@@ -134,6 +157,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 			for(TableDefinition definition: tableDefinitions) {
 				db.execSQL(definition.toString());
 				getTables().add(definition.getTableName());
+				
+				addIndexes(db, definition);
 			}
 		}
 		
@@ -145,6 +170,26 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 		addMigrations(db);
 	}
 	
+	/**
+	 * Creates all indexes declared on the fields of a table. As tables
+	 * of existing databases might lack columns, that will only be added
+	 * by a migration later on, failing indexes are skipped. Those have 
+	 * to be rolled out using {@link Migrator#addIndex(String...)}.
+	 * 
+	 * @param db			{@link SQLiteDatabase} instance.
+	 * @param definition	{@link TableDefinition} of the table.
+	 */
+	private void addIndexes(SQLiteDatabase db, TableDefinition definition) {
+		for(String index : definition.getIndexDefinitions()) {
+			try {
+				db.execSQL(index);
+			} catch(SQLException e) {
+				Log.w(TAG, "could not create index on table " 
+						+ definition.getTableName(), e);
+			}
+		}
+	}
+	
 	/**
 	 * Creates the internal table, that is used in order to keep track of migrations,
 	 * that were defined be a user. The migrations table is not added to the global
@@ -168,6 +213,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 		if (!db.isReadOnly()) {
 			// Enable or disable foreign key constraints
 			db.execSQL("PRAGMA foreign_keys=" + FOREIGN_KEY_CONSTRAINTS + ";");
+			
+			// Only reaches the primary connection, see DatabaseProfile
+			PROFILE.apply(db);
 		}
 	}
 
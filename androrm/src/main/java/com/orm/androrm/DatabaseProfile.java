@@ -0,0 +1,229 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.util.Log;
+
+/**
+ * Set of connection settings, that are applied every time the 
+ * {@link DatabaseHelper} opens the database. Settings, that have 
+ * not been set, are left at the defaults of SQLite. 
+ * <br /><br />
+ * Android offers no hook for the connections of its pool, so the 
+ * settings are applied to the primary connection only. That one runs
+ * all writes. With write-ahead logging enabled, queries might run on
+ * pooled read connections, which keep the defaults of SQLite for the
+ * cache size, the temporary store and memory-mapped I/O. 
+ * <br /><br />
+ * Use {@link DatabaseProfile#performance()} for a profile, that trades
+ * durability of the last commits on power loss for a lot less disk
+ * syncs on every commit. 
+ */
+public class DatabaseProfile {
+	
+	private static final String TAG = "ANDRORM:DB:PROFILE";
+	
+	public static final String SYNCHRONOUS_OFF = "OFF";
+	public static final String SYNCHRONOUS_NORMAL = "NORMAL";
+	public static final String SYNCHRONOUS_FULL = "FULL";
+	
+	/**
+	 * Default size of the page cache in kibibytes used by 
+	 * {@link DatabaseProfile#performance()}.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 2048;
+	
+	/**
+	 * Creates a profile using write-ahead logging, normal 
+	 * synchronization, a page cache of {@link DatabaseProfile#DEFAULT_CACHE_SIZE}
+	 * kibibytes and temporary tables kept in memory. 
+	 * 
+	 * @return New {@link DatabaseProfile} instance.
+	 */
+	public static final DatabaseProfile performance() {
+		return new DatabaseProfile()
+			.setWriteAheadLogging(true)
+			.setSynchronous(SYNCHRONOUS_NORMAL)
+			.setCacheSize(DEFAULT_CACHE_SIZE)
+			.setTempStoreMemory(true);
+	}
+	
+	private boolean mWriteAheadLogging;
+	private String mSynchronous;
+	/**
+	 * Size of the page cache in kibibytes. 0 if not set.
+	 */
+	private int mCacheSize;
+	private boolean mTempStoreMemory;
+	/**
+	 * Maximum number of bytes used for memory-mapped I/O. 0 if not set.
+	 */
+	private long mMmapSize;
+	
+	/**
+	 * Enables write-ahead logging, so that readers are no longer blocked
+	 * by a running write transaction. This is only supported by Android 
+	 * 3.0 and above.
+	 * 
+	 * @param enabled	<code>true</code> to enable write-ahead logging.
+	 * @return <code>this</code> for chaining.
+	 */
+	public DatabaseProfile setWriteAheadLogging(boolean enabled) {
+		mWriteAheadLogging = enabled;
+		
+		return this;
+	}
+	
+	/**
+	 * @param mode	One of {@link DatabaseProfile#SYNCHRONOUS_OFF}, 
+	 * 				{@link DatabaseProfile#SYNCHRONOUS_NORMAL} or 
+	 * 				{@link DatabaseProfile#SYNCHRONOUS_FULL}.
+	 * @return <code>this</code> for chaining.
+	 */
+	public DatabaseProfile setSynchronous(String mode) {
+		mSynchronous = mode;
+		
+		return this;
+	}
+	
+	/**
+	 * @param kibibytes	Size of the page cache of the primary connection.
+	 * @return <code>this</code> for chaining.
+	 */
+	public DatabaseProfile setCacheSize(int kibibytes) {
+		mCacheSize = kibibytes;
+		
+		return this;
+	}
+	
+	/**
+	 * @param memory	<code>true</code> to keep temporary tables and 
+	 * 					indices in memory.
+	 * @return <code>this</code> for chaining.
+	 */
+	public DatabaseProfile setTempStoreMemory(boolean memory) {
+		mTempStoreMemory = memory;
+		
+		return this;
+	}
+	
+	/**
+	 * Enables memory-mapped I/O for up to the given number of bytes. 
+	 * SQLite versions, that don't support it, ignore this setting. 
+	 * 
+	 * @param bytes	Maximum size of the mapping. 0 to disable it.
+	 * @return <code>this</code> for chaining.
+	 */
+	public DatabaseProfile setMmapSize(long bytes) {
+		mMmapSize = bytes;
+		
+		return this;
+	}
+	
+	public boolean isWriteAheadLogging() {
+		return mWriteAheadLogging;
+	}
+	
+	public String getSynchronous() {
+		return mSynchronous;
+	}
+	
+	public int getCacheSize() {
+		return mCacheSize;
+	}
+	
+	public boolean isTempStoreMemory() {
+		return mTempStoreMemory;
+	}
+	
+	public long getMmapSize() {
+		return mMmapSize;
+	}
+	
+	/**
+	 * Applies all settings to the given connection. Pragmas only reach
+	 * the primary connection of the pool. 
+	 * 
+	 * @param db	Writable {@link SQLiteDatabase}.
+	 */
+	protected void apply(SQLiteDatabase db) {
+		if(mWriteAheadLogging) {
+			if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+				db.enableWriteAheadLogging();
+			} else {
+				Log.w(TAG, "write-ahead logging is not supported on this device");
+			}
+		}
+		
+		if(mSynchronous != null) {
+			db.execSQL("PRAGMA synchronous=" + mSynchronous + ";");
+		}
+		
+		if(mCacheSize > 0) {
+			// negative values are interpreted as kibibytes instead of pages
+			db.execSQL("PRAGMA cache_size=-" + mCacheSize + ";");
+		}
+		
+		if(mTempStoreMemory) {
+			db.execSQL("PRAGMA temp_store=MEMORY;");
+		}
+		
+		if(mMmapSize > 0) {
+			// returns the new size, so it has to be run as a query
+			query(db, "PRAGMA mmap_size=" + mMmapSize + ";");
+		}
+	}
+	
+	/**
+	 * Runs a pragma, that returns a result. 
+	 * 
+	 * @param db		{@link SQLiteDatabase} instance.
+	 * @param pragma	Pragma statement.
+	 * @return First column of the first row or <code>null</code>.
+	 */
+	static String query(SQLiteDatabase db, String pragma) {
+		Cursor c = db.rawQuery(pragma, null);
+		
+		try {
+			if(c.moveToFirst()) {
+				return c.getString(0);
+			}
+			
+			return null;
+		} finally {
+			c.close();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "wal=" + mWriteAheadLogging 
+			+ ", synchronous=" + mSynchronous 
+			+ ", cache_size=" + mCacheSize 
+			+ ", temp_store_memory=" + mTempStoreMemory 
+			+ ", mmap_size=" + mMmapSize;
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.orm.androrm.statement.SelectStatement;
+
+import android.database.Cursor;
+
+/**
+ * Computes aggregates for each value of a field over the result of a 
+ * {@link QuerySet}. See {@link QuerySet#groupBy(String)}.
+ * <br /><br />
+ * All aggregates are computed by the database. The returned maps are 
+ * keyed by the values of the grouping field in their textual form. 
+ */
+public class Grouping {
+
+	private QuerySet<?> mQuerySet;
+	private String mField;
+	
+	Grouping(QuerySet<?> querySet, String field) {
+		mQuerySet = querySet;
+		mField = field;
+	}
+	
+	private SelectStatement query(String expression) {
+		SelectStatement select = mQuerySet.selectFrom();
+		select.select("`" + mField + "`", expression + " AS " + QuerySet.AGGREGATE)
+			  .groupBy(mField);
+		
+		return select;
+	}
+	
+	/**
+	 * @return	Number of rows for each value of the field.
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, Integer> count() {
+		SelectStatement select = query("COUNT(*)");
+		long generation = mQuerySet.getCacheGeneration();
+		Map<String, Integer> cached = (Map<String, Integer>) mQuerySet.fromCache(select);
+		
+		if(cached != null) {
+			return new LinkedHashMap<String, Integer>(cached);
+		}
+		
+		Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+		Cursor c = mQuerySet.getCursor(select);
+		
+		while(c.moveToNext()) {
+			counts.put(c.getString(0), c.getInt(1));
+		}
+		
+		mQuerySet.closeConnection(c);
+		mQuerySet.toCache(select, new LinkedHashMap<String, Integer>(counts), generation);
+		
+		return counts;
+	}
+	
+	/**
+	 * @param field	Name of a numeric field of the model.
+	 * @return	Sum of the given field for each value of the grouping field.
+	 */
+	@SuppressWarnings("unchecked")
+	public Map<String, Double> sum(String field) {
+		SelectStatement select = query("SUM(`" + field + "`)");
+		long generation = mQuerySet.getCacheGeneration();
+		Map<String, Double> cached = (Map<String, Double>) mQuerySet.fromCache(select);
+		
+		if(cached != null) {
+			return new LinkedHashMap<String, Double>(cached);
+		}
+		
+		Map<String, Double> sums = new LinkedHashMap<String, Double>();
+		Cursor c = mQuerySet.getCursor(select);
+		
+		while(c.moveToNext()) {
+			sums.put(c.getString(0), c.getDouble(1));
+		}
+		
+		mQuerySet.closeConnection(c);
+		mQuerySet.toCache(select, new LinkedHashMap<String, Double>(sums), generation);
+		
+		return sums;
+	}
+}
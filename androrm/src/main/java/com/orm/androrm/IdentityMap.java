@@ -0,0 +1,266 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The identity map keeps track of all {@link Model} instances, that have
+ * been loaded from or saved to the database, keyed by their class and id.
+ * As long as an instance is reachable, loading the same row again will 
+ * return that very instance instead of creating a new one. Fields of 
+ * that instance, that have not been changed since, are refreshed from
+ * the row, so that writes, that did not go through the instance, are 
+ * not hidden by it. 
+ * <br /><br />
+ * Instances are only referenced weakly, or softly if requested, so the
+ * map never keeps otherwise unused objects alive. Use 
+ * {@link DatabaseAdapter#enableIdentityMap(boolean)} to activate it.
+ * The map can be shared by several threads. 
+ */
+public class IdentityMap {
+
+	/**
+	 * Reference to a model instance, that remembers its key, so that
+	 * cleared references can be removed from the map. 
+	 */
+	private interface Entry {
+		Model get();
+		Class<?> getModel();
+		int getId();
+	}
+	
+	private static class WeakEntry extends WeakReference<Model> implements Entry {
+		private Class<?> mModel;
+		private int mId;
+		
+		public WeakEntry(Model instance, ReferenceQueue<Model> queue) {
+			super(instance, queue);
+			
+			mModel = instance.getClass();
+			mId = instance.getId();
+		}
+		
+		public Class<?> getModel() {
+			return mModel;
+		}
+		
+		public int getId() {
+			return mId;
+		}
+	}
+	
+	private static class SoftEntry extends SoftReference<Model> implements Entry {
+		private Class<?> mModel;
+		private int mId;
+		
+		public SoftEntry(Model instance, ReferenceQueue<Model> queue) {
+			super(instance, queue);
+			
+			mModel = instance.getClass();
+			mId = instance.getId();
+		}
+		
+		public Class<?> getModel() {
+			return mModel;
+		}
+		
+		public int getId() {
+			return mId;
+		}
+	}
+	
+	private Map<Class<?>, Map<Integer, Entry>> mInstances;
+	private ReferenceQueue<Model> mQueue;
+	/**
+	 * If set, instances are held by {@link SoftReference soft references}, 
+	 * that are only cleared if memory runs low. 
+	 */
+	private boolean mSoft;
+	private int mHits;
+	private int mMisses;
+	
+	public IdentityMap(boolean soft) {
+		mInstances = new HashMap<Class<?>, Map<Integer, Entry>>();
+		mQueue = new ReferenceQueue<Model>();
+		mSoft = soft;
+	}
+	
+	private Map<Integer, Entry> getInstances(Class<?> clazz) {
+		Map<Integer, Entry> instances = mInstances.get(clazz);
+		
+		if(instances == null) {
+			instances = new HashMap<Integer, Entry>();
+			mInstances.put(clazz, instances);
+		}
+		
+		return instances;
+	}
+	
+	/**
+	 * Removes all entries, whose instances have been garbage collected.
+	 */
+	private void expunge() {
+		Reference<? extends Model> reference;
+		
+		while((reference = mQueue.poll()) != null) {
+			Entry entry = (Entry) reference;
+			Map<Integer, Entry> instances = mInstances.get(entry.getModel());
+			
+			if(instances != null && instances.get(entry.getId()) == entry) {
+				instances.remove(entry.getId());
+			}
+		}
+	}
+	
+	/**
+	 * Looks up the instance of the given class with the given id. 
+	 * 
+	 * @param clazz	{@link Model} class.
+	 * @param id	Id of the instance.
+	 * @return	The known instance or <code>null</code> if there is none.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <T extends Model> T get(Class<T> clazz, int id) {
+		expunge();
+		
+		Map<Integer, Entry> instances = mInstances.get(clazz);
+		Model instance = null;
+		
+		if(instances != null) {
+			Entry entry = instances.get(id);
+			
+			if(entry != null) {
+				instance = entry.get();
+			}
+		}
+		
+		if(instance != null && instance.getId() == id) {
+			mHits++;
+			
+			return (T) instance;
+		}
+		
+		mMisses++;
+		return null;
+	}
+	
+	/**
+	 * Registers an instance with the map. Instances without an id
+	 * are ignored. 
+	 * 
+	 * @param instance	{@link Model} instance.
+	 */
+	public synchronized void put(Model instance) {
+		if(instance == null || instance.getId() == 0) {
+			return;
+		}
+		
+		expunge();
+		
+		Entry entry;
+		
+		if(mSoft) {
+			entry = new SoftEntry(instance, mQueue);
+		} else {
+			entry = new WeakEntry(instance, mQueue);
+		}
+		
+		getInstances(instance.getClass()).put(instance.getId(), entry);
+	}
+	
+	/**
+	 * Removes the instance of the given class with the given id. 
+	 * 
+	 * @param clazz	{@link Model} class.
+	 * @param id	Id of the instance.
+	 */
+	public synchronized void remove(Class<?> clazz, int id) {
+		Map<Integer, Entry> instances = mInstances.get(clazz);
+		
+		if(instances != null) {
+			instances.remove(id);
+		}
+	}
+	
+	/**
+	 * Removes all instances of the given class. 
+	 * 
+	 * @param clazz {@link Model} class.
+	 */
+	public synchronized void remove(Class<?> clazz) {
+		mInstances.remove(clazz);
+	}
+	
+	/**
+	 * Forgets all instances. 
+	 */
+	public synchronized void clear() {
+		mInstances.clear();
+		
+		while(mQueue.poll() != null);
+	}
+	
+	/**
+	 * @return Number of entries currently held. Entries of instances, that
+	 * 			have just been garbage collected may still be counted.
+	 */
+	public synchronized int size() {
+		expunge();
+		
+		int size = 0;
+		
+		for(Map<Integer, Entry> instances : mInstances.values()) {
+			size += instances.size();
+		}
+		
+		return size;
+	}
+	
+	/**
+	 * @return Number of lookups, that returned a known instance.
+	 */
+	public synchronized int getHits() {
+		return mHits;
+	}
+	
+	/**
+	 * @return Number of lookups, that had to fall back to the database.
+	 */
+	public synchronized int getMisses() {
+		return mMisses;
+	}
+	
+	/**
+	 * Resets the hit and miss counters. 
+	 */
+	public synchronized void resetStatistics() {
+		mHits = 0;
+		mMisses = 0;
+	}
+}
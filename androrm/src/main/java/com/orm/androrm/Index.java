@@ -0,0 +1,113 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An {@link Index} describes a database index on one or more fields 
+ * of a {@link Model}. Indexes are declared on the leading field of the 
+ * index through {@link com.orm.androrm.field.DataField#index(String...)} 
+ * or {@link com.orm.androrm.field.DataField#unique(String...)} and are 
+ * created together with the table of the model. 
+ * <br /><br />
+ * For tables that already exist, indexes can be rolled out with 
+ * {@link com.orm.androrm.migration.Migrator#addIndex(String...)}.
+ */
+public class Index {
+
+	/**
+	 * Names of the fields covered by this index in the order 
+	 * they appear in the index.
+	 */
+	private List<String> mFields;
+	/**
+	 * Whether this index enforces unique values. 
+	 */
+	private boolean mUnique;
+	
+	public Index(String... fields) {
+		mFields = Arrays.asList(fields);
+	}
+	
+	/**
+	 * Marks this index as unique.
+	 * 
+	 * @return <code>this</code> for chaining.
+	 */
+	public Index unique() {
+		mUnique = true;
+		
+		return this;
+	}
+	
+	public boolean isUnique() {
+		return mUnique;
+	}
+	
+	public List<String> getFields() {
+		return mFields;
+	}
+	
+	/**
+	 * The name of an index is derived from the table and the fields
+	 * it covers, so that declaring the same index twice results in 
+	 * the same name. 
+	 * 
+	 * @param table	Name of the indexed table.
+	 * @return	Name of the index.
+	 */
+	public String getName(String table) {
+		String name = table;
+		
+		for(String field : mFields) {
+			name += "_" + field;
+		}
+		
+		return name + "_idx";
+	}
+	
+	/**
+	 * Creates the statement for this index.
+	 * 
+	 * @param table		Name of the indexed table.
+	 * @param columns	Columns of the fields as given by 
+	 * 					{@link com.orm.androrm.field.DataField#getColumnNames(String)}.
+	 * @return	CREATE INDEX statement.
+	 */
+	public String toSQL(String table, List<String> columns) {
+		String definition = "";
+		
+		for(String column : columns) {
+			if(definition.length() > 0) {
+				definition += ",";
+			}
+			
+			definition += "`" + column + "`";
+		}
+		
+		return "CREATE " + (mUnique ? "UNIQUE " : "") + "INDEX IF NOT EXISTS `" 
+				+ getName(table) + "` ON `" + table + "` (" + definition + ");";
+	}
+}
@@ -25,20 +25,29 @@ package com.orm.androrm;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
-import com.orm.androrm.field.AndrormField;
 import com.orm.androrm.field.DataField;
 import com.orm.androrm.field.ForeignKeyField;
 import com.orm.androrm.field.IntegerField;
 import com.orm.androrm.field.ManyToManyField;
 import com.orm.androrm.field.NoSuchFieldException;
 import com.orm.androrm.field.OneToManyField;
+import com.orm.androrm.migration.MigrationRegistry;
+import com.orm.androrm.statement.SelectStatement;
 
 
 /**
@@ -92,75 +101,49 @@ public abstract class Model {
 	
 	public static final String COUNT = "item_count";
 	
-	/**
-	 * Assigns a value gathered from the database to the
-	 * instance <code>object</b> of type T. Due to the nature
-	 * of this ORM only fields applicable for serialization
-	 * will be considered.
-	 * 
-	 * @param <T>		Type of the object.
-	 * @param field		Field of the object, that a value shall be assigned to.
-	 * @param object	Object instance of type <T>.
-	 * @param c			Database {@link Cursor}
-	 * 
-	 * @throws IllegalArgumentException
-	 * @throws IllegalAccessException
-	 */
-	private static final <T extends Model> void assignFieldValue(
+	protected static final <T extends Model> T createObject(
 			
-			Field 	field, 
-			T 		object,
-			Cursor 	c
+			Class<T> clazz,
+			Cursor	 c
 			
-	) throws IllegalArgumentException, IllegalAccessException {
-		
-		Object o = field.get(object);
+	) {
 		
-		if(o instanceof DataField) {
-			DataField<?> f = (DataField<?>) o;
+		ModelAccessor accessor = ModelAccessor.get(clazz, null);
 		
-			f.set(c, field.getName());
-		}
+		return createObject(clazz, c, accessor, accessor.resolve(c));
 	}
 	
+	/**
+	 * Creates an instance of the given class and fills it with the
+	 * data of the current row. Use this when reading multiple rows of
+	 * the same {@link Cursor}, so that the columns only need to be 
+	 * resolved once. 
+	 * 
+	 * @param clazz		{@link Model} class.
+	 * @param c			{@link Cursor} pointing at a row.
+	 * @param accessor	{@link ModelAccessor} of that class.
+	 * @param columns	Column indexes as given by {@link ModelAccessor#resolve(Cursor)}.
+	 * @return	The new instance.
+	 */
 	protected static final <T extends Model> T createObject(
 			
-			Class<T> clazz,
-			Cursor	 c
+			Class<T> 		clazz,
+			Cursor	 		c,
+			ModelAccessor 	accessor,
+			int[][] 		columns
 			
 	) {
 		
 		T object = getInstace(clazz);
 		
-		try {
-			fillUpData(object, clazz, c);
-		} catch(IllegalAccessException e) {
-			Log.e(TAG, "exception thrown while filling instance of " 
-					+ clazz.getSimpleName()
-					+ " with data.", e);
+		if(object != null) {
+			accessor.fill(object, c, columns);
+			((Model) object).mPersisted = true;
 		}
 		
 		return object;
 	}
 	
-	private static final <T extends Model> void fillUpData(
-			
-			T 			instance, 
-			Class<T> 	clazz, 
-			Cursor 		c
-			
-	) throws IllegalArgumentException, IllegalAccessException {
-		
-		if(clazz != null && clazz.isInstance(instance)) {
-			
-			for(Field field: DatabaseBuilder.getFields(clazz, instance)) {
-				assignFieldValue(field, instance, c);
-			}
-			
-			fillUpData(instance, getSuperclass(clazz), c);
-		}
-	}
-	
 	public static final <O extends Model, T extends Model> String getBackLinkFieldName(
 			
 			Class<O> originClass,
@@ -215,17 +198,30 @@ public abstract class Model {
 				+ getEligableFields(instance.getClass(), instance).toString());
 	}
 	
-	protected static final void runMigrations(Context context, List<Class<? extends Model>> models) {
+	protected static final void runMigrations(final Context context, final List<Class<? extends Model>> models) {
 		DatabaseAdapter adapter = DatabaseAdapter.getInstance(context);
-		adapter.beginTransaction();
+		// migrations are only collected here and rolled out at once 
+		// by the registry, that skips them if none has changed.
+		final MigrationRegistry registry = MigrationRegistry.begin(context);
 		
-		for(Class<? extends Model> model : models) {
-			Model instance = getInstace(model);
-			
-			instance.migrate(context);
+		try {
+			adapter.batch(new Runnable() {
+				
+				@Override
+				public void run() {
+					for(Class<? extends Model> model : models) {
+						Model instance = getInstace(model);
+						
+						instance.migrate(context);
+					}
+					
+					registry.apply();
+				}
+				
+			});
+		} finally {
+			registry.end();
 		}
-		
-		adapter.commitTransaction();
 	}
 	
 	protected static final <T extends Model> Field getField(
@@ -379,6 +375,11 @@ public abstract class Model {
 	}
 
 	protected PrimaryKeyField mId;
+	/**
+	 * Set, when the fields of this instance are known to match
+	 * the row in the database. 
+	 */
+	private boolean mPersisted;
 	
 	public Model() {
 		mId = new PrimaryKeyField();
@@ -388,28 +389,87 @@ public abstract class Model {
 		mId = new PrimaryKeyField(!suppressAutoincrement);
 	}
 	
-	private <T extends Model> void collectData(
+	/**
+	 * State of an instance before it has been written within a 
+	 * transaction. If the transaction is rolled back, the instance is
+	 * reset to it, so that it is neither considered persisted with the
+	 * id of a row, that has never been committed, nor are its changes
+	 * considered written. 
+	 */
+	static final class State {
+		
+		private final Model mModel;
+		private final int mId;
+		private final boolean mPersisted;
+		private final List<DataField<?>> mDirty;
+		
+		State(Model model) {
+			mModel = model;
+			mId = model.getId();
+			mPersisted = model.mPersisted;
+			mDirty = new ArrayList<DataField<?>>();
 			
-			Context 		context, 
-			ContentValues 	values, 
-			Class<T> 		clazz
+			ModelAccessor accessor = ModelAccessor.get(model.getClass(), model);
 			
-	) throws IllegalArgumentException, IllegalAccessException {
-		
-		if(clazz != null && clazz.isInstance(this)) {
-			for(Field field: DatabaseBuilder.getFields(clazz, this)) {
-				Object o = field.get(this);
-				String fieldName = field.getName();
+			for(int i = 0, size = accessor.size(); i < size; i++) {
+				DataField<?> f = accessor.getField(model, i);
 				
-				putValue(o, fieldName, values);
+				if(f != null && f.isDirty()) {
+					mDirty.add(f);
+				}
+			}
+		}
+		
+		void restore(IdentityMap identities) {
+			int id = mModel.getId();
+			
+			if(identities != null && id != 0 && id != mId) {
+				identities.remove(mModel.getClass(), id);
 			}
 			
-			collectData(context, values, getSuperclass(clazz));
+			mModel.mId.set(mId);
+			mModel.mPersisted = mPersisted;
+			setDirty(mDirty, true);
+		}
+	}
+	
+	/**
+	 * Gathers all {@link DataField data fields}, that need to be written
+	 * on save, together with the names of the table columns they occupy. 
+	 * The order of both lists is stable for a given class.
+	 * 
+	 * @param columns	Receives the column names.
+	 * @param fields	Receives the field instances.
+	 * @param dirty		Only gather fields, that have changed since the
+	 * 					last load or save. 
+	 */
+	private void collectFields(
+			
+			List<String> 		columns, 
+			List<DataField<?>> 	fields,
+			boolean 			dirty
+			
+	) {
+		
+		ModelAccessor accessor = ModelAccessor.get(getClass(), this);
+		
+		for(int i = 0, size = accessor.size(); i < size; i++) {
+			DataField<?> f = accessor.getField(this, i);
+			
+			if(f != null && !handledByPrimaryKey(f) && (!dirty || f.isDirty())) {
+				for(String column : accessor.getColumnNames(i)) {
+					columns.add(column);
+				}
+				
+				fields.add(f);
+			}
 		}
 	}
 	
 	public <T extends Model> boolean delete(Context context) {
 		if(getId() != 0) {
+			WriteBehind.cancel(this);
+			
 			Where where = new Where();
 			where.and(PK, getId());
 			
@@ -417,32 +477,37 @@ public abstract class Model {
 			int affectedRows = adapter.delete(DatabaseBuilder.getTableName(getClass()), where);
 			
 			if(affectedRows != 0) {
-				mId.set(0);
+				if(!adapter.trackDelete(this)) {
+					detach(adapter.getIdentityMap());
+				}
 				
-				return resetFields();
+				return true;
 			}
 		}
 		
 		return false;
 	}
 	
-	private <T extends Model> boolean resetFields() {
-		List<Field> fields = DatabaseBuilder.getFields(getClass(), this);
-		
-		try {
-			for(Field field : fields) {
-				Object o = field.get(this);
-				
-				if(o instanceof AndrormField) {
-					AndrormField f = (AndrormField) o;
-					f.reset();
-				}
-			}
-			
-			return true;
-		} catch(IllegalAccessException e) {
-			return false;
+	/**
+	 * Resets this instance, once its row has been deleted. 
+	 * 
+	 * @param identities	{@link IdentityMap} or <code>null</code>.
+	 */
+	void detach(IdentityMap identities) {
+		if(identities != null) {
+			identities.remove(getClass(), getId());
 		}
+		
+		mId.set(0);
+		mPersisted = false;
+		
+		resetFields();
+	}
+	
+	private boolean resetFields() {
+		ModelAccessor.get(getClass(), this).reset(this);
+		
+		return true;
 	}
 	
 	@Override
@@ -503,25 +568,56 @@ public abstract class Model {
 		}
 	}
 	
-	private void putValue(
-			
-			Object 			field, 
-			String 			fieldName, 
-			ContentValues 	values
+	private static String buildInsert(String table, List<String> columns) {
+		if(columns.isEmpty()) {
+			// an empty row is inserted by explicitly writing NULL
+			// into the primary key column.
+			return "INSERT INTO `" + table + "` (`" + PK + "`) VALUES (NULL)";
+		}
+		
+		StringBuilder names = new StringBuilder();
+		StringBuilder params = new StringBuilder();
+		
+		for(int i = 0, length = columns.size(); i < length; i++) {
+			if(i != 0) {
+				names.append(", ");
+				params.append(", ");
+			}
 			
-	) {
+			names.append("`").append(columns.get(i)).append("`");
+			params.append("?");
+		}
+		
+		return "INSERT INTO `" + table + "` (" + names + ") VALUES (" + params + ")";
+	}
+	
+	private static String buildUpdate(String table, List<String> columns) {
+		StringBuilder assignments = new StringBuilder();
 		
-		if(field instanceof DataField
-			&& !handledByPrimaryKey(field)) {
+		for(int i = 0, length = columns.size(); i < length; i++) {
+			if(i != 0) {
+				assignments.append(", ");
+			}
 			
-			DataField<?> f = (DataField<?>) field;
-			f.putData(fieldName, values);
+			assignments.append("`").append(columns.get(i)).append("` = ?");
+		}
+		
+		return "UPDATE `" + table + "` SET " + assignments + " WHERE `" + PK + "` = ?";
+	}
+	
+	private static int bindFields(SQLiteStatement statement, List<DataField<?>> fields) {
+		int index = 1;
+		
+		for(DataField<?> field : fields) {
+			index = field.bind(statement, index);
 		}
+		
+		return index;
 	}
 	
 	public boolean save(Context context) {
 		if(mId.isAutoincrement() || getId() != 0) {
-			return save(context, getId(), new ContentValues());
+			return persist(context);
 		}
 		
 		return false;
@@ -529,46 +625,288 @@ public abstract class Model {
 	
 	public boolean save(Context context, int id) {
 		if(!mId.isAutoincrement()) {
-			mId.set(id);
+			if(id != getId()) {
+				mPersisted = false;
+			}
 			
-			ContentValues values = new ContentValues();
-			values.put(PK, id);
+			mId.set(id);
 			
-			return save(context, id, values);
+			return persist(context);
 		}
 		
 		return false;
 	}
 	
-	private <T extends Model> boolean save(
+	/**
+	 * Queues this instance to be saved by the {@link WriteBehind} writer
+	 * thread. Instances, that have not been saved before, are saved 
+	 * right away. 
+	 * 
+	 * @param context	{@link Context} of the application.
+	 */
+	public void saveAsync(Context context) {
+		WriteBehind.getInstance(context).save(this);
+	}
+	
+	/**
+	 * Queues this instance to be deleted by the {@link WriteBehind} writer
+	 * thread. 
+	 * 
+	 * @param context	{@link Context} of the application.
+	 */
+	public void deleteAsync(Context context) {
+		WriteBehind.getInstance(context).delete(this);
+	}
+	
+	/**
+	 * Saves all given models within one transaction. New instances are
+	 * grouped by their class and written with one compiled INSERT per
+	 * class. Generated ids are assigned to the instances. Instances, 
+	 * that already have an id, are saved as by {@link Model#save(Context)}.
+	 * <br /><br />
+	 * A {@link ForeignKeyField} may reference a new instance, that is 
+	 * part of the same collection. The referenced instance is saved 
+	 * first and its generated id is written into the reference. 
+	 * 
+	 * @param context	{@link Context} of the application.
+	 * @param models	Models to save. 
+	 * @return {@link BatchResult} of the writes.
+	 */
+	public static BatchResult saveAll(final Context context, Collection<? extends Model> models) {
+		final BatchResult result = new BatchResult();
+		final Set<Model> pending = Collections.newSetFromMap(new IdentityHashMap<Model, Boolean>());
+		final Map<Class<? extends Model>, List<Model>> groups = new LinkedHashMap<Class<? extends Model>, List<Model>>();
+		
+		for(Model model : models) {
+			if(model != null && pending.add(model)) {
+				List<Model> group = groups.get(model.getClass());
+				
+				if(group == null) {
+					group = new ArrayList<Model>();
+					groups.put(model.getClass(), group);
+				}
+				
+				group.add(model);
+			}
+		}
+		
+		if(pending.isEmpty()) {
+			return result;
+		}
+		
+		final DatabaseAdapter adapter = DatabaseAdapter.getInstance(context);
+		adapter.batch(new Runnable() {
 			
-			Context 		context, 
-			int 			id, 
-			ContentValues 	values
+			@Override
+			public void run() {
+				Map<Class<? extends Model>, String> inserts = new HashMap<Class<? extends Model>, String>();
+				
+				for(List<Model> group : groups.values()) {
+					for(Model model : group) {
+						model.saveInBatch(context, adapter, pending, inserts, result);
+					}
+				}
+			}
+			
+		}, result);
+		
+		return result;
+	}
+	
+	/**
+	 * Saves this instance as part of {@link Model#saveAll(Context, Collection)}.
+	 * The caller holds the write lock within a transaction.
+	 * 
+	 * @param pending	Instances of the batch, that still need to be saved.
+	 * @param inserts	SQL of the INSERT statement per class.
+	 */
+	private void saveInBatch(
+			
+			Context 							context, 
+			DatabaseAdapter 					adapter,
+			Set<Model> 							pending,
+			Map<Class<? extends Model>, String> inserts,
+			BatchResult 						result
 			
 	) {
 		
-		try {
-			collectData(context, values, getClass());
-		} catch(IllegalAccessException e) {
-			Log.e(TAG, "exception thrown while gathering data from object", e);
+		if(!pending.remove(this)) {
+			// already saved as the target of a foreign key
+			return;
 		}
 		
-		Where where = new Where();
-		where.and(PK, id);
+		ModelAccessor accessor = ModelAccessor.get(getClass(), this);
+		
+		for(int i = 0, size = accessor.size(); i < size; i++) {
+			DataField<?> f = accessor.getField(this, i);
+			
+			if(f instanceof ForeignKeyField) {
+				Object target = f.get();
+				
+				if(target instanceof Model && pending.contains(target)) {
+					((Model) target).saveInBatch(context, adapter, pending, inserts, result);
+				}
+			}
+		}
+		
+		if(getId() != 0 || !mId.isAutoincrement()) {
+			boolean insert = !mPersisted;
+			
+			if(!save(context)) {
+				result.addFailure();
+			} else if(insert) {
+				result.addInsert();
+			} else {
+				result.addUpdate();
+			}
+			
+			return;
+		}
+		
+		List<String> columns = new ArrayList<String>();
+		List<DataField<?>> fields = new ArrayList<DataField<?>>();
+		collectFields(columns, fields, false);
+		
+		adapter.track(this);
+		
+		String sql = inserts.get(getClass());
+		
+		if(sql == null) {
+			sql = buildInsert(DatabaseBuilder.getTableName(getClass()), columns);
+			inserts.put(getClass(), sql);
+		}
+		
+		SQLiteStatement insert = adapter.getStatement(sql);
+		bindFields(insert, fields);
+		
+		long rowID = insert.executeInsert();
 		
-		DatabaseAdapter adapter = DatabaseAdapter.getInstance(context);
-		int rowID = adapter.doInsertOrUpdate(DatabaseBuilder.getTableName(getClass()), values, where);
-
 		if(rowID == -1) {
-			mId.set(0);
-			return false;
-		} 
+			result.addFailure();
+			
+			return;
+		}
+		
+		mId.set((int) rowID);
+		setDirty(fields, false);
+		mPersisted = true;
+		
+		IdentityMap identities = adapter.getIdentityMap();
+		
+		if(identities != null) {
+			identities.put(this);
+		}
+		
+		if(persistRelations(context)) {
+			result.addInsert();
+		} else {
+			result.addFailure();
+		}
+	}
+	
+	/**
+	 * Writes this instance to the database. Instances, that already 
+	 * have an id are updated in place. Only if that update didn't affect 
+	 * any row, or the instance has no id yet, a new row is inserted. 
+	 * Both statements are compiled once per model class and re-used
+	 * by the {@link DatabaseAdapter}.
+	 * <br /><br />
+	 * Instances, that have been loaded from or saved to the database
+	 * only update the columns of fields, that changed since. If no field
+	 * changed, the row isn't touched at all. 
+	 */
+	private boolean persist(Context context) {
+		List<String> columns = new ArrayList<String>();
+		List<DataField<?>> fields = new ArrayList<DataField<?>>();
+		
+		boolean partial = mPersisted && getId() != 0;
+		collectFields(columns, fields, partial);
+		
+		if(partial && columns.isEmpty()) {
+			return persistRelations(context);
+		}
+		
+		String table = DatabaseBuilder.getTableName(getClass());
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(context);
+		adapter.track(this);
+		
+		/*
+		 * Fields are marked clean before their values are bound, so that 
+		 * a change made by another thread in the meantime is not lost, 
+		 * but written on the next save.
+		 */
+		setDirty(fields, false);
 		
-		if(getId() == 0) {
-			mId.set(rowID);
+		adapter.beginWrite();
+		
+		try {
+			adapter.open();
+			
+			try {
+				boolean updated = false;
+				
+				if(getId() != 0) {
+					if(columns.isEmpty()) {
+						// nothing to write for an existing row
+						updated = true;
+					} else {
+						SQLiteStatement update = adapter.getStatement(buildUpdate(table, columns));
+						int index = bindFields(update, fields);
+						update.bindLong(index, getId());
+						update.execute();
+						
+						updated = adapter.changes() != 0;
+					}
+				}
+				
+				if(!updated && partial) {
+					// the row is gone, so it has to be written as a whole 
+					columns.clear();
+					fields.clear();
+					collectFields(columns, fields, false);
+					setDirty(fields, false);
+				}
+				
+				if(!updated) {
+					SQLiteStatement insert = adapter.getStatement(buildInsert(table, columns));
+					bindFields(insert, fields);
+					
+					long rowID = insert.executeInsert();
+					
+					if(rowID == -1) {
+						mId.set(0);
+						setDirty(fields, true);
+						
+						return false;
+					}
+					
+					if(getId() == 0) {
+						mId.set((int) rowID);
+					}
+					
+					IdentityMap identities = adapter.getIdentityMap();
+					
+					if(identities != null) {
+						identities.put(this);
+					}
+				}
+			} catch(RuntimeException e) {
+				setDirty(fields, true);
+				
+				throw e;
+			} finally {
+				adapter.close();
+			}
+		} finally {
+			adapter.endWrite();
 		}
 		
+		mPersisted = true;
+		
+		return persistRelations(context);
+	}
+	
+	private boolean persistRelations(Context context) {
 		try {
 			persistRelations(context, getClass());
 		} catch (Exception e) {
@@ -579,7 +917,12 @@ public abstract class Model {
 		}
 		
 		return true;
-		
+	}
+	
+	private static void setDirty(List<DataField<?>> fields, boolean dirty) {
+		for(DataField<?> field : fields) {
+			field.setDirty(dirty);
+		}
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -593,26 +936,94 @@ public abstract class Model {
 		
 		ManyToManyField<T, ?> m = (ManyToManyField<T, ?>) field;
 		List<? extends Model> targets = m.getCachedValues();
+		List<? extends Model> removed = m.getRemovedValues();
+		
+		if(targets.isEmpty() && removed.isEmpty()) {
+			return;
+		}
+		
+		String table = m.getRelationTableName();
+		String left = DatabaseBuilder.getTableName(clazz);
+		String right = DatabaseBuilder.getTableName(m.getTarget());
 		
 		DatabaseAdapter adapter = DatabaseAdapter.getInstance(context);
+		adapter.beginTransaction();
 		
-		for(Model target: targets) {
+		try {
 			/*
-			 * Only save relation to the database if the
-			 * target model has been persisted. 
+			 * Only the difference between the cached targets and the
+			 * rows of the relation table is written. 
 			 */
-			if(target.getId() != 0) {
-				ContentValues values = new ContentValues();
-				Where where = new Where();
-				where.and(DatabaseBuilder.getTableName(clazz), getId())
-					 .and(DatabaseBuilder.getTableName(m.getTarget()), target.getId());
-				
-				values.put(DatabaseBuilder.getTableName(clazz), getId());
-				values.put(DatabaseBuilder.getTableName(m.getTarget()), target.getId());
-				
-				adapter.doInsertOrUpdate(m.getRelationTableName(), values, where);
+			Set<Integer> linked = getRelatedIds(adapter, table, left, right);
+			boolean changed = false;
+			
+			for(Model target : removed) {
+				if(target.getId() != 0 && linked.remove(target.getId())) {
+					SQLiteStatement delete = adapter.getStatement("DELETE FROM `" + table + "` WHERE `" 
+							+ left + "` = ? AND `" + right + "` = ?");
+					delete.bindLong(1, getId());
+					delete.bindLong(2, target.getId());
+					delete.execute();
+					
+					changed = true;
+				}
 			}
+			
+			for(Model target : targets) {
+				/*
+				 * Only save relation to the database if the
+				 * target model has been persisted. 
+				 */
+				if(target.getId() != 0 && linked.add(target.getId())) {
+					SQLiteStatement insert = adapter.getStatement("INSERT INTO `" + table + "` (`" 
+							+ left + "`, `" + right + "`) VALUES (?, ?)");
+					insert.bindLong(1, getId());
+					insert.bindLong(2, target.getId());
+					insert.executeInsert();
+					
+					changed = true;
+				}
+			}
+			
+			removed.clear();
+			
+			if(changed) {
+				m.setPrefetched(null);
+			}
+		} catch(RuntimeException e) {
+			adapter.rollbackTransaction();
+			
+			throw e;
+		}
+		
+		adapter.commitTransaction();
+	}
+	
+	/**
+	 * @return	Ids of all targets related to this instance in the 
+	 * 			given relation table.
+	 */
+	private Set<Integer> getRelatedIds(DatabaseAdapter adapter, String table, String left, String right) {
+		Where where = new Where();
+		where.and(left, getId());
+		
+		SelectStatement select = new SelectStatement();
+		select.from(table)
+			  .select(right)
+			  .where(where);
+		
+		Set<Integer> ids = new HashSet<Integer>();
+		Cursor c = adapter.query(select);
+		
+		try {
+			while(c.moveToNext()) {
+				ids.add(c.getInt(0));
+			}
+		} finally {
+			c.close();
 		}
+		
+		return ids;
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -626,16 +1037,37 @@ public abstract class Model {
 		OneToManyField<T, ?> om = (OneToManyField<T, ?>) field;
 		List<? extends Model> targets = om.getCachedValues();
 		
-		for(Model target: targets) {
-			/*
-			 * Only save the target, if it has already been saved once to the database.
-			 * Otherwise we could save objects, that shouldn't be saved. 
-			 */
-			if(target.getId() != 0) {
-				setBackLink((T) this, (Class<T>) getClass(), (O) target, (Class<O>) target.getClass());
-				target.save(context);
+		if(targets.isEmpty()) {
+			return;
+		}
+		
+		/*
+		 * All targets are written in one transaction. Targets, that already
+		 * link to this instance and didn't change otherwise, only check 
+		 * their own relations, as their row is not touched.  
+		 */
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(context);
+		adapter.beginTransaction();
+		
+		try {
+			for(Model target: targets) {
+				/*
+				 * Only save the target, if it has already been saved once to the database.
+				 * Otherwise we could save objects, that shouldn't be saved. 
+				 */
+				if(target.getId() != 0) {
+					setBackLink((T) this, (Class<T>) getClass(), (O) target, (Class<O>) target.getClass());
+					target.save(context);
+				}
 			}
+		} catch(RuntimeException e) {
+			adapter.rollbackTransaction();
+			
+			throw e;
 		}
+		
+		adapter.commitTransaction();
+		om.setPrefetched(null);
 	}
 	
 	/**
@@ -0,0 +1,252 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import com.orm.androrm.field.AndrormField;
+import com.orm.androrm.field.DataField;
+
+/**
+ * The accessor of a model class holds all of its database fields, 
+ * including those of its superclasses, as flat arrays. It is built 
+ * once per class, so that reading and writing instances no longer 
+ * needs to walk the class hierarchy or look up columns by name for 
+ * every single row. 
+ */
+class ModelAccessor {
+
+	private static final String TAG = "ANDRORM:MODEL:ACCESSOR";
+	
+	private static final Map<Class<?>, ModelAccessor> ACCESSORS = new ConcurrentHashMap<Class<?>, ModelAccessor>();
+	
+	/**
+	 * Returns the accessor of the given class and builds it, if needed.
+	 * 
+	 * @param clazz		{@link Model} class.
+	 * @param instance	Instance of that class used to inspect the fields
+	 * 					or <code>null</code> if a new one shall be created.
+	 * @return	{@link ModelAccessor} of that class.
+	 */
+	protected static ModelAccessor get(Class<? extends Model> clazz, Model instance) {
+		ModelAccessor accessor = ACCESSORS.get(clazz);
+		
+		if(accessor == null) {
+			if(instance == null) {
+				instance = Model.getInstace(clazz);
+			}
+			
+			accessor = new ModelAccessor(clazz, instance);
+			ACCESSORS.put(clazz, accessor);
+		}
+		
+		return accessor;
+	}
+	
+	/**
+	 * All fields, that are handled by the ORM, including relations.
+	 */
+	private final Field[] mAll;
+	/**
+	 * Fields holding a {@link DataField}.
+	 */
+	private final Field[] mFields;
+	/**
+	 * Column names of each data field.
+	 */
+	private final String[][] mColumns;
+	
+	private ModelAccessor(Class<? extends Model> clazz, Model instance) {
+		List<Field> all = new ArrayList<Field>();
+		List<Field> fields = new ArrayList<Field>();
+		List<String[]> columns = new ArrayList<String[]>();
+		
+		Class<? extends Model> current = clazz;
+		
+		while(current != null && current.isInstance(instance)) {
+			for(Field field : DatabaseBuilder.getFields(current, instance)) {
+				all.add(field);
+				
+				Object o = getValue(field, instance);
+				
+				if(o instanceof DataField) {
+					fields.add(field);
+					columns.add(((DataField<?>) o).getColumnNames(field.getName()));
+				}
+			}
+			
+			current = Model.getSuperclass(current);
+		}
+		
+		mAll = all.toArray(new Field[all.size()]);
+		mFields = fields.toArray(new Field[fields.size()]);
+		mColumns = columns.toArray(new String[columns.size()][]);
+	}
+	
+	private static Object getValue(Field field, Model instance) {
+		try {
+			return field.get(instance);
+		} catch(IllegalAccessException e) {
+			Log.e(TAG, "exception thrown while accessing field " + field.getName(), e);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * @return Number of data fields. 
+	 */
+	public int size() {
+		return mFields.length;
+	}
+	
+	/**
+	 * @param index	Index of the data field. 
+	 * @return	Column names of that field.
+	 */
+	public String[] getColumnNames(int index) {
+		return mColumns[index];
+	}
+	
+	/**
+	 * @param fieldName	Name of a data field.
+	 * @return	Index of that field or -1 if there is none.
+	 */
+	public int indexOf(String fieldName) {
+		for(int i = 0; i < mFields.length; i++) {
+			if(mFields[i].getName().equals(fieldName)) {
+				return i;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * @param instance	Instance of the model class.
+	 * @param index		Index of the data field.
+	 * @return	The {@link DataField} of the instance.
+	 */
+	public DataField<?> getField(Model instance, int index) {
+		return (DataField<?>) getValue(mFields[index], instance);
+	}
+	
+	/**
+	 * Resolves the column indexes of all data fields. Do this once per
+	 * {@link Cursor} and hand the result to {@link ModelAccessor#fill(Model, Cursor, int[][])}
+	 * for each row. 
+	 * 
+	 * @param c	{@link Cursor} holding rows of the model table.
+	 * @return	Column indexes for each data field. 
+	 */
+	public int[][] resolve(Cursor c) {
+		return resolve(c, "");
+	}
+	
+	/**
+	 * Resolves the column indexes of all data fields, whose columns 
+	 * have been selected with the given prefix. 
+	 * 
+	 * @param c			{@link Cursor} holding the columns.
+	 * @param prefix	Prefix of all column names.
+	 * @return	Column indexes for each data field. 
+	 */
+	public int[][] resolve(Cursor c, String prefix) {
+		int[][] indexes = new int[mFields.length][];
+		
+		for(int i = 0; i < mFields.length; i++) {
+			String[] names = mColumns[i];
+			int[] columns = new int[names.length];
+			
+			for(int j = 0; j < names.length; j++) {
+				columns[j] = c.getColumnIndexOrThrow(prefix + names[j]);
+			}
+			
+			indexes[i] = columns;
+		}
+		
+		return indexes;
+	}
+	
+	/**
+	 * Fills the instance with the data of the current row. The fields
+	 * are marked as in sync with the database afterwards. 
+	 * 
+	 * @param instance	Instance of the model class. 
+	 * @param c			{@link Cursor} pointing at a row.
+	 * @param columns	Column indexes as returned by {@link ModelAccessor#resolve(Cursor)}.
+	 */
+	public void fill(Model instance, Cursor c, int[][] columns) {
+		for(int i = 0; i < mFields.length; i++) {
+			DataField<?> field = getField(instance, i);
+			
+			if(field != null) {
+				field.set(c, columns[i]);
+				field.setDirty(false);
+			}
+		}
+	}
+	
+	/**
+	 * Fills all fields of the instance, that have not been changed since 
+	 * they were last loaded or saved, with the data of the current row. 
+	 * Use this to bring an instance, that is already known, in sync with 
+	 * its row, without losing changes, that have not been saved yet. 
+	 * 
+	 * @param instance	Instance of the model class. 
+	 * @param c			{@link Cursor} pointing at its row.
+	 * @param columns	Column indexes as returned by {@link ModelAccessor#resolve(Cursor)}.
+	 */
+	public void refresh(Model instance, Cursor c, int[][] columns) {
+		for(int i = 0; i < mFields.length; i++) {
+			DataField<?> field = getField(instance, i);
+			
+			if(field != null && !field.isDirty()) {
+				field.set(c, columns[i]);
+				field.setDirty(false);
+			}
+		}
+	}
+	
+	/**
+	 * Resets all fields of the instance, including relations. 
+	 * 
+	 * @param instance	Instance of the model class. 
+	 */
+	public void reset(Model instance) {
+		for(Field field : mAll) {
+			Object o = getValue(field, instance);
+			
+			if(o instanceof AndrormField) {
+				((AndrormField) o).reset();
+			}
+		}
+	}
+}
@@ -2,96 +2,93 @@ package com.orm.androrm;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Caches the structure of all known models. All lookups are done by 
+ * class in constant time. The caches are safe to be used from more 
+ * than one thread. 
+ */
 public abstract class ModelCache {
 	
-	private static List<String> KNOWN_MODELS = new ArrayList<String>();
+	private static final Map<String, Boolean> KNOWN_MODELS = new ConcurrentHashMap<String, Boolean>();
 	
-	private static Map<String, List<TableDefinition>> TABLE_DEFINITIONS = new HashMap<String, List<TableDefinition>>();
+	private static final Map<Class<?>, List<TableDefinition>> TABLE_DEFINITIONS = new ConcurrentHashMap<Class<?>, List<TableDefinition>>();
 	
-	private static Map<String, List<String>> KNOWN_MODEL_FIELDS = new HashMap<String, List<String>>();
-	
-	private static Map<String, List<Field>> KNOWN_FIELD_INSTANCES = new HashMap<String, List<Field>>();
-	
-	private static Map<String, Field> FIELD_SHORTCUTS = new HashMap<String, Field>();
+	private static final Map<Class<?>, ModelMeta> MODELS = new ConcurrentHashMap<Class<?>, ModelMeta>();
 	
 	public static <T extends Model> boolean knowsModel(Class<T> clazz) {
 		return knowsModel(DatabaseBuilder.getTableName(clazz));
 	}
 	
 	public static boolean knowsModel(String modelName) {
-		return KNOWN_MODELS.contains(modelName);
+		return KNOWN_MODELS.containsKey(modelName);
 	}
 	
 	public static <T extends Model> boolean knowsFields(Class<T> clazz) {
-		if(knowsModel(clazz)) {
-			return !KNOWN_MODEL_FIELDS.get(DatabaseBuilder.getTableName(clazz)).isEmpty();
-		}
+		ModelMeta meta = getMeta(clazz);
 		
-		return false;
+		return meta != null && meta.size() > 0;
 	}
 	
-	public static <T extends Model> void addModel(Class<T> clazz) {
-		String modelName = DatabaseBuilder.getTableName(clazz);
+	/**
+	 * @param clazz	{@link Model} class.
+	 * @return	{@link ModelMeta} of that class or <code>null</code>, if its
+	 * 			fields are not known yet. 
+	 */
+	static ModelMeta getMeta(Class<?> clazz) {
+		ModelMeta meta = MODELS.get(clazz);
 		
-		if(knowsModel(modelName)) {
-			return;
+		if(meta != null && knowsModel(meta.getTableName())) {
+			return meta;
 		}
 		
-		KNOWN_MODELS.add(modelName);
-		KNOWN_MODEL_FIELDS.put(modelName, new ArrayList<String>());
-		KNOWN_MODEL_FIELDS.put(modelName, new ArrayList<String>());
+		return null;
+	}
+	
+	public static <T extends Model> void addModel(Class<T> clazz) {
+		KNOWN_MODELS.put(DatabaseBuilder.getTableName(clazz), Boolean.TRUE);
 	}
 	
 	public static <T extends Model> List<TableDefinition> getTableDefinitions(Class<T> clazz) {
 		if(knowsModel(clazz)) {
-			return TABLE_DEFINITIONS.get(DatabaseBuilder.getTableName(clazz));
+			return TABLE_DEFINITIONS.get(clazz);
 		}
 		
 		return null;
 	}
 	
 	public static <T extends Model> void setTableDefinitions(Class<T> clazz, List<TableDefinition> definitions) {
-		TABLE_DEFINITIONS.put(DatabaseBuilder.getTableName(clazz), definitions);
+		TABLE_DEFINITIONS.put(clazz, definitions);
 	}
 	
 	public static <T extends Model> void setModelFields(Class<T> clazz, List<Field> fields) {
 		if(knowsModel(clazz)) {
-			String modelName = DatabaseBuilder.getTableName(clazz);
-			
-			for(Field field : fields) {
-				String fieldName = field.getName();
-				
-				KNOWN_MODEL_FIELDS.get(modelName).add(fieldName);
-				FIELD_SHORTCUTS.put(modelName + fieldName, field);
-			}
-			
-			KNOWN_FIELD_INSTANCES.put(modelName, fields);
+			MODELS.put(clazz, new ModelMeta(DatabaseBuilder.getTableName(clazz), fields));
 		}
 	}
 	
 	public static <T extends Model> List<Field> fieldsForModel(Class<T> clazz) {
-		if(knowsModel(clazz)) {
-			return KNOWN_FIELD_INSTANCES.get(DatabaseBuilder.getTableName(clazz));
+		ModelMeta meta = getMeta(clazz);
+		
+		if(meta != null) {
+			return meta.getFields();
 		}
 		
 		return new ArrayList<Field>();
 	}
 	
 	public static <T extends Model> boolean modelHasField(Class<T> clazz, String field) {
-		if(knowsFields(clazz)) {
-			return KNOWN_MODEL_FIELDS.get(DatabaseBuilder.getTableName(clazz)).contains(field);
-		}
-		
-		return false;
+		return getField(clazz, field) != null;
 	}
 	
 	public static <T extends Model> Field getField(Class<T> clazz, String fieldName) {
-		if(knowsFields(clazz)) {
-			return FIELD_SHORTCUTS.get(DatabaseBuilder.getTableName(clazz) + fieldName);
+		ModelMeta meta = getMeta(clazz);
+		
+		if(meta != null) {
+			return meta.getField(fieldName);
 		}
 		
 		return null;
@@ -99,17 +96,23 @@ public abstract class ModelCache {
 	
 	public static void reset(String model) {
 		KNOWN_MODELS.remove(model);
-		KNOWN_FIELD_INSTANCES.remove(model);
-		KNOWN_MODEL_FIELDS.remove(model);
-		TABLE_DEFINITIONS.remove(model);
-		FIELD_SHORTCUTS.remove(model);
+		
+		for(Class<?> clazz : MODELS.keySet()) {
+			if(DatabaseBuilder.getTableName(clazz).equals(model)) {
+				MODELS.remove(clazz);
+			}
+		}
+		
+		for(Class<?> clazz : TABLE_DEFINITIONS.keySet()) {
+			if(DatabaseBuilder.getTableName(clazz).equals(model)) {
+				TABLE_DEFINITIONS.remove(clazz);
+			}
+		}
 	}
 	
 	public static void reset() {
 		KNOWN_MODELS.clear();
-		KNOWN_FIELD_INSTANCES.clear();
-		KNOWN_MODEL_FIELDS.clear();
+		MODELS.clear();
 		TABLE_DEFINITIONS.clear();
-		FIELD_SHORTCUTS.clear();
 	}
 }
@@ -0,0 +1,116 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable meta data of one model class, as gathered by the 
+ * {@link DatabaseBuilder}. It holds the database fields declared by 
+ * exactly that class, not those of its superclasses. Instances are 
+ * registered with the {@link ModelCache} once and can then safely 
+ * be shared between threads. 
+ */
+final class ModelMeta {
+
+	private final String mTableName;
+	private final Field[] mFields;
+	private final String[] mNames;
+	private final Map<String, Integer> mIndexes;
+	private final List<Field> mFieldList;
+	
+	public ModelMeta(String tableName, List<Field> fields) {
+		mTableName = tableName;
+		mFields = fields.toArray(new Field[fields.size()]);
+		mNames = new String[mFields.length];
+		
+		Map<String, Integer> indexes = new HashMap<String, Integer>();
+		
+		for(int i = 0; i < mFields.length; i++) {
+			mNames[i] = mFields[i].getName();
+			indexes.put(mNames[i], i);
+		}
+		
+		mIndexes = Collections.unmodifiableMap(indexes);
+		mFieldList = Collections.unmodifiableList(Arrays.asList(mFields));
+	}
+	
+	public String getTableName() {
+		return mTableName;
+	}
+	
+	/**
+	 * @return	Database fields declared by the class in declaration order.
+	 */
+	public List<Field> getFields() {
+		return mFieldList;
+	}
+	
+	/**
+	 * @return	Number of fields. 
+	 */
+	public int size() {
+		return mFields.length;
+	}
+	
+	/**
+	 * @param index	Index of the field.
+	 * @return	Name of that field.
+	 */
+	public String getName(int index) {
+		return mNames[index];
+	}
+	
+	/**
+	 * @param name	Name of the field.
+	 * @return	Index of that field or -1 if the class doesn't declare it.
+	 */
+	public int indexOf(String name) {
+		Integer index = mIndexes.get(name);
+		
+		if(index == null) {
+			return -1;
+		}
+		
+		return index;
+	}
+	
+	/**
+	 * @param name	Name of the field.
+	 * @return	The field or <code>null</code> if the class doesn't declare it.
+	 */
+	public Field getField(String name) {
+		int index = indexOf(name);
+		
+		if(index == -1) {
+			return null;
+		}
+		
+		return mFields[index];
+	}
+}
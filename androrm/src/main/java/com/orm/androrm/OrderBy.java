@@ -27,6 +27,7 @@ package com.orm.androrm;
  */
 public class OrderBy {
 
+	private String[] mColumns;
 	private String mOrderBy;
 	
 	/**
@@ -43,31 +44,48 @@ public class OrderBy {
 	 * @param col Name of the table column.
 	 */
 	public OrderBy(String... columns) {
+		mColumns = columns;
+		mOrderBy = build(null);
+	}
+	
+	/**
+	 * Builds the same ordering on the columns of an outer query, that 
+	 * selects from this one under the given alias. 
+	 * 
+	 * @param table	Alias of the inner query.
+	 * @return	ORDER BY clause with qualified column names.
+	 */
+	String qualify(String table) {
+		return " ORDER BY" + build(table);
+	}
+	
+	private String build(String table) {
+		String orderBy = null;
 		boolean first = true;
 		
-		for(int i = 0, length = columns.length; i < length; i++) {
-			String col = columns[i];
+		for(int i = 0, length = mColumns.length; i < length; i++) {
+			String col = mColumns[i];
 			
 			if(!first) {
-				mOrderBy += ", ";
+				orderBy += ", ";
 			} else {
-				mOrderBy = " ";
+				orderBy = " ";
 			}
 			if(col.startsWith("#")) {
 				if(col.startsWith("#-")) {
-					mOrderBy += "CAST(" +col.substring(2) + " AS INTEGER) DESC";
+					orderBy += "CAST(" + column(table, col.substring(2)) + " AS INTEGER) DESC";
 				} else if(col.startsWith("#+")) {
-					mOrderBy += "CAST(" +col.substring(2) + " AS INTEGER) ASC";
+					orderBy += "CAST(" + column(table, col.substring(2)) + " AS INTEGER) ASC";
 				} else {
-					mOrderBy += "CAST(" +col.substring(1)  + " AS INTEGER) ASC";
+					orderBy += "CAST(" + column(table, col.substring(1))  + " AS INTEGER) ASC";
 				}
 			}else{
 				if(col.startsWith("-")) {
-					mOrderBy += "UPPER(" + col.substring(1) + ") DESC";
+					orderBy += "UPPER(" + column(table, col.substring(1)) + ") DESC";
 				} else if(col.startsWith("+")) {
-					mOrderBy += "UPPER(" + col.substring(1) + ") ASC";
+					orderBy += "UPPER(" + column(table, col.substring(1)) + ") ASC";
 				} else {
-					mOrderBy += "UPPER(" + col + ") ASC";
+					orderBy += "UPPER(" + column(table, col) + ") ASC";
 				}
 			}
 			
@@ -75,6 +93,19 @@ public class OrderBy {
 				first = false;
 			}
 		}
+		
+		return orderBy;
+	}
+	
+	private static String column(String table, String col) {
+		if(table == null) {
+			return col;
+		}
+		
+		// the inner query only exposes the plain column names
+		int dot = col.lastIndexOf('.');
+		
+		return "`" + table + "`." + col.substring(dot + 1);
 	}
 	
 	@Override
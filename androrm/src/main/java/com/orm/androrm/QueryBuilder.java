@@ -23,6 +23,7 @@
 package com.orm.androrm;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -72,6 +73,16 @@ public class QueryBuilder {
 		return null;
 	}
 	
+	/**
+	 * Builds the query for the given rules. Rules on plain columns of
+	 * the model, including foreign keys, are merged into one single 
+	 * WHERE clause. Only rules that need to traverse relations are 
+	 * resolved through joins. 
+	 * 
+	 * @param clazz	Model class to query.
+	 * @param rules	{@link Rule Rules} to apply.
+	 * @return	{@link SelectStatement} selecting all matching rows of the model table.
+	 */
 	public static final <T extends Model> SelectStatement buildQuery(
 			
 			Class<T> 	clazz, 
@@ -79,7 +90,103 @@ public class QueryBuilder {
 			
 	) {
 		
-		return buildQuery(clazz, rules, 0);
+		List<Rule> plain = new ArrayList<Rule>();
+		List<Rule> related = new ArrayList<Rule>();
+		
+		T instance = Model.getInstace(clazz);
+		
+		for(Rule rule : rules) {
+			if(isPlainRule(clazz, instance, rule)) {
+				plain.add(rule);
+			} else {
+				related.add(rule);
+			}
+		}
+		
+		if(plain.isEmpty() && !related.isEmpty()) {
+			return buildQuery(clazz, related, 0);
+		}
+		
+		SelectStatement select = new SelectStatement();
+		
+		if(related.isEmpty()) {
+			select.from(DatabaseBuilder.getTableName(clazz));
+		} else {
+			select.from(buildQuery(clazz, related, 0));
+		}
+		
+		if(!plain.isEmpty()) {
+			select.where(buildWhere(plain));
+		}
+		
+		return select;
+	}
+	
+	/**
+	 * Combines the statements of all given rules by AND.
+	 * 
+	 * @param rules	Plain column {@link Rule rules}.
+	 * @return	{@link Where} clause.
+	 */
+	protected static final Where buildWhere(List<Rule> rules) {
+		Where where = new Where();
+		
+		for(Rule rule : rules) {
+			where.and(rule.getStatement());
+		}
+		
+		return where;
+	}
+	
+	/**
+	 * Checks, if a rule can be expressed as a condition on a column of
+	 * the model table itself. This is the case for all rules on a 
+	 * single {@link DataField}, which includes {@link ForeignKeyField}s.
+	 * 
+	 * @param clazz		Model class.
+	 * @param instance	Instance of that class.
+	 * @param rule		{@link Rule} to check.
+	 * @return	<code>true</code> if no join is needed for the rule.
+	 */
+	protected static final <T extends Model> boolean isPlainRule(
+			
+			Class<T> 	clazz, 
+			T 			instance, 
+			Rule 		rule
+			
+	) {
+		
+		if(instance == null || rule.getKey().contains("__")) {
+			return false;
+		}
+		
+		Object o = getFieldInstance(clazz, instance, rule.getKey());
+		
+		return !DatabaseBuilder.isRelationalField(o) 
+				|| o instanceof ForeignKeyField;
+	}
+	
+	/**
+	 * See {@link QueryBuilder#isPlainRule(Class, Model, Rule)}.
+	 * 
+	 * @return	<code>true</code> if all rules are plain rules.
+	 */
+	protected static final <T extends Model> boolean isPlain(
+			
+			Class<T> 	clazz, 
+			List<Rule> 	rules
+			
+	) {
+		
+		T instance = Model.getInstace(clazz);
+		
+		for(Rule rule : rules) {
+			if(!isPlainRule(clazz, instance, rule)) {
+				return false;
+			}
+		}
+		
+		return true;
 	}
 	
 	private static final <T extends Model> SelectStatement buildQuery(
@@ -0,0 +1,308 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The query cache keeps the results of recently run queries, keyed by
+ * their SQL and bind arguments. Every result remembers the tables it 
+ * has been read from. Any write to one of these tables drops the 
+ * result, so a cached result always matches the database. 
+ * <br /><br />
+ * The cache holds a limited number of results and drops the least 
+ * recently used one, once it is full. Use 
+ * {@link DatabaseAdapter#enableQueryCache(int)} to activate it. 
+ * {@link QuerySet} caches counts, aggregates and values, but never 
+ * model instances. 
+ */
+public class QueryCache {
+
+	/**
+	 * Default number of results held by the cache. 
+	 */
+	public static final int DEFAULT_SIZE = 64;
+	
+	private static final class Entry {
+		private final Object mValue;
+		private final Set<String> mTables;
+		
+		private Entry(Object value, Set<String> tables) {
+			mValue = value;
+			mTables = tables;
+		}
+	}
+	
+	private final int mSize;
+	private final LinkedHashMap<String, Entry> mEntries;
+	/**
+	 * Keys of all cached results by the tables they depend on. 
+	 */
+	private final Map<String, Set<String>> mKeys;
+	/**
+	 * Incremented on every invalidation. Results of queries, that 
+	 * have been started before, are not stored. 
+	 */
+	private long mGeneration;
+	
+	private int mHits;
+	private int mMisses;
+	private int mEvictions;
+	private int mInvalidations;
+	
+	public QueryCache(int size) {
+		mSize = Math.max(1, size);
+		mEntries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+		mKeys = new HashMap<String, Set<String>>();
+	}
+	
+	/**
+	 * Creates the key of a query. 
+	 * 
+	 * @param sql	SQL of the query.
+	 * @param args	Bind arguments of the query.
+	 * @return	Key with all whitespace collapsed.
+	 */
+	static String key(String sql, List<String> args) {
+		StringBuilder key = new StringBuilder(sql.length() + args.size() * 8);
+		boolean space = false;
+		
+		for(int i = 0, length = sql.length(); i < length; i++) {
+			char c = sql.charAt(i);
+			
+			if(Character.isWhitespace(c)) {
+				space = key.length() > 0;
+			} else {
+				if(space) {
+					key.append(' ');
+					space = false;
+				}
+				
+				key.append(c);
+			}
+		}
+		
+		for(String arg : args) {
+			key.append('\u0000').append(arg);
+		}
+		
+		return key.toString();
+	}
+	
+	/**
+	 * Determines the table changed by a statement. 
+	 * 
+	 * @param sql	SQL of a statement.
+	 * @return	Name of the changed table, an empty string if the 
+	 * 			statement changes data, but its table is unknown, or 
+	 * 			<code>null</code> if it doesn't change any data.
+	 */
+	static String getWrittenTable(String sql) {
+		String statement = sql.trim();
+		
+		if(statement.regionMatches(true, 0, "SELECT", 0, 6)) {
+			return null;
+		}
+		
+		if(statement.regionMatches(true, 0, "INSERT", 0, 6)
+				|| statement.regionMatches(true, 0, "UPDATE", 0, 6)
+				|| statement.regionMatches(true, 0, "DELETE", 0, 6)
+				|| statement.regionMatches(true, 0, "REPLACE", 0, 7)) {
+			
+			int start = statement.indexOf('`');
+			int end = start == -1 ? -1 : statement.indexOf('`', start + 1);
+			
+			if(end != -1) {
+				return statement.substring(start + 1, end);
+			}
+		}
+		
+		return "";
+	}
+	
+	/**
+	 * @return	Current generation of the cache. Hand it to 
+	 * 			{@link QueryCache#put(String, Set, Object, long)}.
+	 */
+	public synchronized long getGeneration() {
+		return mGeneration;
+	}
+	
+	/**
+	 * @param key	Key of the query.
+	 * @return	Cached result or <code>null</code> if there is none.
+	 */
+	public synchronized Object get(String key) {
+		Entry entry = mEntries.get(key);
+		
+		if(entry == null) {
+			mMisses++;
+			
+			return null;
+		}
+		
+		mHits++;
+		
+		return entry.mValue;
+	}
+	
+	/**
+	 * Stores the result of a query. The result is dropped, if any table
+	 * has been written since the given generation. 
+	 * 
+	 * @param key			Key of the query.
+	 * @param tables		Tables the query reads from.
+	 * @param value			Result of the query.
+	 * @param generation	Generation of the cache, before the query
+	 * 						has been run. 
+	 */
+	public synchronized void put(String key, Set<String> tables, Object value, long generation) {
+		if(generation != mGeneration || value == null) {
+			return;
+		}
+		
+		remove(key);
+		mEntries.put(key, new Entry(value, tables));
+		
+		for(String table : tables) {
+			Set<String> keys = mKeys.get(table);
+			
+			if(keys == null) {
+				keys = new HashSet<String>();
+				mKeys.put(table, keys);
+			}
+			
+			keys.add(key);
+		}
+		
+		while(mEntries.size() > mSize) {
+			Iterator<String> eldest = mEntries.keySet().iterator();
+			remove(eldest.next());
+			mEvictions++;
+		}
+	}
+	
+	private void remove(String key) {
+		Entry entry = mEntries.remove(key);
+		
+		if(entry != null) {
+			for(String table : entry.mTables) {
+				Set<String> keys = mKeys.get(table);
+				
+				if(keys != null) {
+					keys.remove(key);
+					
+					if(keys.isEmpty()) {
+						mKeys.remove(table);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Drops all results read from the given table. 
+	 * 
+	 * @param table	Name of the table.
+	 */
+	public synchronized void invalidate(String table) {
+		mGeneration++;
+		
+		Set<String> keys = mKeys.remove(table);
+		
+		if(keys != null) {
+			for(String key : keys.toArray(new String[keys.size()])) {
+				remove(key);
+				mInvalidations++;
+			}
+		}
+	}
+	
+	/**
+	 * Drops all results. 
+	 */
+	public synchronized void clear() {
+		mGeneration++;
+		mInvalidations += mEntries.size();
+		
+		mEntries.clear();
+		mKeys.clear();
+	}
+	
+	/**
+	 * @return Number of cached results.
+	 */
+	public synchronized int size() {
+		return mEntries.size();
+	}
+	
+	/**
+	 * @return Number of queries answered by the cache.
+	 */
+	public synchronized int getHits() {
+		return mHits;
+	}
+	
+	/**
+	 * @return Number of queries, that had to be run on the database.
+	 */
+	public synchronized int getMisses() {
+		return mMisses;
+	}
+	
+	/**
+	 * @return Share of queries answered by the cache between 0 and 1.
+	 */
+	public synchronized double getHitRate() {
+		int total = mHits + mMisses;
+		
+		return total == 0 ? 0 : (double) mHits / total;
+	}
+	
+	/**
+	 * @return Number of results dropped, because the cache was full.
+	 */
+	public synchronized int getEvictions() {
+		return mEvictions;
+	}
+	
+	/**
+	 * @return Number of results dropped, because their tables changed.
+	 */
+	public synchronized int getInvalidations() {
+		return mInvalidations;
+	}
+	
+	public synchronized void resetStatistics() {
+		mHits = 0;
+		mMisses = 0;
+		mEvictions = 0;
+		mInvalidations = 0;
+	}
+}
@@ -25,7 +25,9 @@ package com.orm.androrm;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.orm.androrm.field.NoSuchFieldException;
 import com.orm.androrm.statement.InStatement;
@@ -42,10 +44,31 @@ import android.os.Debug;
  */
 public class QuerySet<T extends Model> implements Iterable<T> {
 
+	/**
+	 * Alias of the result column of aggregate queries.
+	 */
+	static final String AGGREGATE = "aggregate";
+	
 	private SelectStatement mQuery;
 	private Class<T> mClass;
 	private List<T> mItems;
 	private DatabaseAdapter mAdapter;
+	/**
+	 * Indicates, that {@link QuerySet#mQuery} is a plain select on the 
+	 * model table, so that further plain filters can be merged into 
+	 * its WHERE clause instead of joining.
+	 */
+	private boolean mFlat;
+	/**
+	 * Names of the relations, whose targets are loaded together with 
+	 * the items of this query. 
+	 */
+	private List<String> mPrefetch;
+	/**
+	 * Names of the foreign keys, whose targets are selected together
+	 * with the items of this query. 
+	 */
+	private List<String> mRelated;
 	
 	public QuerySet(Context context, Class<T> model) {
 		mClass = model;
@@ -54,19 +77,147 @@ public class QuerySet<T extends Model> implements Iterable<T> {
 	
 	public void injectQuery(SelectStatement query) {
 		mQuery = query;
+		mFlat = false;
+	}
+	
+	/**
+	 * Hands in the items of this query, that have already been loaded
+	 * otherwise. Iterating this query returns them without querying the
+	 * database, as long as no further constraints are applied.
+	 * 
+	 * @param items	Items of this query.
+	 */
+	public void injectItems(List<T> items) {
+		mItems = items;
+	}
+	
+	/**
+	 * Loads the targets of the given many-to-many or one-to-many 
+	 * relations for all items of 
+	 * this query at once, instead of running one query per item, when 
+	 * the relation is read. 
+	 * 
+	 * @param fields	Names of the relation fields.
+	 * @return	<code>this</code> for chaining.
+	 */
+	public QuerySet<T> prefetchRelated(String... fields) {
+		if(mPrefetch == null) {
+			mPrefetch = new ArrayList<String>();
+		}
+		
+		for(String field : fields) {
+			mPrefetch.add(field);
+		}
+		
+		mItems = null;
+		
+		return this;
+	}
+
+	/**
+	 * Selects the targets of the given foreign keys together with the
+	 * items of this query using one LEFT JOIN per foreign key. Reading
+	 * the foreign key of an item afterwards doesn't query the database.
+	 * 
+	 * @param fields	Names of the foreign key fields.
+	 * @return	<code>this</code> for chaining.
+	 */
+	public QuerySet<T> selectRelated(String... fields) {
+		if(mRelated == null) {
+			mRelated = new ArrayList<String>();
+		}
+		
+		for(String field : fields) {
+			mRelated.add(field);
+		}
+		
+		mItems = null;
+		
+		return this;
 	}
 
-	private Cursor getCursor(SelectStatement query) {
+	Cursor getCursor(SelectStatement query) {
+		WriteBehind.flush(mClass);
+		
 		mAdapter.open();
 		return mAdapter.query(query);
 	}
 
-	private void closeConnection(Cursor c) {
+	void closeConnection(Cursor c) {
 		c.close();
 		mAdapter.close();
 	}
 	
+	/**
+	 * Flushes pending writes and returns the generation of the 
+	 * {@link QueryCache}. Call this before looking up a query. 
+	 * 
+	 * @return	Generation of the cache or -1 if it is disabled. 
+	 */
+	long getCacheGeneration() {
+		WriteBehind.flush(mClass);
+		
+		QueryCache cache = mAdapter.getQueryCache();
+		
+		if(cache != null) {
+			return cache.getGeneration();
+		}
+		
+		return -1;
+	}
+	
+	private String getCacheKey(SelectStatement query) {
+		List<String> args = new ArrayList<String>();
+		String sql = query.toSQL(args);
+		
+		return QueryCache.key(sql, args);
+	}
+	
+	/**
+	 * @param query	Query to look up. 
+	 * @return	Cached result of the query or <code>null</code> if there
+	 * 			is none or the {@link QueryCache} is disabled.
+	 */
+	Object fromCache(SelectStatement query) {
+		QueryCache cache = mAdapter.getQueryCache();
+		
+		if(cache != null) {
+			return cache.get(getCacheKey(query));
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Stores the result of a query in the {@link QueryCache}. 
+	 * 
+	 * @param query			Query, that has been run.
+	 * @param value			Result of the query. 
+	 * @param generation	See {@link QuerySet#getCacheGeneration()}.
+	 */
+	void toCache(SelectStatement query, Object value, long generation) {
+		QueryCache cache = mAdapter.getQueryCache();
+		
+		if(cache != null && generation != -1) {
+			cache.put(getCacheKey(query), query.getTables(), value, generation);
+		}
+	}
+	
+	/**
+	 * Fetches the instance with the given id. If the {@link IdentityMap} 
+	 * is enabled and already knows the row, the known instance is 
+	 * returned, refreshed from the row. The row is always read, as it 
+	 * might have been changed or deleted without going through that 
+	 * instance. 
+	 * 
+	 * @param id	{@link Model#PK} of the instance.
+	 * @return	The instance or <code>null</code> if none was found.
+	 */
 	public T get(int id) {
+		return getObject(id, mAdapter.getIdentityMap());
+	}
+	
+	private T getObject(int id, IdentityMap identities) {
 		Where where = new Where();
 		where.setStatement(new Statement(Model.PK, id));
 		
@@ -78,7 +229,12 @@ public class QuerySet<T extends Model> implements Iterable<T> {
 		mQuery.where(where);
 		
 		Cursor c = getCursor(mQuery);
-		T object = createObject(c);
+		T object = null;
+		
+		if(c.moveToNext()) {
+			object = new RowReader<T>(mClass, c, identities).read();
+		}
+		
 		closeConnection(c);
 		
 		return object;
@@ -91,6 +247,8 @@ public class QuerySet<T extends Model> implements Iterable<T> {
 				 .orderBy(columns);
 
 			mQuery = query;
+			mFlat = false;
+			mItems = null;
 		}
 		
 		return this;
@@ -99,6 +257,8 @@ public class QuerySet<T extends Model> implements Iterable<T> {
 	public QuerySet<T> distinct() {
 		if(mQuery != null) {
 			mQuery.distinct();
+			mFlat = false;
+			mItems = null;
 		}
 		
 		return this;
@@ -108,26 +268,84 @@ public class QuerySet<T extends Model> implements Iterable<T> {
 		if(mQuery == null) {
 			mQuery = new SelectStatement();
 			mQuery.from(DatabaseBuilder.getTableName(mClass));
+			mFlat = true;
 		}
 
 		return this;
 	}
 
-    // This is suboptimal, but I don't see an easy way to generate a delete statement from the current query
+	/**
+	 * Deletes all rows selected by this query with one single statement. 
+	 * The deleted rows are removed from the {@link IdentityMap}. 
+	 * <br /><br />
+	 * Unlike {@link Model#delete(Context)}, this does not reset instances
+	 * of those rows, that have already been loaded. They keep their ids
+	 * and are still considered persisted, so they must not be saved 
+	 * again, unless the rows should be written back. 
+	 * 
+	 * @param context	{@link Context} of the application.
+	 * @return	Number of deleted rows.
+	 */
 	public int delete(Context context) {
-        int count = 0;
-        for (T instance : this.toList()) {
-            instance.delete(context);
-            count++;
-        }
-        return count;
-    }
+		if(mQuery == null) {
+			return 0;
+		}
+		
+		WriteBehind.flush(mClass);
+		
+		IdentityMap identities = mAdapter.getIdentityMap();
+		List<Integer> ids = identities == null ? null : new ArrayList<Integer>();
+		int count = mAdapter.delete(DatabaseBuilder.getTableName(mClass), mQuery, ids);
+		
+		if(identities != null) {
+			for(int id : ids) {
+				identities.remove(mClass, id);
+			}
+		}
+		
+		mItems = null;
+		
+		return count;
+	}
 
+	/**
+	 * Narrows down the result of this query by the given {@link Filter}.
+	 * Filters on plain fields of the model are merged into the WHERE
+	 * clause of the current query. Only filters traversing relations 
+	 * are resolved by joining. 
+	 * 
+	 * @param filter	{@link Filter} to apply.
+	 * @return	<code>this</code> for chaining.
+	 * @throws NoSuchFieldException
+	 */
 	public QuerySet<T> filter(Filter filter) throws NoSuchFieldException {
-		SelectStatement query = QueryBuilder.buildQuery(mClass, filter.getRules());
+		List<Rule> rules = filter.getRules();
+		boolean plain = QueryBuilder.isPlain(mClass, rules);
+		
+		if(mQuery != null && mFlat && plain) {
+			Where where = mQuery.getWhere();
+			
+			if(where == null) {
+				where = new Where();
+			}
+			
+			for(Rule rule : rules) {
+				where.and(rule.getStatement());
+			}
+			
+			mQuery.where(where);
+			mItems = null;
+			
+			return this;
+		}
+		
+		mItems = null;
+		
+		SelectStatement query = QueryBuilder.buildQuery(mClass, rules);
 		
 		if(mQuery == null) {
 			mQuery = query;
+			mFlat = plain;
 		} else {
 			JoinStatement join = new JoinStatement();
 			join.left(mQuery, "left")
@@ -138,6 +356,7 @@ public class QuerySet<T extends Model> implements Iterable<T> {
 			select.from(join);
 			
 			mQuery = select;
+			mFlat = false;
 		}
 		
 		return this;
@@ -154,6 +373,8 @@ public class QuerySet<T extends Model> implements Iterable<T> {
 	public QuerySet<T> limit(Limit limit) {
 		if(mQuery != null) {
 			mQuery.limit(limit);
+			mFlat = false;
+			mItems = null;
 		}
 		
 		return this;
@@ -167,27 +388,47 @@ public class QuerySet<T extends Model> implements Iterable<T> {
 		return all().count();
 	}
 	
-	private T createObject(Cursor c) {
-		T object = null;
+	private List<T> createObjects(Cursor c) {
+		List<T> items = new ArrayList<T>();
+		RowReader<T> reader = new RowReader<T>(mClass, c, mAdapter.getIdentityMap());
 		
-		if(c.moveToNext()) {
-			object = Model.createObject(mClass, c);
+		while(c.moveToNext()) {
+			T object = reader.read();
+			
+			if(object != null) {
+				items.add(object);
+			}
 		}
 		
-		return object;
+		return items;
 	}
 	
-	private List<T> createObjects(Cursor c) {
+	private List<T> createRelatedObjects() {
+		RelatedSelect<T> related = new RelatedSelect<T>(mClass, mRelated);
+		related.flush();
+		
+		List<String> args = new ArrayList<String>();
+		String sql = related.toSQL(mQuery, args);
+		
+		WriteBehind.flush(mClass);
+		mAdapter.open();
+		
+		Cursor c = mAdapter.query(sql, args);
 		List<T> items = new ArrayList<T>();
+		IdentityMap identities = mAdapter.getIdentityMap();
+		RowReader<T> reader = new RowReader<T>(mClass, c, identities);
 		
 		while(c.moveToNext()) {
-			T object = Model.createObject(mClass, c);
+			T object = reader.read();
 			
 			if(object != null) {
+				related.read(object, c, identities);
 				items.add(object);
 			}
 		}
 		
+		closeConnection(c);
+		
 		return items;
 	}
 	
@@ -195,11 +436,19 @@ public class QuerySet<T extends Model> implements Iterable<T> {
 		if(mItems == null) {
 			mItems = new ArrayList<T>();
 			
-			if(mQuery != null) {
+			if(mQuery != null && mRelated != null) {
+				mItems.addAll(createRelatedObjects());
+			} else if(mQuery != null) {
 				Cursor c = getCursor(mQuery);
 				mItems.addAll(createObjects(c));
 				closeConnection(c);
 			}
+			
+			if(mPrefetch != null) {
+				for(String field : mPrefetch) {
+					RelationLoader.prefetch(mAdapter, mClass, mItems, field);
+				}
+			}
 		}
 		
 		return mItems;
@@ -210,11 +459,75 @@ public class QuerySet<T extends Model> implements Iterable<T> {
 		return getItems().iterator();
 	}
 	
+	/**
+	 * Callback for {@link QuerySet#forEach(Callback)}.
+	 */
+	public interface Callback<T extends Model> {
+		public void call(T item);
+	}
+	
+	/**
+	 * Executes the query and returns an iterator, that reads one row 
+	 * at a time from the database instead of loading the whole result 
+	 * up front like {@link QuerySet#iterator()} does. 
+	 * <br /><br />
+	 * The underlying {@link Cursor} is closed as soon as the last row has
+	 * been read. If you stop iterating early, call {@link CursorIterator#close()}.
+	 * 
+	 * @return {@link CursorIterator} over the result.
+	 */
+	public CursorIterator<T> stream() {
+		if(mQuery == null) {
+			all();
+		}
+		
+		WriteBehind.flush(mClass);
+		mAdapter.acquire();
+		
+		Cursor c;
+		
+		try {
+			c = mAdapter.query(mQuery);
+		} catch(RuntimeException e) {
+			mAdapter.release();
+			
+			throw e;
+		}
+		
+		return new CursorIterator<T>(mAdapter, c, 
+				new RowReader<T>(mClass, c, mAdapter.getIdentityMap()));
+	}
+	
+	/**
+	 * Hands every item of the result to the given callback, reading one
+	 * row at a time. See {@link QuerySet#stream()}.
+	 * 
+	 * @param callback	{@link Callback} to call for each item.
+	 */
+	public void forEach(Callback<T> callback) {
+		CursorIterator<T> items = stream();
+		
+		try {
+			while(items.hasNext()) {
+				callback.call(items.next());
+			}
+		} finally {
+			items.close();
+		}
+	}
+	
 	private int getCount(SelectStatement query) {
 		SelectStatement countQuery = new SelectStatement();
 		countQuery.from(query)
 			 	  .count();
 		
+		long generation = getCacheGeneration();
+		Integer cached = (Integer) fromCache(countQuery);
+		
+		if(cached != null) {
+			return cached;
+		}
+		
 		Cursor c = getCursor(countQuery);
 		
 		int count = 0;
@@ -224,6 +537,7 @@ public class QuerySet<T extends Model> implements Iterable<T> {
 		}
 		
 		closeConnection(c);
+		toCache(countQuery, count, generation);
 		
 		return count;
 	}
@@ -284,4 +598,158 @@ public class QuerySet<T extends Model> implements Iterable<T> {
 	public List<T> toList() {
 		return getItems();
 	}
+	
+	/**
+	 * Selects from the result of this query. Used to compute 
+	 * aggregates without loading any instances. 
+	 * 
+	 * @return	{@link SelectStatement} with this query as source.
+	 */
+	SelectStatement selectFrom() {
+		if(mQuery == null) {
+			all();
+		}
+		
+		SelectStatement select = new SelectStatement();
+		select.from(mQuery);
+		
+		return select;
+	}
+	
+	private double aggregate(String function, String field) {
+		SelectStatement select = selectFrom();
+		select.select(function + "(`" + field + "`) AS " + AGGREGATE);
+		
+		long generation = getCacheGeneration();
+		Double cached = (Double) fromCache(select);
+		
+		if(cached != null) {
+			return cached;
+		}
+		
+		Cursor c = getCursor(select);
+		double value = 0;
+		
+		if(c.moveToFirst() && !c.isNull(0)) {
+			value = c.getDouble(0);
+		}
+		
+		closeConnection(c);
+		toCache(select, value, generation);
+		
+		return value;
+	}
+	
+	/**
+	 * Sums up the values of the given field over the result of this 
+	 * query. The sum is computed by the database, so no instances 
+	 * are loaded. 
+	 * 
+	 * @param field	Name of a numeric field of the model.
+	 * @return	The sum or 0 if the query has no result.
+	 */
+	public double sum(String field) {
+		return aggregate("SUM", field);
+	}
+	
+	/**
+	 * See {@link QuerySet#sum(String)}.
+	 * 
+	 * @param field	Name of a numeric field of the model.
+	 * @return	The smallest value or 0 if the query has no result.
+	 */
+	public double min(String field) {
+		return aggregate("MIN", field);
+	}
+	
+	/**
+	 * See {@link QuerySet#sum(String)}.
+	 * 
+	 * @param field	Name of a numeric field of the model.
+	 * @return	The largest value or 0 if the query has no result.
+	 */
+	public double max(String field) {
+		return aggregate("MAX", field);
+	}
+	
+	/**
+	 * Groups the result of this query by the values of the given
+	 * field. Use the returned {@link Grouping} to compute aggregates 
+	 * for each group. 
+	 * 
+	 * @param field	Name of the field to group by.
+	 * @return	{@link Grouping} of this query.
+	 */
+	public Grouping groupBy(String field) {
+		return new Grouping(this, field);
+	}
+	
+	/**
+	 * Reads only the given fields of the result of this query. No 
+	 * instances are created. 
+	 * 
+	 * @param fields	Names of the fields to read.
+	 * @return	One {@link Map} per row, that maps field names to 
+	 * 			their values.
+	 */
+	public List<Map<String, String>> values(String... fields) {
+		String[] columns = new String[fields.length];
+		
+		for(int i = 0; i < fields.length; i++) {
+			columns[i] = "`" + fields[i] + "`";
+		}
+		
+		SelectStatement select = selectFrom();
+		select.select(columns);
+		
+		long generation = getCacheGeneration();
+		@SuppressWarnings("unchecked")
+		List<Map<String, String>> cached = (List<Map<String, String>>) fromCache(select);
+		
+		if(cached != null) {
+			return copy(cached);
+		}
+		
+		Cursor c = getCursor(select);
+		List<Map<String, String>> rows = new ArrayList<Map<String, String>>();
+		
+		while(c.moveToNext()) {
+			Map<String, String> row = new LinkedHashMap<String, String>();
+			
+			for(int i = 0; i < fields.length; i++) {
+				row.put(fields[i], c.getString(i));
+			}
+			
+			rows.add(row);
+		}
+		
+		closeConnection(c);
+		toCache(select, copy(rows), generation);
+		
+		return rows;
+	}
+	
+	private static List<Map<String, String>> copy(List<Map<String, String>> rows) {
+		List<Map<String, String>> copy = new ArrayList<Map<String, String>>(rows.size());
+		
+		for(Map<String, String> row : rows) {
+			copy.add(new LinkedHashMap<String, String>(row));
+		}
+		
+		return copy;
+	}
+	
+	/**
+	 * Returns the SQL, that will be executed for this query. Use this 
+	 * for debugging purposes only. 
+	 * 
+	 * @return	SQL of the query with all values inlined.
+	 */
+	public String explain() {
+		if(mQuery != null) {
+			return mQuery.toString();
+		}
+		
+		return all().explain();
+	}
 }
@@ -0,0 +1,207 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.database.Cursor;
+
+import com.orm.androrm.field.DataField;
+import com.orm.androrm.field.ForeignKeyField;
+import com.orm.androrm.field.NoSuchFieldException;
+import com.orm.androrm.statement.SelectStatement;
+
+/**
+ * Selects the targets of foreign keys together with the rows of a 
+ * query. Each target table is joined with a LEFT JOIN and its columns
+ * are selected with the name of the foreign key field as prefix, so 
+ * that both the instance and its targets are read from the same row. 
+ *
+ * @param <T>	Type of the model.
+ */
+final class RelatedSelect<T extends Model> {
+	
+	/**
+	 * Alias of the original query. 
+	 */
+	private static final String BASE = "base";
+	
+	/**
+	 * Separates the name of the foreign key from the column names of
+	 * its target.
+	 */
+	private static final String SEPARATOR = "__";
+	
+	/**
+	 * A foreign key, whose target is selected. 
+	 */
+	private static final class Related {
+		private final int mIndex;
+		private final String mColumn;
+		private final String mPrefix;
+		private final Class<? extends Model> mTarget;
+		private final ModelAccessor mAccessor;
+		private int[][] mColumns;
+		private int mPk;
+		
+		private Related(int index, String column, String prefix, Class<? extends Model> target) {
+			mIndex = index;
+			mColumn = column;
+			mPrefix = prefix;
+			mTarget = target;
+			mAccessor = ModelAccessor.get(target, null);
+		}
+	}
+	
+	private final ModelAccessor mAccessor;
+	private final List<Related> mRelated;
+	
+	/**
+	 * @param clazz		Class of the model.
+	 * @param fields	Names of {@link ForeignKeyField foreign key fields} 
+	 * 					of that class.
+	 * @throws NoSuchFieldException	If a field is no foreign key of that class.
+	 */
+	RelatedSelect(Class<T> clazz, List<String> fields) {
+		mAccessor = ModelAccessor.get(clazz, null);
+		mRelated = new ArrayList<Related>();
+		
+		T prototype = Model.getInstace(clazz);
+		
+		for(String fieldName : fields) {
+			int index = mAccessor.indexOf(fieldName);
+			DataField<?> field = index == -1 ? null : mAccessor.getField(prototype, index);
+			
+			if(!(field instanceof ForeignKeyField)) {
+				throw new NoSuchFieldException("No foreign key named " 
+						+ fieldName 
+						+ " was found in class " 
+						+ clazz.getSimpleName() 
+						+ "!");
+			}
+			
+			mRelated.add(new Related(
+					index,
+					mAccessor.getColumnNames(index)[0],
+					fieldName + SEPARATOR,
+					((ForeignKeyField<?>) field).getTarget()
+			));
+		}
+	}
+	
+	/**
+	 * Writes pending models of all target classes. 
+	 */
+	void flush() {
+		for(Related related : mRelated) {
+			WriteBehind.flush(related.mTarget);
+		}
+	}
+	
+	/**
+	 * Wraps the given query, so that it selects the targets as well. 
+	 * The ordering of the query is repeated on the outer select, as 
+	 * the joins don't keep the order of the subquery. 
+	 * 
+	 * @param query	Query of the model.
+	 * @param args	Receives the arguments of the query.
+	 * @return	SQL of the joined query.
+	 */
+	String toSQL(SelectStatement query, List<String> args) {
+		StringBuilder columns = new StringBuilder("`" + BASE + "`.*");
+		StringBuilder joins = new StringBuilder();
+		
+		for(int i = 0, size = mRelated.size(); i < size; i++) {
+			Related related = mRelated.get(i);
+			String alias = "r" + i;
+			
+			for(int j = 0, fields = related.mAccessor.size(); j < fields; j++) {
+				for(String column : related.mAccessor.getColumnNames(j)) {
+					columns.append(", `").append(alias).append("`.`").append(column)
+						   .append("` AS `").append(related.mPrefix).append(column).append("`");
+				}
+			}
+			
+			joins.append(" LEFT JOIN `").append(DatabaseBuilder.getTableName(related.mTarget))
+				 .append("` AS `").append(alias).append("` ON `")
+				 .append(alias).append("`.`").append(Model.PK).append("` = `")
+				 .append(BASE).append("`.`").append(related.mColumn).append("`");
+		}
+		
+		OrderBy ordering = query.getOrderBy();
+		
+		return "SELECT " + columns 
+				+ " FROM (" + query.toSQL(args) + ") AS `" + BASE + "`" 
+				+ joins
+				+ (ordering == null ? "" : ordering.qualify(BASE));
+	}
+	
+	/**
+	 * Creates the targets of the current row and hands them to the
+	 * foreign keys of the instance. Foreign keys without a target are
+	 * left untouched. 
+	 * 
+	 * @param object		Instance read from the current row.
+	 * @param c				{@link Cursor} of the query created by 
+	 * 						{@link RelatedSelect#toSQL(SelectStatement, List)}.
+	 * @param identities	{@link IdentityMap} or <code>null</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	void read(T object, Cursor c, IdentityMap identities) {
+		for(Related related : mRelated) {
+			if(related.mColumns == null) {
+				related.mColumns = related.mAccessor.resolve(c, related.mPrefix);
+				related.mPk = c.getColumnIndexOrThrow(related.mPrefix + Model.PK);
+			}
+			
+			if(c.isNull(related.mPk)) {
+				continue;
+			}
+			
+			Model target = null;
+			
+			if(identities != null) {
+				target = identities.get(related.mTarget, c.getInt(related.mPk));
+			}
+			
+			if(target == null) {
+				target = Model.createObject(related.mTarget, c, related.mAccessor, related.mColumns);
+				
+				if(identities != null && target != null) {
+					identities.put(target);
+				}
+			} else {
+				related.mAccessor.refresh(target, c, related.mColumns);
+			}
+			
+			ForeignKeyField<Model> field = (ForeignKeyField<Model>) mAccessor.getField(object, related.mIndex);
+			
+			// an instance, that has been changed since, keeps its reference
+			if(field != null && target != null && !field.isDirty()) {
+				field.set(target);
+				field.setDirty(false);
+			}
+		}
+	}
+}
@@ -0,0 +1,304 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import android.database.Cursor;
+
+import com.orm.androrm.field.AbstractToManyRelation;
+import com.orm.androrm.field.ManyToManyField;
+import com.orm.androrm.field.NoSuchFieldException;
+import com.orm.androrm.field.OneToManyField;
+import com.orm.androrm.statement.InStatement;
+import com.orm.androrm.statement.SelectStatement;
+
+/**
+ * Loads the targets of a to-many relation for many origins at once. 
+ * Instead of one query per origin, the ids of all origins are handed 
+ * to the database in IN clauses. The targets are handed to the 
+ * relation field of each origin by 
+ * {@link AbstractToManyRelation#setPrefetched(List)}.
+ */
+final class RelationLoader {
+	
+	/**
+	 * Maximum number of ids bound to one IN clause. SQLite limits
+	 * the number of bind arguments per statement to 999.
+	 */
+	private static final int CHUNK_SIZE = 500;
+	
+	private RelationLoader() {}
+	
+	/**
+	 * Loads the targets of the relation with the given name for all 
+	 * origins. 
+	 * 
+	 * @param adapter	{@link DatabaseAdapter} instance.
+	 * @param clazz		Class of the origins.
+	 * @param origins	Instances, whose relation shall be loaded.
+	 * @param fieldName	Name of a {@link ManyToManyField} or {@link OneToManyField}.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T extends Model> void prefetch(
+			
+			DatabaseAdapter adapter, 
+			Class<T> 		clazz, 
+			List<T> 		origins, 
+			String 			fieldName
+			
+	) {
+		
+		if(origins.isEmpty()) {
+			return;
+		}
+		
+		Field field = Model.getField(clazz, origins.get(0), fieldName);
+		AbstractToManyRelation<Model, Model> relation = getRelation(field, origins.get(0), fieldName);
+		
+		List<Object> ids = new ArrayList<Object>();
+		
+		for(T origin : origins) {
+			if(origin.getId() != 0) {
+				ids.add(origin.getId());
+			}
+		}
+		
+		Map<Integer, List<Model>> targets;
+		
+		if(relation instanceof ManyToManyField) {
+			targets = loadManyToMany(adapter, (ManyToManyField<Model, Model>) relation, ids);
+		} else {
+			targets = loadOneToMany(adapter, (OneToManyField<Model, Model>) relation, ids);
+		}
+		
+		for(T origin : origins) {
+			List<Model> values = targets.get(origin.getId());
+			
+			if(values == null) {
+				values = new ArrayList<Model>();
+			}
+			
+			getRelation(field, origin, fieldName).setPrefetched(values);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static AbstractToManyRelation<Model, Model> getRelation(
+			
+			Field 	field, 
+			Model 	origin, 
+			String 	fieldName
+			
+	) {
+		
+		Object relation;
+		
+		try {
+			relation = field.get(origin);
+		} catch(IllegalAccessException e) {
+			throw new NoSuchFieldException("Field " + fieldName + " can not be accessed!");
+		}
+		
+		if(!(relation instanceof ManyToManyField) && !(relation instanceof OneToManyField)) {
+			throw new NoSuchFieldException("Field " 
+					+ fieldName 
+					+ " of class " 
+					+ origin.getClass().getSimpleName() 
+					+ " is no to-many relation!");
+		}
+		
+		return (AbstractToManyRelation<Model, Model>) relation;
+	}
+	
+	private static Map<Integer, List<Model>> loadManyToMany(
+			
+			DatabaseAdapter 				adapter, 
+			ManyToManyField<Model, Model> 	relation, 
+			List<Object> 					ids
+			
+	) {
+		
+		String left = DatabaseBuilder.getTableName(relation.getOrigin());
+		String right = DatabaseBuilder.getTableName(relation.getTarget());
+		
+		Map<Integer, List<Integer>> links = new HashMap<Integer, List<Integer>>();
+		Set<Object> targetIds = new LinkedHashSet<Object>();
+		
+		for(List<Object> chunk : chunk(ids)) {
+			SelectStatement select = new SelectStatement();
+			select.from(relation.getRelationTableName())
+				  .select(left, right)
+				  .where(in(left, chunk));
+			
+			adapter.open();
+			Cursor c = adapter.query(select);
+			
+			try {
+				while(c.moveToNext()) {
+					int origin = c.getInt(0);
+					int target = c.getInt(1);
+					
+					List<Integer> linked = links.get(origin);
+					
+					if(linked == null) {
+						linked = new ArrayList<Integer>();
+						links.put(origin, linked);
+					}
+					
+					linked.add(target);
+					targetIds.add(target);
+				}
+			} finally {
+				c.close();
+				adapter.close();
+			}
+		}
+		
+		Map<Integer, Model> loaded = new HashMap<Integer, Model>();
+		
+		for(Model target : load(adapter, relation.getTarget(), Model.PK, new ArrayList<Object>(targetIds), null)) {
+			loaded.put(target.getId(), target);
+		}
+		
+		Map<Integer, List<Model>> targets = new HashMap<Integer, List<Model>>();
+		
+		for(Map.Entry<Integer, List<Integer>> entry : links.entrySet()) {
+			List<Model> values = new ArrayList<Model>();
+			
+			for(Integer id : entry.getValue()) {
+				Model target = loaded.get(id);
+				
+				if(target != null) {
+					values.add(target);
+				}
+			}
+			
+			targets.put(entry.getKey(), values);
+		}
+		
+		return targets;
+	}
+	
+	private static Map<Integer, List<Model>> loadOneToMany(
+			
+			DatabaseAdapter 				adapter, 
+			OneToManyField<Model, Model> 	relation, 
+			List<Object> 					ids
+			
+	) {
+		
+		String backLink = Model.getBackLinkFieldName(relation.getTarget(), relation.getOrigin());
+		Map<Integer, List<Model>> targets = new HashMap<Integer, List<Model>>();
+		
+		load(adapter, relation.getTarget(), backLink, ids, targets);
+		
+		return targets;
+	}
+	
+	/**
+	 * Loads all instances of the class, whose column holds one of the 
+	 * given values. 
+	 * 
+	 * @param groups	If given, receives the instances grouped by the 
+	 * 					value of the column.
+	 * @return	All loaded instances.
+	 */
+	private static <R extends Model> List<R> load(
+			
+			DatabaseAdapter 			adapter, 
+			Class<R> 					clazz, 
+			String 						column, 
+			List<Object> 				values,
+			Map<Integer, List<Model>> 	groups
+			
+	) {
+		
+		List<R> items = new ArrayList<R>();
+		
+		if(values.isEmpty()) {
+			return items;
+		}
+		
+		WriteBehind.flush(clazz);
+		
+		for(List<Object> chunk : chunk(values)) {
+			SelectStatement select = new SelectStatement();
+			select.from(DatabaseBuilder.getTableName(clazz))
+				  .where(in(column, chunk));
+			
+			adapter.open();
+			Cursor c = adapter.query(select);
+			
+			try {
+				RowReader<R> reader = new RowReader<R>(clazz, c, adapter.getIdentityMap());
+				int index = c.getColumnIndex(column);
+				
+				while(c.moveToNext()) {
+					R item = reader.read();
+					items.add(item);
+					
+					if(groups != null) {
+						int key = c.getInt(index);
+						List<Model> group = groups.get(key);
+						
+						if(group == null) {
+							group = new ArrayList<Model>();
+							groups.put(key, group);
+						}
+						
+						group.add(item);
+					}
+				}
+			} finally {
+				c.close();
+				adapter.close();
+			}
+		}
+		
+		return items;
+	}
+	
+	private static Where in(String column, List<Object> values) {
+		Where where = new Where();
+		where.setStatement(new InStatement(column, values));
+		
+		return where;
+	}
+	
+	private static List<List<Object>> chunk(List<Object> values) {
+		List<List<Object>> chunks = new ArrayList<List<Object>>();
+		
+		for(int i = 0, size = values.size(); i < size; i += CHUNK_SIZE) {
+			chunks.add(values.subList(i, Math.min(size, i + CHUNK_SIZE)));
+		}
+		
+		return chunks;
+	}
+}
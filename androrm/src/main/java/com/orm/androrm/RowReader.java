@@ -0,0 +1,80 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import android.database.Cursor;
+
+/**
+ * Turns the rows of a {@link Cursor} into instances of a model. The 
+ * columns of the model are resolved on the first row and re-used for 
+ * all following rows. 
+ *
+ * @param <T>	Type of the model.
+ */
+class RowReader<T extends Model> {
+	
+	private Class<T> mClass;
+	private Cursor mCursor;
+	private IdentityMap mIdentities;
+	private ModelAccessor mAccessor;
+	private int[][] mColumns;
+	private int mPk;
+	
+	public RowReader(Class<T> clazz, Cursor c, IdentityMap identities) {
+		mClass = clazz;
+		mCursor = c;
+		mIdentities = identities;
+		mAccessor = ModelAccessor.get(clazz, null);
+	}
+	
+	/**
+	 * Creates the instance for the current row. If an {@link IdentityMap} 
+	 * is given and already knows the row, the known instance is 
+	 * returned instead. Its fields, that have not been changed since, 
+	 * are refreshed from the row, as the row might have been written 
+	 * without going through that instance. 
+	 * 
+	 * @return	Instance for that row.
+	 */
+	public T read() {
+		if(mColumns == null) {
+			mColumns = mAccessor.resolve(mCursor);
+			mPk = mCursor.getColumnIndex(Model.PK);
+		}
+		
+		if(mIdentities == null || mPk == -1) {
+			return Model.createObject(mClass, mCursor, mAccessor, mColumns);
+		}
+		
+		T object = mIdentities.get(mClass, mCursor.getInt(mPk));
+		
+		if(object == null) {
+			object = Model.createObject(mClass, mCursor, mAccessor, mColumns);
+			mIdentities.put(object);
+		} else {
+			mAccessor.refresh(object, mCursor, mColumns);
+		}
+		
+		return object;
+	}
+}
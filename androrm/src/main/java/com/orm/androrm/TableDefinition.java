@@ -23,6 +23,7 @@
 package com.orm.androrm;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,12 +37,14 @@ public class TableDefinition {
 	private Map<String, DataField<?>> mFields;
 	private Map<String, ForeignKeyField<? extends Model>> mRelations;
 	private List<Class<? extends Model>> mRelationalClasses;
+	private List<Index> mIndexes;
 	
 	public TableDefinition(String tableName) {
 		mFields = new HashMap<String, DataField<?>>();
 		mRelations = new HashMap<String, ForeignKeyField<? extends Model>>();
 		mTableName = tableName;
 		mRelationalClasses = new ArrayList<Class<? extends Model>>();
+		mIndexes = new ArrayList<Index>();
 	}
 	
 	public void addField(String fieldName, DataField<?> field) {
@@ -50,6 +53,57 @@ public class TableDefinition {
 		if(field instanceof ForeignKeyField) {
 			mRelations.put(fieldName, (ForeignKeyField<?>) field);
 		}
+		
+		for(Index index : field.getIndexes()) {
+			List<String> fields = new ArrayList<String>();
+			fields.add(fieldName);
+			fields.addAll(index.getFields());
+			
+			Index definition = new Index(fields.toArray(new String[fields.size()]));
+			
+			if(index.isUnique()) {
+				definition.unique();
+			}
+			
+			mIndexes.add(definition);
+		}
+	}
+	
+	/**
+	 * Resolves the column names of the given fields. Fields, that are
+	 * not part of this table are taken as column names. 
+	 * 
+	 * @param fields	Field names.
+	 * @return	{@link List} of column names.
+	 */
+	public List<String> getColumnNames(List<String> fields) {
+		List<String> columns = new ArrayList<String>();
+		
+		for(String fieldName : fields) {
+			DataField<?> field = mFields.get(fieldName);
+			
+			if(field != null) {
+				columns.addAll(Arrays.asList(field.getColumnNames(fieldName)));
+			} else {
+				columns.add(fieldName);
+			}
+		}
+		
+		return columns;
+	}
+	
+	/**
+	 * @return	CREATE INDEX statements of all indexes declared on the 
+	 * 			fields of this table.
+	 */
+	public List<String> getIndexDefinitions() {
+		List<String> definitions = new ArrayList<String>();
+		
+		for(Index index : mIndexes) {
+			definitions.add(index.toSQL(mTableName, getColumnNames(index.getFields())));
+		}
+		
+		return definitions;
 	}
 	
 	public <T extends Model> void addRelationalClass(Class<T> clazz) {
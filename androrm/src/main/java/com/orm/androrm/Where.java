@@ -23,6 +23,7 @@
 package com.orm.androrm;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import com.orm.androrm.statement.AndStatement;
@@ -153,6 +154,21 @@ public class Where {
 		return mStatement;
 	}
 	
+	/**
+	 * See {@link Statement#toSQL(List)}.
+	 * 
+	 * @param args	Receives the bind arguments.
+	 * @return	The WHERE clause with placeholders or <code>null</code>
+	 * 			if no statement has been set.
+	 */
+	public String toSQL(List<String> args) {
+		if(mStatement != null) {
+			return " WHERE " + mStatement.toSQL(args);
+		}
+		
+		return null;
+	}
+	
 	@Override
 	public String toString() {
 		if(mStatement != null) {
@@ -0,0 +1,148 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.content.Context;
+
+/**
+ * A {@link WriteBatch} collects models, that shall be saved or deleted, 
+ * and writes all of them within one single transaction once 
+ * {@link WriteBatch#commit(Context)} is called. Models are written in 
+ * the order they have been added. Saves are done before deletes. 
+ * <br /><br />
+ * Note, that foreign keys take the id of the referenced model at the
+ * time they are set. Models, that are referenced by others in the same
+ * batch, thus need to be saved beforehand. 
+ */
+public class WriteBatch {
+
+	private List<Model> mSaves;
+	private List<Model> mDeletes;
+	
+	public WriteBatch() {
+		mSaves = new ArrayList<Model>();
+		mDeletes = new ArrayList<Model>();
+	}
+	
+	/**
+	 * Schedules the model to be saved. Adding the same instance more 
+	 * than once will only save it once. 
+	 * 
+	 * @param model	{@link Model} to save.
+	 * @return <code>this</code> for chaining.
+	 */
+	public WriteBatch save(Model model) {
+		if(!contains(mSaves, model)) {
+			mSaves.add(model);
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Schedules the model to be deleted. 
+	 * 
+	 * @param model	{@link Model} to delete.
+	 * @return <code>this</code> for chaining.
+	 */
+	public WriteBatch delete(Model model) {
+		if(!contains(mDeletes, model)) {
+			mDeletes.add(model);
+		}
+		
+		return this;
+	}
+	
+	private static boolean contains(List<Model> models, Model model) {
+		for(Model m : models) {
+			if(m == model) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * @return Number of pending writes.
+	 */
+	public int size() {
+		return mSaves.size() + mDeletes.size();
+	}
+	
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	
+	/**
+	 * Writes all pending models within one transaction and clears the 
+	 * batch afterwards. If a write throws, the whole transaction is 
+	 * rolled back and the batch is kept.
+	 * 
+	 * @param context	{@link Context} of the application.
+	 * @return {@link BatchResult} of the writes.
+	 */
+	public BatchResult commit(final Context context) {
+		final BatchResult result = new BatchResult();
+		
+		if(isEmpty()) {
+			return result;
+		}
+		
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(context);
+		adapter.batch(new Runnable() {
+			
+			@Override
+			public void run() {
+				for(Model model : mSaves) {
+					boolean insert = model.getId() == 0;
+					
+					if(!model.save(context)) {
+						result.addFailure();
+					} else if(insert) {
+						result.addInsert();
+					} else {
+						result.addUpdate();
+					}
+				}
+				
+				for(Model model : mDeletes) {
+					if(model.delete(context)) {
+						result.addDelete();
+					} else {
+						result.addFailure();
+					}
+				}
+			}
+			
+		}, result);
+		
+		mSaves.clear();
+		mDeletes.clear();
+		
+		return result;
+	}
+}
@@ -0,0 +1,491 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.content.Context;
+import android.util.Log;
+
+/**
+ * Writes models on a background thread instead of the thread, that 
+ * changed them. Models handed to {@link WriteBehind#save(Model)} or
+ * {@link WriteBehind#delete(Model)} are queued and written by one 
+ * single writer thread, that commits everything queued within a short 
+ * delay in one transaction. 
+ * <br /><br />
+ * Repeated saves of the same row are coalesced, so that only the last
+ * state is written. Models, that have not been saved yet, are written 
+ * right away, as their id is needed to tell them apart. 
+ * <br /><br />
+ * A {@link QuerySet} writes the pending models of its class, before it
+ * queries the database. Pending models of joined classes are not 
+ * written. Call {@link WriteBehind#flush()} before the application is 
+ * paused, in order not to lose any changes. 
+ * <br /><br />
+ * If a write fails, its models are queued again, unless the same row
+ * has been queued since. The writer thread then retries with a growing
+ * delay, while {@link WriteBehind#flush()} passes the exception on. 
+ */
+public class WriteBehind {
+
+	private static final String TAG = "ANDRORM:WRITE:BEHIND";
+	
+	/**
+	 * Default time in milliseconds the writer waits for further models,
+	 * before it commits the queue. 
+	 */
+	public static final long DEFAULT_DELAY = 200;
+	
+	/**
+	 * Longest time in milliseconds the writer waits, before it retries
+	 * a failed write. 
+	 */
+	private static final long MAX_RETRY_DELAY = 30000;
+	
+	private static WriteBehind mInstance;
+	
+	public static final synchronized WriteBehind getInstance(Context context) {
+		if(mInstance == null) {
+			mInstance = new WriteBehind(context);
+		}
+		
+		return mInstance;
+	}
+	
+	/**
+	 * Writes all pending models of the given class, if a {@link WriteBehind}
+	 * has been created. Nothing is written, if the calling thread holds
+	 * the write lock of the {@link DatabaseAdapter}, as the writer thread 
+	 * might be waiting for it. If the write fails, the query still runs
+	 * and the models stay queued.
+	 * 
+	 * @param clazz	{@link Model} class, that is about to be queried.
+	 */
+	static void flush(Class<? extends Model> clazz) {
+		WriteBehind instance = mInstance;
+		
+		if(instance != null 
+				&& instance.isPending(clazz) 
+				&& !DatabaseAdapter.getInstance(instance.mContext).isWriting()) {
+			try {
+				instance.flush();
+			} catch(RuntimeException e) {
+				Log.e(TAG, "an exception has been thrown trying to write the pending " 
+						+ clazz.getSimpleName() + " models before a query", e);
+			}
+		}
+	}
+	
+	/**
+	 * Removes the model from the queue, if an {@link WriteBehind}
+	 * has been created. 
+	 * 
+	 * @param model	{@link Model}, that has been written otherwise.
+	 */
+	static void cancel(Model model) {
+		WriteBehind instance = mInstance;
+		
+		if(instance != null) {
+			instance.remove(model);
+		}
+	}
+	
+	/**
+	 * Identifies a row by the class of its model and its id. 
+	 */
+	private static final class Key {
+		
+		private final Class<?> mClass;
+		private final int mId;
+		
+		public Key(Model model) {
+			mClass = model.getClass();
+			mId = model.getId();
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if(o instanceof Key) {
+				Key other = (Key) o;
+				
+				return mClass == other.mClass && mId == other.mId;
+			}
+			
+			return false;
+		}
+		
+		@Override
+		public int hashCode() {
+			return 31 * mClass.hashCode() + mId;
+		}
+	}
+	
+	private final Context mContext;
+	private final Object mLock;
+	private final Map<Key, Model> mSaves;
+	private final Map<Key, Model> mDeletes;
+	private Thread mWriter;
+	private boolean mWriting;
+	private long mDelay;
+	
+	private int mQueued;
+	private int mCoalesced;
+	private int mCommits;
+	
+	private WriteBehind(Context context) {
+		mContext = context;
+		mLock = new Object();
+		mSaves = new LinkedHashMap<Key, Model>();
+		mDeletes = new LinkedHashMap<Key, Model>();
+		mDelay = DEFAULT_DELAY;
+	}
+	
+	/**
+	 * Sets the time the writer waits for further models, after the
+	 * first one has been queued. 
+	 * 
+	 * @param delay	Delay in milliseconds.
+	 * @return <code>this</code> for chaining.
+	 */
+	public WriteBehind setDelay(long delay) {
+		mDelay = delay;
+		
+		return this;
+	}
+	
+	/**
+	 * Queues the model to be saved. If the same row is already queued,
+	 * the given instance replaces it. A pending delete of that row is 
+	 * dropped. 
+	 * 
+	 * @param model	{@link Model} to save.
+	 * @return <code>this</code> for chaining.
+	 */
+	public WriteBehind save(Model model) {
+		if(model.getId() == 0) {
+			model.save(mContext);
+			
+			return this;
+		}
+		
+		Key key = new Key(model);
+		
+		synchronized(mLock) {
+			mDeletes.remove(key);
+			
+			if(mSaves.put(key, model) != null) {
+				mCoalesced++;
+			}
+			
+			schedule();
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Queues the model to be deleted. A pending save of that row is 
+	 * dropped. 
+	 * 
+	 * @param model	{@link Model} to delete.
+	 * @return <code>this</code> for chaining.
+	 */
+	public WriteBehind delete(Model model) {
+		if(model.getId() == 0) {
+			return this;
+		}
+		
+		Key key = new Key(model);
+		
+		synchronized(mLock) {
+			if(mSaves.remove(key) != null) {
+				mCoalesced++;
+			}
+			
+			if(mDeletes.put(key, model) != null) {
+				mCoalesced++;
+			}
+			
+			schedule();
+		}
+		
+		return this;
+	}
+	
+	private void remove(Model model) {
+		if(model.getId() == 0) {
+			return;
+		}
+		
+		Key key = new Key(model);
+		
+		synchronized(mLock) {
+			mSaves.remove(key);
+			mDeletes.remove(key);
+		}
+	}
+	
+	private boolean isPending(Class<? extends Model> clazz) {
+		synchronized(mLock) {
+			if(mWriting) {
+				return true;
+			}
+			
+			for(Key key : mSaves.keySet()) {
+				if(key.mClass == clazz) {
+					return true;
+				}
+			}
+			
+			for(Key key : mDeletes.keySet()) {
+				if(key.mClass == clazz) {
+					return true;
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Wakes up the writer thread. Must be called holding the lock. 
+	 */
+	private void schedule() {
+		mQueued++;
+		
+		if(mWriter == null) {
+			mWriter = new Thread(new Runnable() {
+				
+				@Override
+				public void run() {
+					loop();
+				}
+				
+			}, "androrm-write-behind");
+			
+			mWriter.setDaemon(true);
+			mWriter.setPriority(Thread.MIN_PRIORITY);
+			mWriter.start();
+		}
+		
+		mLock.notifyAll();
+	}
+	
+	private void loop() {
+		long retry = 0;
+		
+		try {
+			while(true) {
+				synchronized(mLock) {
+					while(mSaves.isEmpty() && mDeletes.isEmpty()) {
+						mLock.wait();
+					}
+				}
+				
+				long delay = Math.max(mDelay, retry);
+				
+				if(delay > 0) {
+					Thread.sleep(delay);
+				}
+				
+				try {
+					write();
+					
+					retry = 0;
+				} catch(RuntimeException e) {
+					retry = Math.min(Math.max(retry * 2, DEFAULT_DELAY), MAX_RETRY_DELAY);
+					
+					Log.e(TAG, "an exception has been thrown trying to write the queue, " 
+							+ "retrying in " + retry + " ms", e);
+				}
+			}
+		} catch(InterruptedException e) {
+			Log.w(TAG, "writer thread has been interrupted");
+		} finally {
+			synchronized(mLock) {
+				mWriter = null;
+			}
+		}
+	}
+	
+	/**
+	 * Writes all pending models within one transaction. If the writer
+	 * is currently committing, this waits for it to finish first. If
+	 * the transaction fails, the models are queued again and the 
+	 * exception is passed on. 
+	 * 
+	 * @return {@link BatchResult} of the writes.
+	 * @throws InterruptedException
+	 */
+	private BatchResult write() throws InterruptedException {
+		Map<Key, Model> saves;
+		Map<Key, Model> deletes;
+		
+		synchronized(mLock) {
+			while(mWriting) {
+				mLock.wait();
+			}
+			
+			if(mSaves.isEmpty() && mDeletes.isEmpty()) {
+				return new BatchResult();
+			}
+			
+			saves = drain(mSaves);
+			deletes = drain(mDeletes);
+			
+			mWriting = true;
+		}
+		
+		WriteBatch batch = new WriteBatch();
+		
+		for(Model model : saves.values()) {
+			batch.save(model);
+		}
+		
+		for(Model model : deletes.values()) {
+			batch.delete(model);
+		}
+		
+		boolean written = false;
+		
+		try {
+			BatchResult result = batch.commit(mContext);
+			written = true;
+			
+			Log.d(TAG, "wrote " + result);
+			
+			return result;
+		} finally {
+			synchronized(mLock) {
+				if(written) {
+					mCommits++;
+				} else {
+					requeue(mSaves, saves);
+					requeue(mDeletes, deletes);
+				}
+				
+				mWriting = false;
+				mLock.notifyAll();
+			}
+		}
+	}
+	
+	private static Map<Key, Model> drain(Map<Key, Model> models) {
+		Map<Key, Model> drained = new LinkedHashMap<Key, Model>(models);
+		models.clear();
+		
+		return drained;
+	}
+	
+	/**
+	 * Puts the models of a failed write back in front of the queue. Rows,
+	 * that have been queued again in the meantime, keep their newer 
+	 * entry. Must be called holding the lock. 
+	 * 
+	 * @param queue		Map of pending saves or deletes.
+	 * @param failed	Models drained from that map.
+	 */
+	private void requeue(Map<Key, Model> queue, Map<Key, Model> failed) {
+		Iterator<Key> iterator = failed.keySet().iterator();
+		
+		while(iterator.hasNext()) {
+			Key key = iterator.next();
+			
+			if(mSaves.containsKey(key) || mDeletes.containsKey(key)) {
+				iterator.remove();
+			}
+		}
+		
+		failed.putAll(queue);
+		queue.clear();
+		queue.putAll(failed);
+	}
+	
+	/**
+	 * Writes all pending models on the calling thread and returns once
+	 * they are in the database. Calls from the writer thread itself 
+	 * return immediately. 
+	 * <br /><br />
+	 * If the transaction fails, the exception is passed on and the 
+	 * models stay queued, so that the writer thread retries them. 
+	 * 
+	 * @return {@link BatchResult} of the writes. 
+	 */
+	public BatchResult flush() {
+		synchronized(mLock) {
+			if(Thread.currentThread() == mWriter) {
+				return new BatchResult();
+			}
+		}
+		
+		try {
+			return write();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			
+			return new BatchResult();
+		}
+	}
+	
+	/**
+	 * @return Number of models waiting to be written.
+	 */
+	public int size() {
+		synchronized(mLock) {
+			return mSaves.size() + mDeletes.size();
+		}
+	}
+	
+	/**
+	 * @return Number of models, that have been queued.
+	 */
+	public int getQueued() {
+		return mQueued;
+	}
+	
+	/**
+	 * @return Number of queued models, that replaced a pending write 
+	 * 			of the same row.
+	 */
+	public int getCoalesced() {
+		return mCoalesced;
+	}
+	
+	/**
+	 * @return Number of transactions committed.
+	 */
+	public int getCommits() {
+		return mCommits;
+	}
+	
+	public void resetStatistics() {
+		synchronized(mLock) {
+			mQueued = 0;
+			mCoalesced = 0;
+			mCommits = 0;
+		}
+	}
+}
@@ -22,10 +22,14 @@
  */
 package com.orm.androrm.field;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
 import com.orm.androrm.Model;
+import com.orm.androrm.QuerySet;
+
+import android.content.Context;
 
 /**
  * @author Philipp Giese
@@ -37,6 +41,11 @@ implements XToManyRelation<O, T> {
 	protected List<T> mValues;
 	protected Class<O> mOriginClass;
 	protected Class<T> mTargetClass;
+	/**
+	 * Targets loaded by {@link QuerySet#prefetchRelated(String...)} or 
+	 * <code>null</code> if they have not been loaded. 
+	 */
+	protected List<T> mPrefetched;
 	
 	@Override
 	public void add(T value) {
@@ -56,14 +65,49 @@ implements XToManyRelation<O, T> {
 	public Class<T> getTarget() {
 		return mTargetClass;
 	}
+	
+	public Class<O> getOrigin() {
+		return mOriginClass;
+	}
 
 	@Override
 	public void reset() {
 		mValues.clear();
+		mPrefetched = null;
 	}
 	
 	@Override
 	public List<T> getCachedValues() {
 		return mValues;
 	}
+	
+	/**
+	 * Hands in the targets of the origin, that have been loaded 
+	 * together with the targets of other origins. Until the relation
+	 * is saved, {@link XToManyRelation#get(Context, Model)} returns 
+	 * these instead of querying them again. 
+	 * 
+	 * @param values	Targets of the origin or <code>null</code> to 
+	 * 					drop them. 
+	 */
+	public void setPrefetched(List<T> values) {
+		mPrefetched = values;
+	}
+	
+	public boolean isPrefetched() {
+		return mPrefetched != null;
+	}
+	
+	/**
+	 * Creates the {@link QuerySet} returned for an origin. If the 
+	 * targets have been prefetched, they are handed to it, so that
+	 * iterating it doesn't hit the database. 
+	 */
+	protected QuerySet<T> prefetched(QuerySet<T> querySet) {
+		if(mPrefetched != null) {
+			querySet.injectItems(new ArrayList<T>(mPrefetched));
+		}
+		
+		return querySet;
+	}
 }
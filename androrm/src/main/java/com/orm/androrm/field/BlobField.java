@@ -15,8 +15,8 @@ public class BlobField extends DataField<byte[]> {
 	}
 
 	@Override
-	public void set(Cursor c, String fieldName) {
-		mValue = c.getBlob(c.getColumnIndexOrThrow(fieldName));
+	public void set(Cursor c, int[] columns) {
+		mValue = c.getBlob(columns[0]);
 	}
 
 	@Override
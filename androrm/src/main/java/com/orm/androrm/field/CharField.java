@@ -67,8 +67,8 @@ public class CharField extends DataField<String> {
 	}
 
 	@Override
-	public void set(Cursor c, String fieldName) {
-		set(c.getString(c.getColumnIndexOrThrow(fieldName)));
+	public void set(Cursor c, int[] columns) {
+		set(c.getString(columns[0]));
 	}
 
     public void set(char[] chars) {
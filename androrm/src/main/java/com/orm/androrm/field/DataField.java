@@ -22,12 +22,18 @@
  */
 package com.orm.androrm.field;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import com.orm.androrm.DatabaseAdapter;
 import com.orm.androrm.DatabaseBuilder;
+import com.orm.androrm.Index;
 import com.orm.androrm.Model;
 
 import android.content.Context;
+import android.database.Cursor;
 import android.database.SQLException;
+import android.database.sqlite.SQLiteStatement;
 
 /**
  * This class is the superclass for all database fields,
@@ -53,6 +59,15 @@ public abstract class DataField<T> implements DatabaseField<T> {
 	 * Maximum length of that field.
 	 */
 	protected int mMaxLength;
+	/**
+	 * Indexes led by this field. 
+	 */
+	protected List<Index> mIndexes;
+	/**
+	 * Set whenever the value changes after the field has been 
+	 * read from or written to the database. 
+	 */
+	protected boolean mDirty;
 	
 	@Override
 	public T get() {
@@ -72,9 +87,189 @@ public abstract class DataField<T> implements DatabaseField<T> {
 	
 	@Override
 	public void set(T value) {
+		if(!isSame(mValue, value)) {
+			mDirty = true;
+		}
+		
 		mValue = value;
 	}
 	
+	/**
+	 * Values of immutable types are compared by equality, so that
+	 * setting a field to the value it already holds does not mark it
+	 * dirty. Mutable values might have been changed in place and
+	 * always count as a change. 
+	 */
+	private static boolean isSame(Object current, Object value) {
+		if(current == null || value == null) {
+			return current == value;
+		}
+		
+		if(current instanceof Number
+				|| current instanceof String
+				|| current instanceof Boolean) {
+			
+			return current.equals(value);
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * @return	<code>true</code> if the value has changed since the field
+	 * 			was last read from or written to the database. 
+	 */
+	public boolean isDirty() {
+		return mDirty;
+	}
+	
+	/**
+	 * Marks the field as changed or in sync with the database. This is 
+	 * done by {@link Model} on load and save and usually doesn't need to
+	 * be called manually. 
+	 * 
+	 * @param dirty	<code>true</code> to have the field written on the next save. 
+	 */
+	public void setDirty(boolean dirty) {
+		mDirty = dirty;
+	}
+	
+	/**
+	 * Declares an index on this field. If further field names are given 
+	 * a composite index is created, with this field as its first column. 
+	 * 
+	 * @param fields	Names of further fields covered by the index.
+	 * @return <code>this</code> for chaining.
+	 */
+	public DataField<T> index(String... fields) {
+		return addIndex(fields, false);
+	}
+	
+	/**
+	 * Same as {@link DataField#index(String...)}, but the index enforces
+	 * unique values. 
+	 * 
+	 * @param fields	Names of further fields covered by the index.
+	 * @return <code>this</code> for chaining.
+	 */
+	public DataField<T> unique(String... fields) {
+		return addIndex(fields, true);
+	}
+	
+	private DataField<T> addIndex(String[] fields, boolean unique) {
+		if(mIndexes == null) {
+			mIndexes = new ArrayList<Index>();
+		}
+		
+		Index index = new Index(fields);
+		
+		if(unique) {
+			index.unique();
+		}
+		
+		mIndexes.add(index);
+		
+		return this;
+	}
+	
+	/**
+	 * Indexes declared on this field. The fields of the returned 
+	 * indexes do not contain this field itself. 
+	 * 
+	 * @return {@link List} of {@link Index indexes}. Never <code>null</code>.
+	 */
+	public List<Index> getIndexes() {
+		if(mIndexes == null) {
+			return new ArrayList<Index>();
+		}
+		
+		return mIndexes;
+	}
+	
+	/**
+	 * Names of the table columns this field is stored in. By default a 
+	 * field occupies exactly one column named after the field. 
+	 * 
+	 * @param fieldName	Name of the field in the model class. 
+	 * @return	Column names in the order they are bound by 
+	 * 			{@link DataField#bind(SQLiteStatement, int)}.
+	 */
+	public String[] getColumnNames(String fieldName) {
+		return new String[] { fieldName };
+	}
+	
+	/**
+	 * Looks up the columns of this field in the cursor and reads its
+	 * value from the current row. When reading many rows, resolve the 
+	 * column indexes once and use {@link DataField#set(Cursor, int[])}.
+	 */
+	@Override
+	public void set(Cursor c, String fieldName) {
+		set(c, getColumnIndexes(c, fieldName));
+	}
+	
+	/**
+	 * Reads the value of this field from the current row of the cursor.
+	 * 
+	 * @param c			{@link Cursor} pointing at data.
+	 * @param columns	Indexes of the columns given by {@link DataField#getColumnNames(String)}
+	 * 					in the same order.
+	 */
+	public abstract void set(Cursor c, int[] columns);
+	
+	/**
+	 * Resolves the indexes of the columns of this field in the cursor.
+	 * 
+	 * @param c			{@link Cursor} to look up the columns in.
+	 * @param fieldName	Name of the field in the model class.
+	 * @return	Column indexes in the order of {@link DataField#getColumnNames(String)}.
+	 * @throws	IllegalArgumentException if a column does not exist.
+	 */
+	public int[] getColumnIndexes(Cursor c, String fieldName) {
+		String[] names = getColumnNames(fieldName);
+		int[] columns = new int[names.length];
+		
+		for(int i = 0; i < names.length; i++) {
+			columns[i] = c.getColumnIndexOrThrow(names[i]);
+		}
+		
+		return columns;
+	}
+	
+	/**
+	 * Binds the value of this field to a compiled statement. Fields
+	 * spanning more than one column bind one value per column as
+	 * given by {@link DataField#getColumnNames(String)}.
+	 * 
+	 * @param statement	{@link SQLiteStatement} to bind to.
+	 * @param index		1-based index of the first parameter of this field.
+	 * @return	Index of the next unbound parameter. 
+	 */
+	public int bind(SQLiteStatement statement, int index) {
+		bindValue(statement, index, mValue);
+		
+		return index + 1;
+	}
+	
+	/**
+	 * Binds a single Java value according to its type. 
+	 */
+	protected static void bindValue(SQLiteStatement statement, int index, Object value) {
+		if(value == null) {
+			statement.bindNull(index);
+		} else if(value instanceof Boolean) {
+			statement.bindLong(index, ((Boolean) value) ? 1 : 0);
+		} else if(value instanceof Integer || value instanceof Long) {
+			statement.bindLong(index, ((Number) value).longValue());
+		} else if(value instanceof Number) {
+			statement.bindDouble(index, ((Number) value).doubleValue());
+		} else if(value instanceof byte[]) {
+			statement.bindBlob(index, (byte[]) value);
+		} else {
+			statement.bindString(index, value.toString());
+		}
+	}
+	
 	@Override
 	public String toString() {
 		return String.valueOf(mValue);
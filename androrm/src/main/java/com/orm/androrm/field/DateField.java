@@ -30,6 +30,7 @@ import java.util.regex.Pattern;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
 
 /**
  * This class represents a {@link Date} field. 
@@ -73,6 +74,7 @@ public class DateField extends DataField<Date> {
 				GregorianCalendar cal = new GregorianCalendar(year, month, day, hour, minute, second);
 				
 				mValue = cal.getTime();
+				mDirty = true;
 			}
 		}
 	}
@@ -138,8 +140,15 @@ public class DateField extends DataField<Date> {
 	}
 
 	@Override
-	public void set(Cursor c, String fieldName) {
-		fromString(c.getString(c.getColumnIndexOrThrow(fieldName)));
+	public int bind(SQLiteStatement statement, int index) {
+		bindValue(statement, index, getDateString());
+		
+		return index + 1;
+	}
+
+	@Override
+	public void set(Cursor c, int[] columns) {
+		fromString(c.getString(columns[0]));
 	}
 
 	@Override
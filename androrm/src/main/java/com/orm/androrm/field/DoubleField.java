@@ -65,8 +65,8 @@ public class DoubleField extends DataField<Double> {
 	}
 
 	@Override
-	public void set(Cursor c, String fieldName) {
-		set(c.getDouble(c.getColumnIndexOrThrow(fieldName)));
+	public void set(Cursor c, int[] columns) {
+		set(c.getDouble(columns[0]));
 	}
 
 	private void setUp() {
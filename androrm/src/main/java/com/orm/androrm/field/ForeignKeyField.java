@@ -28,6 +28,7 @@ import com.orm.androrm.Model;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
 
 /**
  * The foreign key field can be used to build a relation
@@ -132,15 +133,45 @@ public class ForeignKeyField<T extends Model> extends DataField<T> implements Re
 		return (mValue != null && mValue.getId() != 0) || mReference != 0;
 	}
 
+	/**
+	 * If the referenced model has not been saved, when it was handed
+	 * to this field, its id is taken from the instance once it has 
+	 * been saved. 
+	 * 
+	 * @return	Id of the referenced model or 0. 
+	 */
+	private int getReference() {
+		if(mReference == 0 && mValue != null) {
+			mReference = mValue.getId();
+		}
+		
+		return mReference;
+	}
+
 	@Override
 	public void putData(String key, ContentValues values) {
-		if (mReference == 0) {
+		int reference = getReference();
+		
+		if (reference == 0) {
 			values.putNull(key);
 		} else {
-			values.put(key, mReference);
+			values.put(key, reference);
 		}
 	}
 
+	@Override
+	public int bind(SQLiteStatement statement, int index) {
+		int reference = getReference();
+		
+		if(reference == 0) {
+			statement.bindNull(index);
+		} else {
+			statement.bindLong(index, reference);
+		}
+		
+		return index + 1;
+	}
+
 	/**
 	 * When models are deleted you may wish to also release
 	 * all references to other models on the instance in order
@@ -155,8 +186,8 @@ public class ForeignKeyField<T extends Model> extends DataField<T> implements Re
 	}
 	
 	@Override
-	public void set(Cursor c, String fieldName) {
-		set(c.getInt(c.getColumnIndexOrThrow(fieldName)));
+	public void set(Cursor c, int[] columns) {
+		set(c.getInt(columns[0]));
 	}
 
 	/**
@@ -167,14 +198,22 @@ public class ForeignKeyField<T extends Model> extends DataField<T> implements Re
 	 * @param id	{@link Model#PK} of the referenced model.
 	 */
 	public void set(int id) {
+		if(mReference != id) {
+			mDirty = true;
+		}
+		
 		mReference = id;
 	}
 
 	@Override
 	public void set(T value) {
-		mReference = value.getId();
+		if(value != mValue) {
+			mDirty = true;
+		}
+		
+		set(value.getId());
 		
-		super.set(value);
+		mValue = value;
 	}
 
 }
@@ -65,8 +65,8 @@ public class IntegerField extends DataField<Integer> {
 	}
 
 	@Override
-	public void set(Cursor c, String fieldName) {
-		set(c.getInt(c.getColumnIndexOrThrow(fieldName)));
+	public void set(Cursor c, int[] columns) {
+		set(c.getInt(columns[0]));
 	}
 
 	@Override
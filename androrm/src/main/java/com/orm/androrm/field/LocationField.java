@@ -28,6 +28,7 @@ import com.orm.androrm.Model;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
 import android.location.Location;
 import android.location.LocationManager;
 
@@ -76,9 +77,30 @@ public class LocationField extends DataField<Location> {
 	}
 	
 	@Override
-	public void set(Cursor c, String fieldName) {
-		double lat = c.getDouble(c.getColumnIndexOrThrow(latName(fieldName)));
-		double lng = c.getDouble(c.getColumnIndexOrThrow(lngName(fieldName)));
+	public String[] getColumnNames(String fieldName) {
+		return new String[] { latName(fieldName), lngName(fieldName) };
+	}
+	
+	@Override
+	public int bind(SQLiteStatement statement, int index) {
+		double lat = 0.0;
+		double lng = 0.0;
+		
+		if(mValue != null) {
+			lat = mValue.getLatitude();
+			lng = mValue.getLongitude();
+		}
+		
+		statement.bindDouble(index, lat);
+		statement.bindDouble(index + 1, lng);
+		
+		return index + 2;
+	}
+	
+	@Override
+	public void set(Cursor c, int[] columns) {
+		double lat = c.getDouble(columns[0]);
+		double lng = c.getDouble(columns[1]);
 		
 		Location l = new Location(LocationManager.GPS_PROVIDER);
 		l.setLatitude(lat);
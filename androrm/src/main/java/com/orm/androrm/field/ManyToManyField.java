@@ -47,6 +47,10 @@ public class ManyToManyField<L extends Model,
 extends AbstractToManyRelation<L, R> {
 
 	private String mTableName;
+	/**
+	 * Targets, whose relation to the origin will be deleted on save.
+	 */
+	private List<R> mRemoved;
 	
 	public ManyToManyField(Class<L> origin, 
 			Class<R> target) {
@@ -54,10 +58,38 @@ extends AbstractToManyRelation<L, R> {
 		mOriginClass = origin;
 		mTargetClass = target;
 		mValues = new ArrayList<R>();
+		mRemoved = new ArrayList<R>();
 		
 		mTableName = createTableName();
 	}
 	
+	/**
+	 * Removes the relation to the given target. The relation is
+	 * deleted from the database, when the origin is saved. 
+	 * 
+	 * @param value	Model instance that shall no longer be referenced.
+	 */
+	public void remove(R value) {
+		if(value != null) {
+			mValues.remove(value);
+			mRemoved.add(value);
+		}
+	}
+	
+	/**
+	 * @return	{@link List} of targets removed since the last save. 
+	 */
+	public List<R> getRemovedValues() {
+		return mRemoved;
+	}
+	
+	@Override
+	public void reset() {
+		super.reset();
+		
+		mRemoved.clear();
+	}
+	
 	/**
 	 * This defines the convention after which relational tables are named.
 	 * It had to happen at some point. Throughout androrm the name of a
@@ -81,7 +113,7 @@ extends AbstractToManyRelation<L, R> {
 		QuerySet<R> querySet = new QuerySet<R>(context, mTargetClass);
 		querySet.injectQuery(getQuery(origin.getId()));
 		
-		return querySet;
+		return prefetched(querySet);
 	}
 	
 	private JoinStatement getJoin(String leftAlias, String rightAlias, int id) {
@@ -115,6 +147,10 @@ extends AbstractToManyRelation<L, R> {
 		return mTableName;
 	}
 	
+	/**
+	 * Selects the ids of all targets related to the origin straight 
+	 * from the relation table. 
+	 */
 	private SelectStatement getRightJoinSide(int id) {
 		String leftTable = DatabaseBuilder.getTableName(mOriginClass);
 		String rightTable = DatabaseBuilder.getTableName(mTargetClass);
@@ -124,18 +160,9 @@ extends AbstractToManyRelation<L, R> {
 		
 		SelectStatement relation = new SelectStatement();
 		relation.from(mTableName)
-				.select(leftTable, rightTable)
+				.select(rightTable)
 		 		.where(where);
 		
-		JoinStatement join = new JoinStatement();
-		join.left(relation, "left")
-			.right(rightTable, "right")
-			.on(rightTable, Model.PK);
-		
-		SelectStatement select = new SelectStatement();
-		select.from(join)
-			  .select("left." + rightTable + " AS " + rightTable);
-		
-		return select;
+		return relation;
 	}
 }
@@ -58,6 +58,6 @@ extends AbstractToManyRelation<L, R> {
 		QuerySet<R> querySet = new QuerySet<R>(context, mTargetClass);
 		querySet.filter(filter);
 		
-		return querySet;
+		return prefetched(querySet);
 	}
 }
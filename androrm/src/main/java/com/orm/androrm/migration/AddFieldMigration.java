@@ -52,6 +52,14 @@ public class AddFieldMigration<T extends Model> extends AndrormMigration<T> {
 			return false;
 		}
 		
+		MigrationRegistry registry = MigrationRegistry.getApplying();
+		
+		if(registry != null && registry.hasColumn(model, mValue)) {
+			// the table has been created with the field in place, so
+			// the migration only needs to be recorded
+			return true;
+		}
+		
 		return mFieldInstance.addToAs(context, model, mValue);
 	}
 
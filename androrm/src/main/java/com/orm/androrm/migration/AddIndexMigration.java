@@ -0,0 +1,79 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm.migration;
+
+import android.content.Context;
+import android.database.SQLException;
+
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.DatabaseBuilder;
+import com.orm.androrm.Index;
+import com.orm.androrm.Model;
+
+/**
+ * Creates an {@link Index} on the table of an already existent model.
+ * Use this to speed up lookups on tables, that have been created before
+ * the index was declared. 
+ *
+ * @param <T>
+ */
+public class AddIndexMigration<T extends Model> extends AndrormMigration<T> {
+
+	private Index mIndex;
+	
+	public AddIndexMigration(Index index) {
+		super(null, "add_index");
+		
+		mIndex = index;
+	}
+	
+	@Override
+	public boolean execute(Context context, Class<T> model) {
+		if(isApplied(model, context)) {
+			return false;
+		}
+		
+		String table = DatabaseBuilder.getTableName(model);
+		String sql = mIndex.toSQL(table, DatabaseBuilder.getColumnNames(model, mIndex.getFields()));
+		
+		DatabaseAdapter adapter = DatabaseAdapter.getInstance(context);
+		adapter.open();
+		
+		try {
+			adapter.exec(sql);
+		} catch(SQLException e) {
+			adapter.close();
+			
+			return false;
+		}
+		
+		adapter.close();
+		return true;
+	}
+
+	@Override
+	public String getValue(Class<T> model) {
+		return mIndex.getName(DatabaseBuilder.getTableName(model));
+	}
+
+}
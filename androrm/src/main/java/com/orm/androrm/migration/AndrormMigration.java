@@ -49,6 +49,12 @@ public abstract class AndrormMigration<T extends Model> implements Migratable<T>
 	}
 	
 	protected boolean isApplied(Class<T> model, Context context) {
+		MigrationRegistry registry = MigrationRegistry.getApplying();
+		
+		if(registry != null) {
+			return registry.isApplied(model, mAction, getValue(model));
+		}
+		
 		Filter filter = getFilter(model);
 		
 		return !Migration.objects(context).filter(filter).isEmpty();
@@ -101,6 +101,22 @@ public class MigrationHelper {
 		return false;
 	}
 	
+	/**
+	 * Checks whether an index with the given name exists in the database.
+	 * 
+	 * @param name Name of the index.
+	 * @return <code>true</code> if one exists <code>false</code> otherwise.
+	 */
+	public boolean indexExists(String name) {
+		String sql = "SELECT name FROM sqlite_master WHERE type='index' AND name LIKE '" + name + "'";
+		
+		Cursor c = getCursor(sql);
+		boolean exists = c.moveToNext();
+		
+		close(c);
+		return exists;
+	}
+	
 	/**
 	 * Check if a given model has relational tables in the system. 
 	 * Relational tables are created if a model has one or more 
@@ -0,0 +1,338 @@
+/**
+ * 	Copyright (c) 2010 Philipp Giese
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package com.orm.androrm.migration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.DatabaseBuilder;
+import com.orm.androrm.Filter;
+import com.orm.androrm.Model;
+
+/**
+ * Collects the migrations of all models, while they are registered 
+ * with {@link DatabaseAdapter#setModels(List)}, and rolls them out 
+ * together. 
+ * <br /><br />
+ * All applied migrations are loaded with a single query and looked up
+ * in memory afterwards. Each run stores a fingerprint of all known 
+ * migrations as schema version. If the fingerprint didn't change since
+ * the last run, no migration is executed at all. 
+ */
+public class MigrationRegistry {
+
+	private static final String TAG = "ANDRORM:MIGRATION:REGISTRY";
+	
+	/**
+	 * Action of the {@link Migration} record, that holds the schema version.
+	 */
+	static final String SCHEMA_VERSION = "schema_version";
+	
+	private static final ThreadLocal<MigrationRegistry> ACTIVE = new ThreadLocal<MigrationRegistry>();
+	
+	private static final class Registration<T extends Model> {
+		private final Class<T> mModel;
+		private final List<Migratable<T>> mMigrations;
+		
+		private Registration(Class<T> model, List<Migratable<T>> migrations) {
+			mModel = model;
+			mMigrations = migrations;
+		}
+		
+		private void run(MigrationRegistry registry) {
+			registry.run(mModel, mMigrations);
+		}
+		
+		private void sign(List<String> signatures) {
+			String table = DatabaseBuilder.getTableName(mModel);
+			
+			for(Migratable<T> migration : mMigrations) {
+				signatures.add(table + ":" + getSignature(mModel, migration));
+			}
+		}
+	}
+	
+	private Context mContext;
+	private List<Registration<?>> mRegistrations;
+	/**
+	 * Keys of all applied migrations. Only set, while migrations are 
+	 * rolled out. 
+	 */
+	private Set<String> mApplied;
+	/**
+	 * Column names by table, loaded on first use. 
+	 */
+	private Map<String, Set<String>> mColumns;
+	private List<Migration> mRecords;
+	private int mExecuted;
+	private boolean mUpToDate;
+	
+	private MigrationRegistry(Context context) {
+		mContext = context;
+		mRegistrations = new ArrayList<Registration<?>>();
+		mColumns = new HashMap<String, Set<String>>();
+		mRecords = new ArrayList<Migration>();
+	}
+	
+	/**
+	 * Starts collecting migrations on the current thread. From now on
+	 * {@link Migrator#migrate(Context)} registers its migrations with 
+	 * the returned registry instead of executing them. Always call 
+	 * {@link MigrationRegistry#end()} afterwards. 
+	 * 
+	 * @param context	{@link Context} of the database.
+	 * @return	The new registry. 
+	 */
+	public static MigrationRegistry begin(Context context) {
+		MigrationRegistry registry = new MigrationRegistry(context);
+		ACTIVE.set(registry);
+		
+		return registry;
+	}
+	
+	/**
+	 * @return	Registry collecting migrations on the current thread or
+	 * 			<code>null</code> if there is none.
+	 */
+	static MigrationRegistry getActive() {
+		return ACTIVE.get();
+	}
+	
+	/**
+	 * @return	Registry rolling out migrations on the current thread or
+	 * 			<code>null</code> if there is none. 
+	 */
+	static MigrationRegistry getApplying() {
+		MigrationRegistry registry = ACTIVE.get();
+		
+		if(registry != null && registry.mApplied != null) {
+			return registry;
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Stops collecting migrations on the current thread. 
+	 */
+	public void end() {
+		if(ACTIVE.get() == this) {
+			ACTIVE.remove();
+		}
+		
+		mApplied = null;
+	}
+	
+	private static <T extends Model> String getSignature(Class<T> model, Migratable<T> migration) {
+		if(migration instanceof RenameModelMigration) {
+			return migration.getAction() + ":" + ((RenameModelMigration<T>) migration).mOldName;
+		}
+		
+		return migration.getAction() + ":" + migration.getValue(model);
+	}
+	
+	private static String getKey(String table, String action, String value) {
+		return table + "\u0000" + action + "\u0000" + value;
+	}
+	
+	/**
+	 * Registers the migrations of a model. If migrations are already 
+	 * rolled out, e.g. by a migration, that migrates related tables, 
+	 * they are executed right away. 
+	 * 
+	 * @param model			{@link Model} class, the migrations belong to.
+	 * @param migrations	Migrations of the model in order.
+	 */
+	<T extends Model> void register(Class<T> model, List<Migratable<T>> migrations) {
+		if(mApplied != null) {
+			run(model, migrations);
+		} else if(!migrations.isEmpty()) {
+			mRegistrations.add(new Registration<T>(model, new ArrayList<Migratable<T>>(migrations)));
+		}
+	}
+	
+	/**
+	 * Computes the fingerprint of all registered migrations. 
+	 * 
+	 * @return	Number of migrations and hash of their signatures. 
+	 */
+	String getVersion() {
+		List<String> signatures = new ArrayList<String>();
+		
+		for(Registration<?> registration : mRegistrations) {
+			registration.sign(signatures);
+		}
+		
+		Collections.sort(signatures);
+		
+		return signatures.size() + ":" + Integer.toHexString(signatures.toString().hashCode());
+	}
+	
+	private Filter getVersionFilter() {
+		Filter filter = new Filter();
+		filter.is("mModel", DatabaseBuilder.getTableName(Migration.class))
+			  .is("mAction", SCHEMA_VERSION);
+		
+		return filter;
+	}
+	
+	private String loadVersion() {
+		List<Map<String, String>> rows = Migration.objects(mContext).filter(getVersionFilter()).values("mValue");
+		
+		if(rows.isEmpty()) {
+			return null;
+		}
+		
+		return rows.get(0).get("mValue");
+	}
+	
+	private void storeVersion(String version) {
+		Migration.objects(mContext).filter(getVersionFilter()).delete(mContext);
+		
+		Migration record = new Migration();
+		record.mModel.set(DatabaseBuilder.getTableName(Migration.class));
+		record.mAction.set(SCHEMA_VERSION);
+		record.mValue.set(version);
+		
+		mRecords.add(record);
+	}
+	
+	private void loadApplied() {
+		mApplied = new HashSet<String>();
+		
+		List<Map<String, String>> rows = Migration.objects(mContext).all().values("mModel", "mAction", "mValue");
+		
+		for(Map<String, String> row : rows) {
+			mApplied.add(getKey(row.get("mModel"), row.get("mAction"), row.get("mValue")));
+		}
+	}
+	
+	/**
+	 * Rolls out all pending migrations. The caller is expected to wrap
+	 * this call into a transaction. 
+	 * 
+	 * @return	Number of executed migrations. 
+	 */
+	public int apply() {
+		String version = getVersion();
+		
+		if(version.equals(loadVersion())) {
+			mUpToDate = true;
+			
+			return 0;
+		}
+		
+		long start = System.currentTimeMillis();
+		loadApplied();
+		
+		for(Registration<?> registration : mRegistrations) {
+			registration.run(this);
+		}
+		
+		storeVersion(version);
+		Model.saveAll(mContext, mRecords);
+		mRecords.clear();
+		
+		Log.d(TAG, "executed " + mExecuted + " migrations in " 
+				+ (System.currentTimeMillis() - start) + "ms");
+		
+		return mExecuted;
+	}
+	
+	private <T extends Model> void run(Class<T> model, List<Migratable<T>> migrations) {
+		for(Migratable<T> migration : migrations) {
+			if(migration.execute(mContext, model)) {
+				Migration record = Migration.create(model, migration);
+				
+				mApplied.add(getKey(record.mModel.get(), record.mAction.get(), record.mValue.get()));
+				mRecords.add(record);
+				mExecuted++;
+			}
+		}
+	}
+	
+	/**
+	 * @param model		{@link Model} class of the migration.
+	 * @param action	Action of the migration.
+	 * @param value		Value of the migration.
+	 * @return	<code>true</code> if the migration has already been applied.
+	 */
+	boolean isApplied(Class<? extends Model> model, String action, String value) {
+		return mApplied.contains(getKey(DatabaseBuilder.getTableName(model), action, value));
+	}
+	
+	/**
+	 * @param model	{@link Model} class of the table.
+	 * @param name	Name of the column.
+	 * @return	<code>true</code> if the table of the model has the column.
+	 */
+	boolean hasColumn(Class<? extends Model> model, String name) {
+		String table = DatabaseBuilder.getTableName(model);
+		Set<String> columns = mColumns.get(table);
+		
+		if(columns == null) {
+			columns = new HashSet<String>();
+			
+			DatabaseAdapter adapter = DatabaseAdapter.getInstance(mContext);
+			adapter.open();
+			
+			Cursor c = adapter.query("PRAGMA TABLE_INFO(`" + table + "`)");
+			
+			while(c.moveToNext()) {
+				columns.add(c.getString(c.getColumnIndexOrThrow("name")));
+			}
+			
+			c.close();
+			adapter.close();
+			
+			mColumns.put(table, columns);
+		}
+		
+		return columns.contains(name);
+	}
+	
+	/**
+	 * @return	<code>true</code> if the last call of {@link MigrationRegistry#apply()}
+	 * 			found the schema version unchanged. 
+	 */
+	public boolean isUpToDate() {
+		return mUpToDate;
+	}
+	
+	/**
+	 * @return	Number of migrations executed by this registry.
+	 */
+	public int getExecuted() {
+		return mExecuted;
+	}
+}
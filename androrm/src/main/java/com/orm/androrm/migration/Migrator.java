@@ -27,6 +27,8 @@ import java.util.List;
 
 import android.content.Context;
 
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.Index;
 import com.orm.androrm.Model;
 import com.orm.androrm.field.DatabaseField;
 import com.orm.androrm.field.ManyToManyField;
@@ -58,6 +60,25 @@ public class Migrator<T extends Model> {
 		return;
 	}
 	
+	/**
+	 * Adds an index on the given fields to the table of the model. 
+	 * 
+	 * @param fields	Names of the indexed fields in index order.
+	 */
+	public void addIndex(String... fields) {
+		mMigrations.add(new AddIndexMigration<T>(new Index(fields)));
+	}
+	
+	/**
+	 * Same as {@link Migrator#addIndex(String...)}, but the index 
+	 * enforces unique values. 
+	 * 
+	 * @param fields	Names of the indexed fields in index order.
+	 */
+	public void addUniqueIndex(String... fields) {
+		mMigrations.add(new AddIndexMigration<T>(new Index(fields).unique()));
+	}
+	
 	public void renameModel(String old, Class<? extends Model> updated) {
 		RenameModelMigration<T> migration = new RenameModelMigration<T>(old);
 		
@@ -70,7 +91,23 @@ public class Migrator<T extends Model> {
 		mMigrations.add(migration);
 	}
 	
+	/**
+	 * Executes all migrations, that have not been applied yet. While 
+	 * {@link DatabaseAdapter#setModels(List)} runs, the migrations are
+	 * handed to the {@link MigrationRegistry} instead and rolled out 
+	 * together with those of all other models. 
+	 * 
+	 * @param context	{@link Context} of the database.
+	 */
 	public void migrate(Context context) {
+		MigrationRegistry registry = MigrationRegistry.getActive();
+		
+		if(registry != null) {
+			registry.register(mModel, mMigrations);
+			
+			return;
+		}
+		
 		for(Migratable<T> migration : mMigrations) {
 			if(migration.execute(context, mModel)) {
 				Migration.create(mModel, migration).save(context);
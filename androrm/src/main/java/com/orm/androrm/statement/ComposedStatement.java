@@ -23,6 +23,7 @@
 package com.orm.androrm.statement;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -65,6 +66,21 @@ public abstract class ComposedStatement extends Statement {
 		return keys;
 	}
 	
+	@Override
+	public String toSQL(List<String> args) {
+		if(mRight != null) {
+			String left = mLeft.toSQL(args);
+			
+			return left + mSeparator + mRight.toSQL(args);
+		}
+		
+		if(mLeft != null) {
+			return mLeft.toSQL(args);
+		}
+		
+		return super.toSQL(args);
+	}
+	
 	@Override
 	public String toString() {
 		if(mRight != null) {
@@ -22,6 +22,7 @@
  */
 package com.orm.androrm.statement;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
@@ -47,7 +48,29 @@ public class InStatement extends Statement {
 	}
 	
 	private String getList() {
-		return StringUtils.join(mValues, "','");
+		List<String> values = new ArrayList<String>();
+		
+		for(Object value : mValues) {
+			values.add(escape(value));
+		}
+		
+		return StringUtils.join(values, "','");
+	}
+	
+	@Override
+	public String toSQL(List<String> args) {
+		String placeholders = "";
+		
+		for(int i = 0, length = mValues.size(); i < length; i++) {
+			if(i != 0) {
+				placeholders += ",";
+			}
+			
+			placeholders += "?";
+			args.add(String.valueOf(mValues.get(i)));
+		}
+		
+		return mKey + " IN (" + placeholders + ")";
 	}
 	
 	@Override
@@ -22,6 +22,9 @@
  */
 package com.orm.androrm.statement;
 
+import java.util.List;
+import java.util.Set;
+
 /**
  * This class is the abstract representation of a JOIN
  * statement. 
@@ -37,12 +40,15 @@ public class JoinStatement {
 	private String mLeftColumn;
 	private String mRightColumn;
 
-	private String buildStatement() {
+	private String buildStatement(List<String> args) {
+		String left = (args == null) ? mLeft.toString() : mLeft.toSQL(args);
+		String right = (args == null) ? mRight.toString() : mRight.toSQL(args);
+		
 		String join = "(" +
-				mLeft.toString() + 
+				left + 
 			") AS " + mLeftAlias + 
 			" JOIN (" +
-				mRight.toString() +
+				right +
 			") AS " + mRightAlias +
 			" ON " + 
 				mLeftAlias + "." + mLeftColumn + 
@@ -132,8 +138,20 @@ public class JoinStatement {
 		return right(select, as);
 	}
 	
+	/**
+	 * See {@link Statement#toSQL(List)}.
+	 */
+	public String toSQL(List<String> args) {
+		return buildStatement(args);
+	}
+	
+	void collectTables(Set<String> tables) {
+		mLeft.collectTables(tables);
+		mRight.collectTables(tables);
+	}
+	
 	@Override
 	public String toString() {
-		return buildStatement();
+		return buildStatement(null);
 	}
 }
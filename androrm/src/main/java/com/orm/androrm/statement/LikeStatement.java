@@ -22,6 +22,8 @@
  */
 package com.orm.androrm.statement;
 
+import java.util.List;
+
 /**
  * This class can be used to create LIKE statement
  * for queries on the database. 
@@ -53,17 +55,26 @@ public class LikeStatement extends Statement {
 		}
 	}
 	
-	@Override
-	public String toString() {
-		String stmt = mKey + " LIKE '";
+	private String getPattern() {
+		String pattern = "";
 		
 		if(!mMatchBeginning) {
-			stmt += "%";
+			pattern += "%";
 		}
 		
-		stmt += mValue + "%'";
+		return pattern + mValue + "%";
+	}
+	
+	@Override
+	public String toSQL(List<String> args) {
+		args.add(getPattern());
 		
-		return stmt;
+		return mKey + " LIKE ?";
+	}
+	
+	@Override
+	public String toString() {
+		return mKey + " LIKE '" + escape(getPattern()) + "'";
 	}
 
 }
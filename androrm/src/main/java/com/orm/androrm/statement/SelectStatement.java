@@ -22,6 +22,10 @@
  */
 package com.orm.androrm.statement;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import com.orm.androrm.Limit;
 import com.orm.androrm.Model;
 import com.orm.androrm.OrderBy;
@@ -41,8 +45,11 @@ public class SelectStatement implements Cloneable {
 	
 	private String[] mFields = new String[] { "*" };
 	private String mFrom;
+	private SelectStatement mFromSelect;
+	private JoinStatement mFromJoin;
 	private Where mWhere;
 	private OrderBy mOrderBy;
+	private String[] mGroupBy;
 	private Limit mLimit;
 	private boolean mDistinct = false;
 	private boolean mCount = false;
@@ -63,6 +70,24 @@ public class SelectStatement implements Cloneable {
 		return "";
 	}
 	
+	private String buildGroupBy() {
+		if(mGroupBy != null && mGroupBy.length > 0) {
+			String groupBy = " GROUP BY ";
+			
+			for(int i = 0; i < mGroupBy.length; i++) {
+				if(i > 0) {
+					groupBy += ", ";
+				}
+				
+				groupBy += "`" + mGroupBy[i] + "`";
+			}
+			
+			return groupBy;
+		}
+		
+		return "";
+	}
+	
 	private String buildOrderBy() {
 		if(mOrderBy != null) {
 			return mOrderBy.toString();
@@ -92,9 +117,37 @@ public class SelectStatement implements Cloneable {
 		return fields;
 	}
 	
-	private String buildWhere() {
+	private String buildFrom(List<String> args) {
+		if(mFromSelect != null) {
+			if(args == null) {
+				return "(" + mFromSelect.toString() + ")";
+			}
+			
+			return "(" + mFromSelect.toSQL(args) + ")";
+		}
+		
+		if(mFromJoin != null) {
+			if(args == null) {
+				return mFromJoin.toString();
+			}
+			
+			return mFromJoin.toSQL(args);
+		}
+		
+		return mFrom;
+	}
+	
+	private String buildWhere(List<String> args) {
 		if(mWhere != null) {
-			return mWhere.toString();
+			if(args == null) {
+				return mWhere.toString();
+			}
+			
+			String where = mWhere.toSQL(args);
+			
+			if(where != null) {
+				return where;
+			}
 		}
 		
 		return "";
@@ -139,7 +192,9 @@ public class SelectStatement implements Cloneable {
 	 * @return
 	 */
 	public SelectStatement from(JoinStatement join) {
-		mFrom = join.toString();
+		mFrom = null;
+		mFromSelect = null;
+		mFromJoin = join;
 		
 		return this;
 	}
@@ -155,12 +210,16 @@ public class SelectStatement implements Cloneable {
 	 */
 	public SelectStatement from(String table) {
 		mFrom = "`" + table + "`";
+		mFromSelect = null;
+		mFromJoin = null;
 		
 		return this;
 	}
 	
 	public SelectStatement from(SelectStatement select) {
-		mFrom = "(" + select.toString() + ")";
+		mFrom = null;
+		mFromSelect = select;
+		mFromJoin = null;
 		
 		return this;
 	}
@@ -201,6 +260,21 @@ public class SelectStatement implements Cloneable {
 		return this;
 	}
 	
+	/**
+	 * Groups the results by the given columns. Use this together
+	 * with aggregate functions in {@link SelectStatement#select(String...)}.
+	 * <br /><br />
+	 * This call is optional.
+	 * 
+	 * @param columns	Names of the columns to group by.
+	 * @return
+	 */
+	public SelectStatement groupBy(String... columns) {
+		mGroupBy = columns;
+		
+		return this;
+	}
+	
 	/**
 	 * Hand in all fields, that shall be selected.
 	 * If no fields are specified * will be 
@@ -218,17 +292,36 @@ public class SelectStatement implements Cloneable {
 		return this;
 	}
 	
-	@Override
-	public String toString() {
+	private String build(List<String> args) {
+		String from = buildFrom(args);
+		
 		return "SELECT"
 			+ buildDistinct()
 			+ buildSelect()
-			+ " FROM " + mFrom
-			+ buildWhere()
+			+ " FROM " + from
+			+ buildWhere(args)
+			+ buildGroupBy()
 			+ buildOrderBy()
 			+ buildLimit();
 	}
 	
+	/**
+	 * Builds the SQL template of this select, that can be handed to 
+	 * the database together with the collected bind arguments. See
+	 * {@link Statement#toSQL(List)}.
+	 * 
+	 * @param args	Receives the bind arguments in the order of their placeholders. 
+	 * @return	SQL template of this select. 
+	 */
+	public String toSQL(List<String> args) {
+		return build(args);
+	}
+	
+	@Override
+	public String toString() {
+		return build(null);
+	}
+	
 	/**
 	 * Hand in a {@link Where} statement to drill down 
 	 * the results of the select. 
@@ -248,6 +341,31 @@ public class SelectStatement implements Cloneable {
 		return mWhere;
 	}
 	
+	public OrderBy getOrderBy() {
+		return mOrderBy;
+	}
+	
+	/**
+	 * @return	Names of all tables this select reads from, including 
+	 * 			those of subqueries and joins. 
+	 */
+	public Set<String> getTables() {
+		Set<String> tables = new HashSet<String>();
+		collectTables(tables);
+		
+		return tables;
+	}
+	
+	void collectTables(Set<String> tables) {
+		if(mFromSelect != null) {
+			mFromSelect.collectTables(tables);
+		} else if(mFromJoin != null) {
+			mFromJoin.collectTables(tables);
+		} else if(mFrom != null) {
+			tables.add(mFrom.replace("`", ""));
+		}
+	}
+	
 	@Override
 	public SelectStatement clone() {
 		try {
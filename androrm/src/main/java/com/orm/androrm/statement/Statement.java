@@ -23,6 +23,7 @@
 package com.orm.androrm.statement;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import com.orm.androrm.Where;
@@ -121,8 +122,34 @@ public class Statement {
 		mKey = key;
 	}
 	
+	/**
+	 * Quotes a value for being inlined into a SQL string. 
+	 * 
+	 * @param value	Raw value.
+	 * @return	Value with all single quotes escaped.
+	 */
+	protected static String escape(Object value) {
+		return String.valueOf(value).replace("'", "''");
+	}
+	
+	/**
+	 * Builds the SQL template of this statement. Instead of inlining 
+	 * the values, a ? placeholder is used for each of them and the values 
+	 * are appended to <code>args</code> in the order of their placeholders. 
+	 * That way the SQL stays the same for different values and compiled 
+	 * statements can be reused by the database. 
+	 * 
+	 * @param args	Receives the bind arguments.
+	 * @return	SQL template of this statement. 
+	 */
+	public String toSQL(List<String> args) {
+		args.add(String.valueOf(mValue));
+		
+		return mKey + " " + mOperator + " ?";
+	}
+	
 	@Override
 	public String toString() {
-		return mKey + " " + mOperator + " '" + mValue + "'";
+		return mKey + " " + mOperator + " '" + escape(mValue) + "'";
 	}
 }
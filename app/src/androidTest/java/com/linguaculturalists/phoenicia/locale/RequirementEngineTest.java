@@ -0,0 +1,141 @@
+package com.linguaculturalists.phoenicia.locale;
+
+import android.test.AndroidTestCase;
+
+import com.linguaculturalists.phoenicia.models.GameSession;
+import com.linguaculturalists.phoenicia.models.Inventory;
+import com.linguaculturalists.phoenicia.models.InventoryItem;
+import com.linguaculturalists.phoenicia.util.PhoeniciaContext;
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.Model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class RequirementEngineTest extends AndroidTestCase {
+
+    private Letter a;
+    private Letter b;
+    private Level first; /**< requires 3 of a and b together */
+    private Level second; /**< requires 5 of a */
+    private RequirementEngine engine;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        PhoeniciaContext.context = getContext();
+        assertNotNull("Null context", PhoeniciaContext.context);
+
+        List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+        models.add(GameSession.class);
+        models.add(InventoryItem.class);
+
+        DatabaseAdapter.setDatabaseName("game_db");
+        DatabaseAdapter adapter = DatabaseAdapter.getInstance(PhoeniciaContext.context);
+        adapter.setModels(models);
+
+        GameSession session = new GameSession();
+        session.session_name.set("test session");
+        session.locale_pack.set("test-locale");
+        session.current_level.set("test-level");
+        session.save(PhoeniciaContext.context);
+        Inventory.init(session);
+
+        this.a = this.createLetter("a");
+        this.b = this.createLetter("b");
+        this.first = this.createLevel("first", new CollectLetterReq(Arrays.asList(this.a, this.b), 3));
+        this.second = this.createLevel("second", new CollectLetterReq(Arrays.asList(this.a), 5));
+        this.engine = new RequirementEngine(Arrays.asList(this.first, this.second));
+    }
+
+    public void tearDown() throws Exception {
+        Inventory.getInstance().clear();
+        PhoeniciaContext.context = null;
+        super.tearDown();
+    }
+
+    private Letter createLetter(String name) {
+        Letter letter = new Letter();
+        letter.name = name;
+        return letter;
+    }
+
+    private Level createLevel(String name, Requirement... requirements) {
+        Level level = new Level();
+        level.name = name;
+        level.requirements = new ArrayList<Requirement>(Arrays.asList(requirements));
+        return level;
+    }
+
+    private Inventory.Change[] collected(String item_name, int history) {
+        InventoryItem item = new InventoryItem();
+        item.item_name.set(item_name);
+        item.quantity.set(history);
+        item.history.set(history);
+        return new Inventory.Change[] {new Inventory.Change(item, 0, history)};
+    }
+
+    public void testUnmetToMet() throws Exception {
+        assertFalse(this.engine.isPassed(this.first));
+        assertTrue(this.engine.update(this.collected("a", 2)));
+        assertFalse(this.engine.isPassed(this.first));
+        assertTrue(this.engine.update(this.collected("b", 1)));
+        assertTrue(this.engine.isPassed(this.first));
+    }
+
+    public void testMetToUnmet() throws Exception {
+        this.engine.update(this.collected("a", 5));
+        assertTrue(this.engine.isPassed(this.first));
+        assertTrue(this.engine.isPassed(this.second));
+
+        // e.g. the history was reset with the session
+        assertTrue(this.engine.update(this.collected("a", 2)));
+        assertFalse(this.engine.isPassed(this.first));
+        assertFalse(this.engine.isPassed(this.second));
+    }
+
+    public void testItemSharedByLevels() throws Exception {
+        this.engine.update(this.collected("a", 3));
+        assertTrue(this.engine.isPassed(this.first));
+        assertFalse(this.engine.isPassed(this.second));
+
+        this.engine.update(this.collected("a", 5));
+        assertTrue(this.engine.isPassed(this.first));
+        assertTrue(this.engine.isPassed(this.second));
+    }
+
+    public void testUnchangedHistory() throws Exception {
+        assertTrue(this.engine.update(this.collected("a", 1)));
+        assertFalse(this.engine.update(this.collected("a", 1)));
+        // Items that no requirement depends on are ignored
+        assertFalse(this.engine.update(this.collected("c", 10)));
+    }
+
+    public void testLoadThenUpdate() throws Exception {
+        Map<String, Integer> history = new HashMap<String, Integer>();
+        history.put("a", 4);
+        history.put("b", 1);
+        history.put("c", 10);
+        this.engine.load(history);
+        assertTrue(this.engine.isPassed(this.first));
+        assertFalse(this.engine.isPassed(this.second));
+
+        // Updates carry the full history, so only the difference to the loaded value counts
+        assertTrue(this.engine.update(this.collected("a", 5)));
+        assertTrue(this.engine.isPassed(this.second));
+        assertFalse(this.engine.update(this.collected("b", 1)));
+        assertTrue(this.engine.isPassed(this.first));
+    }
+
+    public void testUntrackedLevelFallsBack() throws Exception {
+        Level untracked = this.createLevel("untracked", new CollectLetterReq(Arrays.asList(this.b), 2));
+        assertFalse(this.engine.isPassed(untracked));
+
+        // Checked against the inventory history, not the engine's counters
+        Inventory.getInstance().add("b", 2);
+        assertTrue(this.engine.isPassed(untracked));
+    }
+
+}
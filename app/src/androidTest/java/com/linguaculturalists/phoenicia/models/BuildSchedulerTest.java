@@ -0,0 +1,157 @@
+package com.linguaculturalists.phoenicia.models;
+
+import android.test.AndroidTestCase;
+
+import com.linguaculturalists.phoenicia.util.PhoeniciaContext;
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class BuildSchedulerTest extends AndroidTestCase {
+
+    private BuildScheduler scheduler;
+
+    public void setUp() throws Exception {
+        super.setUp();
+        PhoeniciaContext.context = getContext();
+        assertNotNull("Null context", PhoeniciaContext.context);
+
+        List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+        models.add(GameSession.class);
+        models.add(LetterTile.class);
+        models.add(LetterBuilder.class);
+
+        DatabaseAdapter.setDatabaseName("game_db");
+        DatabaseAdapter adapter = DatabaseAdapter.getInstance(PhoeniciaContext.context);
+        adapter.setModels(models);
+
+        this.scheduler = new BuildScheduler();
+    }
+
+    public void tearDown() throws Exception {
+        this.scheduler.clear();
+        LetterBuilder.objects(PhoeniciaContext.context).all().delete(PhoeniciaContext.context);
+        PhoeniciaContext.context = null;
+        super.tearDown();
+    }
+
+    private LetterBuilder createBuilder(int time) {
+        LetterBuilder builder = new LetterBuilder();
+        builder.item_name.set("test");
+        builder.time.set(time);
+        builder.save(PhoeniciaContext.context);
+        this.scheduler.add(builder);
+        builder.start();
+        return builder;
+    }
+
+    public void testEarliestDeadlineFirst() throws Exception {
+        LetterBuilder slow = this.createBuilder(10);
+        LetterBuilder fast = this.createBuilder(5);
+        assertEquals(2, this.scheduler.size());
+        this.scheduler.onUpdate(5);
+        assertEquals(Builder.COMPLETE, fast.status.get().intValue());
+        assertEquals(Builder.BUILDING, slow.status.get().intValue());
+        assertEquals(5, this.scheduler.getProgress(slow));
+    }
+
+    public void testMilestoneWakeups() throws Exception {
+        LetterBuilder builder = this.createBuilder(100);
+        this.scheduler.onUpdate(20);
+        // Nothing is written before the first milestone
+        assertEquals(0, builder.progress.get().intValue());
+        assertEquals(20, this.scheduler.getProgress(builder));
+        this.scheduler.onUpdate(14);
+        assertEquals(34, builder.progress.get().intValue());
+        assertEquals(34, this.scheduler.getProgress(builder));
+    }
+
+    public void testWatchAndUnwatch() throws Exception {
+        LetterBuilder builder = this.createBuilder(100);
+        this.scheduler.watch(builder);
+        this.scheduler.onUpdate(1.5);
+        assertEquals(1, builder.progress.get().intValue());
+        this.scheduler.onUpdate(1);
+        assertEquals(2, builder.progress.get().intValue());
+
+        this.scheduler.unwatch(builder);
+        this.scheduler.onUpdate(1);
+        assertEquals(2, builder.progress.get().intValue());
+        assertEquals(3, this.scheduler.getProgress(builder));
+    }
+
+    public void testCompletionRemovesBuilder() throws Exception {
+        LetterBuilder builder = this.createBuilder(10);
+        assertEquals(1, this.scheduler.size());
+        this.scheduler.onUpdate(10);
+        assertEquals(Builder.COMPLETE, builder.status.get().intValue());
+        assertEquals(10, builder.progress.get().intValue());
+        assertEquals(0, this.scheduler.size());
+    }
+
+    public void testClearRemovesIdleBuilders() throws Exception {
+        LetterBuilder builder = new LetterBuilder();
+        builder.item_name.set("test");
+        builder.time.set(10);
+        builder.save(PhoeniciaContext.context);
+        this.scheduler.add(builder);
+        assertEquals(0, this.scheduler.size());
+
+        this.scheduler.clear();
+        // A builder started after the scheduler was cleared isn't scheduled any more
+        builder.start();
+        assertEquals(0, this.scheduler.size());
+        this.scheduler.onUpdate(10);
+        assertEquals(0, builder.progress.get().intValue());
+    }
+
+    public void testReload() throws Exception {
+        LetterBuilder builder = this.createBuilder(100);
+        this.scheduler.onUpdate(10);
+        builder.progress.set(50);
+        this.scheduler.reload();
+        assertEquals(50, this.scheduler.getProgress(builder));
+        // The 66% milestone is now due 16 seconds later
+        this.scheduler.onUpdate(16);
+        assertEquals(66, builder.progress.get().intValue());
+    }
+
+    public void testFractionalUpdatesComplete() throws Exception {
+        // Uneven frame times put deadlines where rounding can leave progress a second short
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            LetterBuilder builder = this.createBuilder(random.nextInt(50) + 1);
+            if (random.nextBoolean()) {
+                this.scheduler.watch(builder);
+            }
+            int frames = 0;
+            while (builder.status.get() != Builder.COMPLETE) {
+                assertTrue("Builder did not complete", frames++ < 10000);
+                this.scheduler.onUpdate(random.nextDouble() * 0.05 + 0.001);
+            }
+            assertEquals(builder.time.get(), builder.progress.get());
+        }
+        assertEquals(0, this.scheduler.size());
+    }
+
+    public void testZeroBuildTime() throws Exception {
+        LetterBuilder builder = this.createBuilder(0);
+        assertEquals(Builder.BUILDING, builder.status.get().intValue());
+        this.scheduler.onUpdate(0.1);
+        assertEquals(Builder.COMPLETE, builder.status.get().intValue());
+        assertEquals(0, this.scheduler.size());
+    }
+
+    public void testBuildingAtFullProgressCompletes() throws Exception {
+        LetterBuilder builder = this.createBuilder(10);
+        // e.g. progress written by sync() without completing the builder
+        builder.progress.set(10);
+        this.scheduler.onUpdate(5);
+        assertEquals(Builder.COMPLETE, builder.status.get().intValue());
+        assertEquals(0, this.scheduler.size());
+    }
+
+}
@@ -82,6 +82,51 @@ public class InventoryTest extends AndroidTestCase {
         assertEquals(1, Inventory.getInstance().getCount("foo"));
     }
 
+    public void testAddQuantity() throws Exception {
+        int newCount = Inventory.getInstance().add("foo", 3);
+        assertEquals(3, newCount);
+        assertEquals(3, Inventory.getInstance().getCount("foo"));
+        assertEquals(3, Inventory.getInstance().getHistory("foo"));
+    }
+
+    public void testAddUnearned() throws Exception {
+        int newCount = Inventory.getInstance().add("foo", 3, false);
+        assertEquals(3, newCount);
+        assertEquals(3, Inventory.getInstance().getCount("foo"));
+        assertEquals(0, Inventory.getInstance().getHistory("foo"));
+
+        Inventory.getInstance().add("foo", 2);
+        newCount = Inventory.getInstance().add("foo", 4, false);
+        assertEquals(9, newCount);
+        assertEquals(2, Inventory.getInstance().getHistory("foo"));
+    }
+
+    public void testChanges() throws Exception {
+        final List<Inventory.Change> changes = new ArrayList<Inventory.Change>();
+        Inventory.InventoryUpdateListener listener = new Inventory.InventoryUpdateListener() {
+            @Override
+            public void onInventoryUpdated(Inventory.Change[] updated) {
+                for (Inventory.Change change : updated) {
+                    changes.add(change);
+                }
+            }
+        };
+        Inventory.getInstance().addUpdateListener(listener);
+        Inventory.getInstance().add("foo", 2);
+        Inventory.getInstance().add("foo", 3, false);
+        Inventory.getInstance().subtract("foo", 1);
+        Inventory.getInstance().removeUpdateListener(listener);
+
+        assertEquals(3, changes.size());
+        assertEquals("foo", changes.get(0).item.item_name.get());
+        assertEquals(0, changes.get(0).old_quantity);
+        assertEquals(2, changes.get(0).new_quantity);
+        assertEquals(2, changes.get(1).old_quantity);
+        assertEquals(5, changes.get(1).new_quantity);
+        assertEquals(5, changes.get(2).old_quantity);
+        assertEquals(4, changes.get(2).new_quantity);
+    }
+
     public void testGetHistory() throws Exception {
         assertEquals(0, Inventory.getInstance().getHistory("foo"));
         Inventory.getInstance().add("foo");
@@ -0,0 +1,170 @@
+package com.linguaculturalists.phoenicia.models;
+
+import android.test.AndroidTestCase;
+
+import com.linguaculturalists.phoenicia.util.PhoeniciaContext;
+import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OfflineProgressTest extends AndroidTestCase {
+
+    /**
+     * Runs its builders one after the other, like a WordTile's build queue
+     */
+    private static class TestQueue implements OfflineProgress.BuildQueue, Builder.BuildStatusUpdateHandler {
+        private final List<Builder> builders = new ArrayList<Builder>();
+
+        private void add(Builder builder) {
+            builder.addUpdateHandler(this);
+            this.builders.add(builder);
+            builder.schedule();
+            if (this.getActiveBuilder() == null) {
+                builder.start();
+            }
+        }
+
+        @Override
+        public Builder getActiveBuilder() {
+            for (Builder builder : this.builders) {
+                if (builder.status.get() == Builder.BUILDING) {
+                    return builder;
+                }
+            }
+            return null;
+        }
+
+        public void onScheduled(Builder buildItem) { }
+        public void onStarted(Builder buildItem) { }
+        public void onCompleted(Builder buildItem) {
+            for (Builder builder : this.builders) {
+                if (builder.status.get() == Builder.SCHEDULED) {
+                    builder.start();
+                    return;
+                }
+            }
+        }
+        public void onProgressChanged(Builder builtItem) { }
+    }
+
+    public void setUp() throws Exception {
+        super.setUp();
+        PhoeniciaContext.context = getContext();
+        assertNotNull("Null context", PhoeniciaContext.context);
+
+        List<Class<? extends Model>> models = new ArrayList<Class<? extends Model>>();
+        models.add(GameSession.class);
+        models.add(LetterTile.class);
+        models.add(LetterBuilder.class);
+
+        DatabaseAdapter.setDatabaseName("game_db");
+        DatabaseAdapter adapter = DatabaseAdapter.getInstance(PhoeniciaContext.context);
+        adapter.setModels(models);
+    }
+
+    public void tearDown() throws Exception {
+        LetterBuilder.objects(PhoeniciaContext.context).all().delete(PhoeniciaContext.context);
+        PhoeniciaContext.context = null;
+        super.tearDown();
+    }
+
+    private LetterBuilder createBuilder(String item_name, int time) {
+        LetterBuilder builder = new LetterBuilder();
+        builder.item_name.set(item_name);
+        builder.time.set(time);
+        builder.save(PhoeniciaContext.context);
+        return builder;
+    }
+
+    private TestQueue createQueue(int... times) {
+        TestQueue queue = new TestQueue();
+        for (int i = 0; i < times.length; i++) {
+            queue.add(this.createBuilder("test", times[i]));
+        }
+        return queue;
+    }
+
+    public void testQueueChainsLeftoverTime() throws Exception {
+        TestQueue queue = this.createQueue(10, 10, 10);
+        OfflineProgress progress = new OfflineProgress(25);
+        assertEquals(2, progress.advance(queue));
+
+        assertEquals(Builder.COMPLETE, queue.builders.get(0).status.get().intValue());
+        assertEquals(Builder.COMPLETE, queue.builders.get(1).status.get().intValue());
+        assertEquals(Builder.BUILDING, queue.builders.get(2).status.get().intValue());
+        assertEquals(5, queue.builders.get(2).progress.get().intValue());
+        assertEquals(2, progress.getTotal());
+        assertEquals(2, progress.getCompleted().get("test").intValue());
+        assertEquals(3, progress.getAdvanced());
+    }
+
+    public void testQueueStartsFromActiveProgress() throws Exception {
+        TestQueue queue = this.createQueue(10, 10);
+        queue.builders.get(0).progress.set(8);
+        OfflineProgress progress = new OfflineProgress(12);
+        assertEquals(2, progress.advance(queue));
+        assertNull(queue.getActiveBuilder());
+    }
+
+    public void testQueueCompletesExactly() throws Exception {
+        TestQueue queue = this.createQueue(10, 10);
+        OfflineProgress progress = new OfflineProgress(10);
+        assertEquals(1, progress.advance(queue));
+        // The next builder was started, but no time was left for it
+        assertEquals(Builder.BUILDING, queue.builders.get(1).status.get().intValue());
+        assertEquals(0, queue.builders.get(1).progress.get().intValue());
+    }
+
+    public void testNoTimeAway() throws Exception {
+        TestQueue queue = this.createQueue(10, 10);
+        OfflineProgress progress = new OfflineProgress(0);
+        assertEquals(0, progress.advance(queue));
+        assertEquals(0, queue.builders.get(0).progress.get().intValue());
+        assertEquals(0, progress.getAdvanced());
+    }
+
+    public void testNegativeTimeAway() throws Exception {
+        // e.g. the device clock was set back
+        TestQueue queue = this.createQueue(10);
+        OfflineProgress progress = new OfflineProgress(-30);
+        assertEquals(0, progress.getSeconds());
+        assertEquals(0, progress.advance(queue));
+        assertFalse(progress.advance(queue.builders.get(0)));
+        assertEquals(0, queue.builders.get(0).progress.get().intValue());
+    }
+
+    public void testSingleBuilder() throws Exception {
+        LetterBuilder partial = this.createBuilder("a", 100);
+        partial.start();
+        LetterBuilder done = this.createBuilder("b", 10);
+        done.start();
+
+        OfflineProgress progress = new OfflineProgress(30);
+        assertFalse(progress.advance(partial));
+        assertTrue(progress.advance(done));
+        assertEquals(30, partial.progress.get().intValue());
+        assertEquals(10, done.progress.get().intValue());
+        assertEquals(1, progress.getTotal());
+        assertEquals(1, progress.getCompleted().get("b").intValue());
+    }
+
+    public void testBuilderAdvancedOnce() throws Exception {
+        TestQueue queue = this.createQueue(100);
+        OfflineProgress progress = new OfflineProgress(30);
+        progress.advance(queue);
+        // Running builders are advanced again after all queues, which must not add more time
+        assertFalse(progress.advance(queue.builders.get(0)));
+        assertEquals(30, queue.builders.get(0).progress.get().intValue());
+    }
+
+    public void testScheduledBuilderNotAdvanced() throws Exception {
+        LetterBuilder builder = this.createBuilder("a", 10);
+        builder.schedule();
+        OfflineProgress progress = new OfflineProgress(30);
+        assertFalse(progress.advance(builder));
+        assertEquals(Builder.SCHEDULED, builder.status.get().intValue());
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.linguaculturalists.phoenicia.util;
+
+import android.test.AndroidTestCase;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class WeightedSamplerTest extends AndroidTestCase {
+
+    private WeightedSampler<String> createSampler(Random random) {
+        WeightedSampler<String> sampler = new WeightedSampler<String>(random);
+        sampler.add("a", 1);
+        sampler.add("b", 2);
+        sampler.add("c", 3);
+        return sampler;
+    }
+
+    public void testEmpty() throws Exception {
+        WeightedSampler<String> sampler = new WeightedSampler<String>();
+        assertEquals(0, sampler.remaining());
+        assertNull(sampler.next());
+    }
+
+    public void testExhausted() throws Exception {
+        WeightedSampler<String> sampler = this.createSampler(new Random(1));
+        Set<String> drawn = new HashSet<String>();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(3 - i, sampler.remaining());
+            String item = sampler.next();
+            assertNotNull(item);
+            assertTrue("Drew " + item + " twice", drawn.add(item));
+        }
+        assertEquals(0, sampler.remaining());
+        assertNull(sampler.next());
+        assertNull(sampler.next());
+    }
+
+    public void testReset() throws Exception {
+        WeightedSampler<String> sampler = this.createSampler(new Random(1));
+        while (sampler.next() != null) { }
+        sampler.reset();
+        assertEquals(3, sampler.remaining());
+        assertNotNull(sampler.next());
+    }
+
+    public void testZeroWeightNeverDrawn() throws Exception {
+        WeightedSampler<String> sampler = new WeightedSampler<String>(new Random(1));
+        sampler.add("zero", 0);
+        sampler.add("negative", -1);
+        sampler.add("one", 1);
+        sampler.add("none", 0);
+        for (int i = 0; i < 100; i++) {
+            sampler.reset();
+            assertEquals(1, sampler.remaining());
+            assertEquals("one", sampler.next());
+            assertNull(sampler.next());
+        }
+    }
+
+    public void testWeights() throws Exception {
+        WeightedSampler<String> sampler = this.createSampler(new Random(1));
+        int c = 0;
+        final int draws = 6000;
+        for (int i = 0; i < draws; i++) {
+            sampler.reset();
+            if ("c".equals(sampler.next())) {
+                c++;
+            }
+        }
+        // c carries half of the total weight
+        assertEquals(0.5, (double) c / draws, 0.05);
+    }
+
+}
@@ -24,7 +24,10 @@ import com.linguaculturalists.phoenicia.models.WorkshopBuilder;
 import com.linguaculturalists.phoenicia.util.PhoeniciaContext;
 import com.linguaculturalists.phoenicia.util.SystemUiHider;
 import com.orm.androrm.DatabaseAdapter;
+import com.orm.androrm.DatabaseProfile;
 import com.orm.androrm.Model;
+import com.orm.androrm.QueryCache;
+import com.orm.androrm.WriteBehind;
 
 import org.andengine.engine.camera.SmoothCamera;
 import org.andengine.engine.camera.ZoomCamera;
@@ -55,6 +58,7 @@ public class GameActivity extends BaseGameActivity {
     public SmoothCamera main_camera = new SmoothCamera(0, 0, CAMERA_WIDTH, CAMERA_HEIGHT, 2000f, 2000f, 10f);
     private PhoeniciaGame game;
     private SplashScene splash;
+    private DatabaseAdapter adapter;
 
     public void hideNavBar() {
         View decorView = getWindow().getDecorView();
@@ -100,6 +104,7 @@ public class GameActivity extends BaseGameActivity {
     public synchronized void onPauseGame() {
         super.onPauseGame();
         game.pause();
+        this.releaseDB();
     }
 
     @Override
@@ -111,9 +116,18 @@ public class GameActivity extends BaseGameActivity {
     @Override
     public synchronized void onResumeGame() {
         super.onResumeGame();
+        if (this.adapter != null) {
+            this.adapter.openPersistent();
+        }
         game.resume();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        this.releaseDB();
+    }
+
     @Override
     public void onPopulateScene(Scene scene, OnPopulateSceneCallback onPopulateSceneCallback) throws IOException {
         // Prime the static context utility
@@ -192,8 +206,38 @@ public class GameActivity extends BaseGameActivity {
         models.add(DecorationTile.class);
 
         DatabaseAdapter.setDatabaseName("game_db");
-        DatabaseAdapter adapter = DatabaseAdapter.getInstance(PhoeniciaContext.context);
-        adapter.setModels(models);
+        this.adapter = DatabaseAdapter.getInstance(PhoeniciaContext.context);
+        // WAL with relaxed syncs, so inventory taps don't wait for a full journal commit
+        this.adapter.setProfile(DatabaseProfile.performance());
+        this.adapter.setModels(models);
+
+        // Keep a single connection open for the life of the game session
+        this.adapter.openPersistent();
+
+        // Share model instances, so builders and sessions are only loaded once
+        this.adapter.enableIdentityMap(false);
+
+        // Counts polled by the HUDs are answered from memory until their tables change
+        this.adapter.enableQueryCache(QueryCache.DEFAULT_SIZE);
+    }
+
+    /**
+     * Release the long-lived database connection held while the game is running.
+     */
+    private void releaseDB() {
+        if (this.adapter == null) return;
+        Debug.d("Database connections opened: " + this.adapter.getOpenCount() + ", avoided: " + this.adapter.getAvoidedOpenCount());
+        if (this.adapter.getIdentityMap() != null) {
+            Debug.d("Identity map hits: " + this.adapter.getIdentityMap().getHits() + ", misses: " + this.adapter.getIdentityMap().getMisses());
+        }
+        QueryCache cache = this.adapter.getQueryCache();
+        if (cache != null) {
+            Debug.d("Query cache hits: " + cache.getHits() + ", misses: " + cache.getMisses() + ", evictions: " + cache.getEvictions() + ", invalidations: " + cache.getInvalidations());
+        }
+        WriteBehind writer = WriteBehind.getInstance(this.getApplicationContext());
+        Debug.d("Write-behind queued: " + writer.getQueued() + ", coalesced: " + writer.getCoalesced() + ", commits: " + writer.getCommits());
+        this.adapter.checkpoint();
+        this.adapter.closePersistent();
     }
 
 }
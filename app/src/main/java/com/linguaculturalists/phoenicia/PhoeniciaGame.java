@@ -57,6 +57,7 @@ import com.linguaculturalists.phoenicia.locale.tour.Stop;
 import com.linguaculturalists.phoenicia.locale.tour.TourFinishedListener;
 import com.linguaculturalists.phoenicia.models.Assets;
 import com.linguaculturalists.phoenicia.models.Bank;
+import com.linguaculturalists.phoenicia.models.BuildScheduler;
 import com.linguaculturalists.phoenicia.models.Builder;
 import com.linguaculturalists.phoenicia.models.DecorationTile;
 import com.linguaculturalists.phoenicia.models.DefaultTile;
@@ -66,10 +67,10 @@ import com.linguaculturalists.phoenicia.models.GameTileTimer;
 import com.linguaculturalists.phoenicia.models.LetterBuilder;
 import com.linguaculturalists.phoenicia.models.GameSession;
 import com.linguaculturalists.phoenicia.models.Inventory;
-import com.linguaculturalists.phoenicia.models.InventoryItem;
 import com.linguaculturalists.phoenicia.models.LetterTile;
 import com.linguaculturalists.phoenicia.models.Market;
 import com.linguaculturalists.phoenicia.models.MarketRequest;
+import com.linguaculturalists.phoenicia.models.OfflineProgress;
 import com.linguaculturalists.phoenicia.models.WordBuilder;
 import com.linguaculturalists.phoenicia.models.WordTileBuilder;
 import com.linguaculturalists.phoenicia.models.WordTile;
@@ -83,6 +84,8 @@ import com.linguaculturalists.phoenicia.util.GameUI;
 import com.linguaculturalists.phoenicia.util.PhoeniciaContext;
 import com.linguaculturalists.phoenicia.util.SystemUiHider;
 import com.orm.androrm.Filter;
+import com.orm.androrm.WriteBatch;
+import com.orm.androrm.WriteBehind;
 
 /**
  * The main class for managing a game.
@@ -177,16 +180,19 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
 
     public HUDManager hudManager; /**< The HUD stack manager for this game */
     public Inventory inventory; /**< The Inventory manager for this game */
+    private RequirementEngine requirements; /**< Tracks which levels have their requirements met, built on first use */
     public Bank bank; /**< The Bank account manager for this game */
 
     public GameSession session; /**< The saved GameSession being run */
     //public Filter sessionFilter; /**< AndrOrm query filter to limit results to this GameSession */
     private Set<Builder> builders;
-    private float updateTime;
+    private Set<WordTile> wordTiles; /**< tiles with a build queue to catch up on after the game was away */
+    public BuildScheduler buildScheduler; /**< Updates running builders when they are due */
     private long currentTime;
 
     public String current_level = ""; /**< The current level the player has reached */
     private List<LevelChangeListener> levelListeners;
+    private List<CatchUpListener> catchUpListeners;
 
     public PhoeniciaGame(GameActivity activity, final SmoothCamera camera) {
         FontFactory.setAssetBasePath("fonts/");
@@ -197,6 +203,7 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
         this.isRunning = false;
 
         this.levelListeners = new ArrayList<LevelChangeListener>();
+        this.catchUpListeners = new ArrayList<CatchUpListener>();
 
         scene = new Scene();
         scene.setBackground(new Background(new Color(0, 0, 0)));
@@ -204,7 +211,8 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
         this.levelSounds = new HashMap<String, Music>();
         this.blockSounds = new HashMap<String, Sound>();
         this.builders = new HashSet<Builder>();
-        this.updateTime = 0;
+        this.wordTiles = new HashSet<WordTile>();
+        this.buildScheduler = new BuildScheduler();
 
         this.personTextures = new HashMap<Person, AssetBitmapTexture>();
         this.personTiles = new HashMap<Person, TextureRegion>();
@@ -314,6 +322,7 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
         // Start the Inventory for this session
         Inventory.init(this.session);
         this.inventory = Inventory.getInstance();
+        this.requirements = null;
         this.inventory.addUpdateListener(this);
 
         // Start the Assets (tile) manager for this session
@@ -761,7 +770,8 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
 
     private void loadSessionLetters() {
         Debug.d("Loading letter tiles");
-        List<LetterTile> letterTiles = LetterTile.objects(PhoeniciaContext.context).filter(session.filter).toList();
+        // Builders are loaded with their tiles in the same query
+        List<LetterTile> letterTiles = LetterTile.objects(PhoeniciaContext.context).filter(session.filter).selectRelated("builder").toList();
         for (int i = 0; i < letterTiles.size(); i++) {
             LetterTile letterTile = letterTiles.get(i);
             Debug.d("Restoring tile "+letterTile.item_name.get());
@@ -793,7 +803,7 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
 
     private void loadSessionWords() {
         Debug.d("Loading word tiles");
-        List<WordTile> wordTiles = WordTile.objects(PhoeniciaContext.context).filter(session.filter).toList();
+        List<WordTile> wordTiles = WordTile.objects(PhoeniciaContext.context).filter(session.filter).selectRelated("builder").toList();
         for (int i = 0; i < wordTiles.size(); i++) {
             WordTile wordTile = wordTiles.get(i);
             Debug.d("Restoring tile "+wordTile.item_name.get());
@@ -829,7 +839,7 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
         Debug.d("Loading game tiles");
         Filter session_filter = new Filter();
         session_filter.is("session", session);
-        List<GameTile> gameTiles = GameTile.objects(PhoeniciaContext.context).filter(session_filter).toList();
+        List<GameTile> gameTiles = GameTile.objects(PhoeniciaContext.context).filter(session_filter).selectRelated("builder").toList();
         for (int i = 0; i < gameTiles.size(); i++) {
             GameTile gameTile = gameTiles.get(i);
             Debug.d("Restoring tile "+gameTile.item_name.get());
@@ -885,6 +895,8 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
     public void restart() {
         // Stop build queues
         this.builders.clear();
+        this.wordTiles.clear();
+        this.buildScheduler.clear();
         // Detach sprites
         if (placedSprites != null) {
             for (int c = 0; c < placedSprites.length; c++) {
@@ -904,7 +916,8 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
         // Delete DB records
         Market.getInstance().clear();
         Bank.getInstance().clear();
-        InventoryItem.objects(PhoeniciaContext.context).filter(this.session.filter).delete(PhoeniciaContext.context);
+        this.inventory.clear();
+        this.requirements = null;
         DefaultTile.objects(PhoeniciaContext.context).filter(this.session.filter).delete(PhoeniciaContext.context);
         LetterBuilder.objects(PhoeniciaContext.context).filter(this.session.filter).delete(PhoeniciaContext.context);
         LetterTile.objects(PhoeniciaContext.context).filter(this.session.filter).delete(PhoeniciaContext.context);
@@ -1075,7 +1088,7 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
 
         double timediff = (double)System.currentTimeMillis() - session.last_timestamp.get();
         Debug.d("Restarting after " + (timediff / 1000) + " seconds");
-        this.onUpdate((float) timediff / 1000);
+        this.catchUp(timediff / 1000);
 
         this.session.update();
         this.isStarted = true;
@@ -1104,6 +1117,13 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
         this.saveBuilders();
         session.last_timestamp.set((double) this.currentTime);
         session.save(PhoeniciaContext.context);
+        // Write everything still queued before the activity goes to the background
+        try {
+            WriteBehind.getInstance(PhoeniciaContext.context).flush();
+        } catch (RuntimeException e) {
+            // The changes stay queued and the writer thread retries them
+            Debug.e("Failed to write pending changes on pause", e);
+        }
     }
 
     public void resume() {
@@ -1111,7 +1131,7 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
 
         double timediff = (double)System.currentTimeMillis() - session.last_timestamp.get();
         Debug.d("Resume after " + (timediff / 1000) + " seconds");
-        this.onUpdate((float) timediff / 1000);
+        this.catchUp(timediff / 1000);
 
         this.isRunning = true;
         if (this.music != null && this.session.pref_music.get()) {
@@ -1135,21 +1155,8 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
         // update build queues
         //this.hudManager.update(v);
         this.currentTime = System.currentTimeMillis();
-        this.updateTime += v;
-        if (this.updateTime > 1) {
-            // Because this.builders might be modified based on updates to other builders
-            // work from a copy of the set as it exists now
-            final Set<Builder> updateBuilders = new HashSet<Builder>(this.builders);
-            for (Builder builder : updateBuilders) {
-                if (builder.status.get() == Builder.BUILDING) {
-                    builder.update(this.updateTime);
-                    //builder.save(PhoeniciaContext.context);
-                    //Debug.d("Builder "+builder.item_name.get()+" saved");
-                }
-            }
-            this.updateTime = 0;
-
-        }
+        // Only builders that reached their next deadline are updated
+        this.buildScheduler.onUpdate(v);
         // Save things every 5 minutes in case of a crash or force quit without pause
         if (this.currentTime - session.last_timestamp.get() > (5 * 60 * 1000)) { // timestamps are in milliseconds
             this.saveBuilders();
@@ -1159,27 +1166,78 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
         }
     }
 
+    /**
+     * Advance all builders and build queues by the time the game was away, write them in a single
+     * transaction and notify the \link CatchUpListener CatchUpListeners \endlink once
+     * @param seconds time since the game was last running
+     */
+    private void catchUp(double seconds) {
+        this.currentTime = System.currentTimeMillis();
+        // Builders are advanced from the progress the scheduler has kept for them
+        this.buildScheduler.sync();
+        final OfflineProgress progress = new OfflineProgress((int) seconds);
+        for (WordTile tile : new ArrayList<WordTile>(this.wordTiles)) {
+            progress.advance(tile);
+        }
+        for (Builder builder : new ArrayList<Builder>(this.builders)) {
+            progress.advance(builder);
+        }
+        try {
+            progress.commit(PhoeniciaContext.context);
+        } catch (RuntimeException e) {
+            // The builders stay queued and the writer thread retries them
+            Debug.e("Failed to write caught up builders", e);
+        }
+        this.buildScheduler.reload();
+        Debug.d("Caught up on " + progress.getSeconds() + " seconds, " + progress.getTotal() + " of " + progress.getAdvanced() + " builders completed");
+
+        for (int i = 0; i < this.catchUpListeners.size(); i++) {
+            this.catchUpListeners.get(i).onCaughtUp(progress);
+        }
+    }
+
     private void saveBuilders() {
-        // save status of all builders
+        // save status of all builders in a single transaction
+        this.buildScheduler.sync();
+        WriteBatch batch = new WriteBatch();
         for (Builder builder : builders) {
-            builder.save(PhoeniciaContext.context);
+            batch.save(builder);
         }
+        batch.commit(PhoeniciaContext.context);
     }
     /**
-     * Add an new Builder instance to the list of builders updated every second
+     * Add an new Builder instance to the list of builders updated by the build scheduler
      * @param builder to be added
      */
     public void addBuilder(Builder builder) {
         this.builders.remove(builder);
         this.builders.add(builder);
+        this.buildScheduler.add(builder);
+    }
+
+    /**
+     * Add a WordTile whose build queue is caught up on when the game returns after being away
+     * @param tile to be added
+     */
+    public void addWordTile(WordTile tile) {
+        this.wordTiles.add(tile);
     }
 
     /**
-     * Remove a Builder instance from the list of builders updated every second
+     * Remove a WordTile that was deleted or has nothing left in its build queue
+     * @param tile to be removed
+     */
+    public void removeWordTile(WordTile tile) {
+        this.wordTiles.remove(tile);
+    }
+
+    /**
+     * Remove a Builder instance from the list of builders updated by the build scheduler
      * @param builder to be removed
      */
     public void removeBuilder(Builder builder) {
         this.builders.remove(builder);
+        this.buildScheduler.remove(builder);
     }
 
     /**
@@ -1656,16 +1714,28 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
         }
     }
 
+    private RequirementEngine getRequirements() {
+        if (this.requirements == null) {
+            // Counters start from the full history once, afterwards they follow inventory changes
+            this.requirements = new RequirementEngine(this.locale.levels);
+            this.requirements.load(Inventory.getInstance().history());
+        }
+        return this.requirements;
+    }
+
     private void checkLevelRequirements() {
         Level current = this.locale.level_map.get(current_level);
-        while (current.check(PhoeniciaContext.context) && current.next != null) {
+        while (current.next != null && this.getRequirements().isPassed(current)) {
             this.changeLevel(current.next);
             current = current.next;
         }
     }
     @Override
-    public void onInventoryUpdated(InventoryItem[] item) {
-        this.checkLevelRequirements();
+    public void onInventoryUpdated(Inventory.Change[] changes) {
+        // Only items that some requirement depends on can change which levels are passed
+        if (this.getRequirements().update(changes)) {
+            this.checkLevelRequirements();
+        }
     }
 
     @Override
@@ -1770,6 +1840,19 @@ public class PhoeniciaGame implements IUpdateHandler, Inventory.InventoryUpdateL
         public void onLevelChanged(Level newLevel);
     }
 
+    public void addCatchUpListener(CatchUpListener listener) {
+        this.catchUpListeners.add(listener);
+    }
+    public void removeCatchUpListener(CatchUpListener listener) {
+        this.catchUpListeners.remove(listener);
+    }
+    /**
+     * Callback listener for the builds that completed while the game was away
+     */
+    public interface CatchUpListener {
+        public void onCaughtUp(OfflineProgress progress);
+    }
+
     public void runOnDelay(final long waitTime, final Runnable runnable) {
         Thread delayRunner = new Thread() {
             @Override
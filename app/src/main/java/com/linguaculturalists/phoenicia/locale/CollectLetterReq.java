@@ -8,6 +8,7 @@ import org.andengine.util.debug.Debug;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Checks if a specified number of letters has been collected by the player
@@ -53,6 +54,7 @@ public class CollectLetterReq implements Requirement {
      * Return the minimum number of letters from the set needed to fulfill this requirement
      * @return number required
      */
+    @Override
     public int getCount() {
         return count;
     }
@@ -65,12 +67,29 @@ public class CollectLetterReq implements Requirement {
         this.count = count;
     }
 
+    @Override
+    public List<String> getItemNames() {
+        List<String> names = new ArrayList<String>(letters.size());
+        for (int i = 0; i < letters.size(); i++) {
+            names.add(letters.get(i).name);
+        }
+        return names;
+    }
+
     @Override
     public boolean check(Context context) {
+        return this.check(Inventory.getInstance().history());
+    }
+
+    @Override
+    public boolean check(Map<String, Integer> history) {
         Debug.d("Checking letter history for " + this.letters.toString() + " is " + count);
         int total = 0;
         for (int i = 0; i < letters.size(); i++) {
-            total += Inventory.getInstance().getHistory(letters.get(i).name);
+            Integer collected = history.get(letters.get(i).name);
+            if (collected != null) {
+                total += collected;
+            }
         }
         return total >= count;
     }
@@ -8,6 +8,7 @@ import org.andengine.util.debug.Debug;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Checks if a specified number of words has been collected by the player.
@@ -53,6 +54,7 @@ public class CollectWordReq implements Requirement {
      * Return the minimum number of letters from the set needed to fulfill this requirement
      * @return number required
      */
+    @Override
     public int getCount() {
         return count;
     }
@@ -65,12 +67,29 @@ public class CollectWordReq implements Requirement {
         this.count = count;
     }
 
+    @Override
+    public List<String> getItemNames() {
+        List<String> names = new ArrayList<String>(words.size());
+        for (int i = 0; i < words.size(); i++) {
+            names.add(words.get(i).name);
+        }
+        return names;
+    }
+
     @Override
     public boolean check(Context context) {
+        return this.check(Inventory.getInstance().history());
+    }
+
+    @Override
+    public boolean check(Map<String, Integer> history) {
         Debug.d("Checking word history for " + this.words.toString() + " is " + count);
         int total = 0;
         for (int i = 0; i < words.size(); i++) {
-            total += Inventory.getInstance().getHistory(words.get(i).name);
+            Integer collected = history.get(words.get(i).name);
+            if (collected != null) {
+                total += collected;
+            }
         }
         return total >= count;
     }
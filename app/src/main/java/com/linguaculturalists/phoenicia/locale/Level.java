@@ -2,6 +2,8 @@ package com.linguaculturalists.phoenicia.locale;
 
 import android.content.Context;
 
+import com.linguaculturalists.phoenicia.models.Inventory;
+
 import org.andengine.util.debug.Debug;
 
 import java.util.List;
@@ -34,10 +36,19 @@ public class Level {
      * @return true if all requirements pass, otherwise false
      */
     public boolean check(Context context) {
+        return this.check(Inventory.getInstance().history());
+    }
+
+    /**
+     * See if all #requirements for this level have been fulfilled by the given inventory history
+     * @param history cumulative number of items ever added to the inventory, by item name
+     * @return true if all requirements pass, otherwise false
+     */
+    public boolean check(Map<String, Integer> history) {
         Debug.d("Checking if player passes level " + name);
         for (int i = 0; i < requirements.size(); i++) {
             Debug.d("Checking "+requirements.get(i));
-            if (!requirements.get(i).check(context)) {
+            if (!requirements.get(i).check(history)) {
                 // abort on the first requirement failure
                 return false;
             }
@@ -2,6 +2,9 @@ package com.linguaculturalists.phoenicia.locale;
 
 import android.content.Context;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * Interface for Level pass checking
  */
@@ -14,4 +17,23 @@ public interface Requirement {
      */
     public boolean check(Context context);
 
+    /**
+     * Check if this Requirement has been met, using an already loaded inventory history.
+     * @param history cumulative number of items ever added to the inventory, by item name
+     * @return true if this requirement has been met, otherwise false
+     */
+    public boolean check(Map<String, Integer> history);
+
+    /**
+     * Names of the inventory items whose history counts towards this Requirement.
+     * @return item names this Requirement depends on
+     */
+    public List<String> getItemNames();
+
+    /**
+     * Minimum combined history of all items from #getItemNames() needed to meet this Requirement.
+     * @return number required
+     */
+    public int getCount();
+
 }
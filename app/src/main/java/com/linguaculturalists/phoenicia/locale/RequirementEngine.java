@@ -0,0 +1,139 @@
+package com.linguaculturalists.phoenicia.locale;
+
+import com.linguaculturalists.phoenicia.models.Inventory;
+
+import org.andengine.util.debug.Debug;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks which \link Level Levels \endlink have all of their \link Requirement Requirements \endlink met.
+ *
+ * Each Requirement is compiled into a counter holding the collected total of the items it depends
+ * on. Counters are subscribed to their item names and updated incrementally from inventory changes,
+ * so checking a level doesn't need to walk its requirements or read the inventory history again.
+ */
+public class RequirementEngine {
+
+    /**
+     * Running total of the items collected towards one Requirement
+     */
+    private static class Counter {
+        private final Tracked level;
+        private final int required;
+        private int total;
+
+        private Counter(Tracked level, int required) {
+            this.level = level;
+            this.required = required;
+        }
+
+        private boolean isMet() {
+            return this.total >= this.required;
+        }
+    }
+
+    /**
+     * Number of unmet requirements of one Level
+     */
+    private static class Tracked {
+        private int unmet;
+    }
+
+    private Map<Level, Tracked> levels;
+    private Map<String, List<Counter>> subscribers; /**< counters by the item names they depend on */
+    private Map<String, Integer> history; /**< last known history of all subscribed item names */
+
+    /**
+     * Compile the requirements of all levels into counters
+     * @param levels levels of the locale
+     */
+    public RequirementEngine(List<Level> levels) {
+        this.levels = new HashMap<Level, Tracked>();
+        this.subscribers = new HashMap<String, List<Counter>>();
+        this.history = new HashMap<String, Integer>();
+        for (Level level : levels) {
+            Tracked tracked = new Tracked();
+            this.levels.put(level, tracked);
+            for (Requirement requirement : level.requirements) {
+                Counter counter = new Counter(tracked, requirement.getCount());
+                for (String item_name : requirement.getItemNames()) {
+                    List<Counter> counters = this.subscribers.get(item_name);
+                    if (counters == null) {
+                        counters = new ArrayList<Counter>();
+                        this.subscribers.put(item_name, counters);
+                        this.history.put(item_name, 0);
+                    }
+                    counters.add(counter);
+                }
+                if (!counter.isMet()) {
+                    tracked.unmet++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Set all counters from the full inventory history
+     * @param history cumulative number of items ever added to the inventory, by item name
+     */
+    public void load(Map<String, Integer> history) {
+        for (Map.Entry<String, Integer> entry : history.entrySet()) {
+            this.set(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Update the counters depending on the changed items
+     * @param changes changes reported by the Inventory
+     * @return true if the total of any counter changed
+     */
+    public boolean update(Inventory.Change[] changes) {
+        boolean changed = false;
+        for (int i = 0; i < changes.length; i++) {
+            final String item_name = changes[i].item.item_name.get();
+            if (this.subscribers.containsKey(item_name)) {
+                changed |= this.set(item_name, changes[i].item.history.get());
+            }
+        }
+        return changed;
+    }
+
+    private boolean set(String item_name, int collected) {
+        List<Counter> counters = this.subscribers.get(item_name);
+        if (counters == null) {
+            return false;
+        }
+        final int delta = collected - this.history.get(item_name);
+        if (delta == 0) {
+            return false;
+        }
+        this.history.put(item_name, collected);
+        for (int i = 0; i < counters.size(); i++) {
+            Counter counter = counters.get(i);
+            final boolean wasMet = counter.isMet();
+            counter.total += delta;
+            if (wasMet != counter.isMet()) {
+                counter.level.unmet += wasMet ? 1 : -1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * See if all requirements of a level have been fulfilled
+     * @param level level to check
+     * @return true if all requirements pass, otherwise false
+     */
+    public boolean isPassed(Level level) {
+        Tracked tracked = this.levels.get(level);
+        if (tracked == null) {
+            Debug.w("No requirements tracked for level " + level.name);
+            return level.check(Inventory.getInstance().history());
+        }
+        return tracked.unmet == 0;
+    }
+}
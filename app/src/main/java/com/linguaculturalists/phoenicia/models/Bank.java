@@ -66,7 +66,7 @@ public class Bank extends Model {
         int new_balance = this.session.account_balance.get() - amount;
         if (new_balance >= 0) {
             this.session.account_balance.set(new_balance);
-            this.session.save(PhoeniciaContext.context);
+            this.session.saveAsync(PhoeniciaContext.context);
             this.accountUpdated(new_balance);
             return new_balance;
         } else {
@@ -86,7 +86,7 @@ public class Bank extends Model {
         int new_income= this.session.gross_income.get() + amount;
         this.session.gross_income.set(new_income);
 
-        this.session.save(PhoeniciaContext.context);
+        this.session.saveAsync(PhoeniciaContext.context);
         this.accountUpdated(new_balance);
         return new_balance;
     }
@@ -0,0 +1,279 @@
+package com.linguaculturalists.phoenicia.models;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Schedules running \link Builder Builders \endlink by the time of their next event.
+ *
+ * Running builders are kept in a min-heap of absolute deadlines on the game clock. A builder is
+ * only updated when it reaches a deadline: when its build completes, when it crosses one of the
+ * #MILESTONES its tile sprite shows, or once a second while it is watched by an open HUD. Between
+ * deadlines its progress is computed on demand from the time it started, so the work per frame
+ * depends on the number of builders that are due instead of the number of builders in the town.
+ */
+public class BuildScheduler implements Builder.BuildStatusUpdateHandler {
+
+    /**
+     * Percentages of the build time at which the progress of a builder is written back, matching
+     * the stages shown by placed tile sprites.
+     */
+    public static final int[] MILESTONES = {33, 66, 100};
+
+    /**
+     * Timing state of one running builder
+     */
+    private static class Running {
+        private final Builder builder;
+        private double startedAt; /**< game clock time at which progress would have been 0 */
+        private int version; /**< incremented on every reschedule, so outdated deadlines are skipped */
+
+        private Running(Builder builder) {
+            this.builder = builder;
+        }
+    }
+
+    /**
+     * A deadline of a running builder in the heap
+     */
+    private static class Deadline implements Comparable<Deadline> {
+        private final double time;
+        private final int progress; /**< progress the builder reaches at this deadline */
+        private final Running running;
+        private final int version;
+
+        private Deadline(double time, int progress, Running running) {
+            this.time = time;
+            this.progress = progress;
+            this.running = running;
+            this.version = running.version;
+        }
+
+        @Override
+        public int compareTo(Deadline another) {
+            return Double.compare(this.time, another.time);
+        }
+    }
+
+    private double clock; /**< seconds the game has been running since this scheduler was created */
+    private PriorityQueue<Deadline> deadlines;
+    private Set<Builder> builders; /**< all added builders, whether they are running or not */
+    private Map<Builder, Running> running;
+    private Set<Builder> watched; /**< builders updated every second while they are running */
+
+    public BuildScheduler() {
+        this.clock = 0;
+        this.deadlines = new PriorityQueue<Deadline>();
+        this.builders = new HashSet<Builder>();
+        this.running = new HashMap<Builder, Running>();
+        this.watched = new HashSet<Builder>();
+    }
+
+    /**
+     * Start keeping time for a builder. It is scheduled whenever it is building.
+     * @param builder builder to schedule
+     */
+    public void add(Builder builder) {
+        builder.addUpdateHandler(this);
+        this.builders.add(builder);
+        if (builder.status.get() == Builder.BUILDING) {
+            this.schedule(builder);
+        }
+    }
+
+    /**
+     * Stop keeping time for a builder
+     * @param builder builder to remove
+     */
+    public void remove(Builder builder) {
+        builder.removeUpdateHandler(this);
+        this.builders.remove(builder);
+        this.running.remove(builder);
+        this.watched.remove(builder);
+    }
+
+    /**
+     * Remove all builders, including those that aren't running
+     */
+    public void clear() {
+        for (Builder builder : this.builders) {
+            builder.removeUpdateHandler(this);
+        }
+        this.builders.clear();
+        this.running.clear();
+        this.deadlines.clear();
+        this.watched.clear();
+    }
+
+    /**
+     * Update a builder's progress every second, e.g. while its remaining time is displayed
+     * @param builder builder to watch
+     */
+    public void watch(Builder builder) {
+        if (this.watched.add(builder)) {
+            this.rescheduleRunning(builder);
+        }
+    }
+
+    /**
+     * Stop updating a builder's progress every second
+     * @param builder builder to stop watching
+     */
+    public void unwatch(Builder builder) {
+        if (this.watched.remove(builder)) {
+            this.rescheduleRunning(builder);
+        }
+    }
+
+    private void rescheduleRunning(Builder builder) {
+        Running state = this.running.get(builder);
+        if (state != null) {
+            this.reschedule(state);
+        }
+    }
+
+    private void schedule(Builder builder) {
+        Running state = this.running.get(builder);
+        if (state == null) {
+            state = new Running(builder);
+            this.running.put(builder, state);
+        }
+        state.startedAt = this.clock - builder.progress.get();
+        this.reschedule(state);
+    }
+
+    private void reschedule(Running state) {
+        state.version++;
+        final int progress = state.builder.progress.get();
+        final int buildTime = state.builder.time.get();
+        int next = buildTime;
+        for (int i = 0; i < MILESTONES.length; i++) {
+            // first progress at which (progress * 100) / time reaches the milestone
+            final int milestone = (MILESTONES[i] * buildTime + 99) / 100;
+            if (milestone > progress) {
+                next = Math.min(next, milestone);
+                break;
+            }
+        }
+        if (this.watched.contains(state.builder)) {
+            next = Math.min(next, progress + 1);
+        }
+        double time = state.startedAt + next;
+        if (time <= this.clock) {
+            // Already due, e.g. a build time of 0, so it is handled on the next update
+            time = Math.nextUp(this.clock);
+        }
+        this.deadlines.add(new Deadline(time, next, state));
+    }
+
+    /**
+     * Get the progress of a running builder at the current game time
+     * @param builder builder to look up
+     * @return seconds the builder has been running, or its stored progress if it isn't running
+     */
+    public int getProgress(Builder builder) {
+        Running state = this.running.get(builder);
+        if (state == null) {
+            return builder.progress.get();
+        }
+        return Math.min((int) (this.clock - state.startedAt), builder.time.get());
+    }
+
+    /**
+     * Advance the game clock and update all builders that have reached a deadline
+     * @param seconds time passed since the last call
+     * @return number of builders updated
+     */
+    public int onUpdate(double seconds) {
+        this.clock += seconds;
+        int updated = 0;
+        while (!this.deadlines.isEmpty() && this.deadlines.peek().time <= this.clock) {
+            final Deadline deadline = this.deadlines.poll();
+            final Running state = deadline.running;
+            if (deadline.version != state.version || this.running.get(state.builder) != state) {
+                // rescheduled or removed since this deadline was added
+                continue;
+            }
+            final Builder builder = state.builder;
+            if (builder.status.get() != Builder.BUILDING) {
+                this.running.remove(builder);
+                continue;
+            }
+            final int current = builder.progress.get();
+            int progress = (int) (this.clock - state.startedAt);
+            if (current > progress) {
+                // progress was advanced by someone else, e.g. a tour skipping ahead
+                state.startedAt = this.clock - current;
+                progress = current;
+            }
+            // Rounding can leave the computed progress a second short of this deadline's
+            progress = Math.min(Math.max(progress, deadline.progress), builder.time.get());
+            if (progress > current) {
+                // Completes the builder once the build time is reached
+                builder.update(progress - current);
+                updated++;
+            }
+            if (this.running.get(builder) == state && builder.status.get() == Builder.BUILDING) {
+                if (builder.progress.get() >= builder.time.get()) {
+                    // e.g. a build time of 0, or progress written by sync()
+                    builder.complete();
+                    updated++;
+                } else {
+                    this.reschedule(state);
+                }
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * Re-read the progress of all running builders after it was changed outside of the scheduler,
+     * e.g. while catching up on the time the game was away
+     */
+    public void reload() {
+        for (Running state : this.running.values()) {
+            state.startedAt = this.clock - state.builder.progress.get();
+            this.reschedule(state);
+        }
+    }
+
+    /**
+     * Write the current progress of all running builders to their progress field without
+     * notifying any handlers, e.g. before they are saved
+     */
+    public void sync() {
+        for (Running state : this.running.values()) {
+            state.builder.progress.set(this.getProgress(state.builder));
+        }
+    }
+
+    /**
+     * @return number of builders currently running
+     */
+    public int size() {
+        return this.running.size();
+    }
+
+    @Override
+    public void onScheduled(Builder buildItem) {
+        this.running.remove(buildItem);
+    }
+
+    @Override
+    public void onStarted(Builder buildItem) {
+        this.schedule(buildItem);
+    }
+
+    @Override
+    public void onCompleted(Builder buildItem) {
+        this.running.remove(buildItem);
+    }
+
+    @Override
+    public void onProgressChanged(Builder builtItem) {
+        return;
+    }
+}
@@ -66,7 +66,7 @@ public abstract class Builder extends Model {
      */
     public void schedule() {
         this.status.set(Builder.SCHEDULED);
-        this.save(PhoeniciaContext.context);
+        this.saveAsync(PhoeniciaContext.context);
         for (BuildStatusUpdateHandler handler : new ArrayList<BuildStatusUpdateHandler>(this.updateHandlers)) {
             handler.onScheduled(this);
         }
@@ -77,7 +77,7 @@ public abstract class Builder extends Model {
      */
     public void start() {
         this.status.set(Builder.BUILDING);
-        this.save(PhoeniciaContext.context);
+        this.saveAsync(PhoeniciaContext.context);
         for (BuildStatusUpdateHandler handler : new ArrayList<BuildStatusUpdateHandler>(this.updateHandlers)) {
             handler.onStarted(this);
         }
@@ -88,7 +88,7 @@ public abstract class Builder extends Model {
      */
     public void complete() {
         this.status.set(Builder.COMPLETE);
-        this.save(PhoeniciaContext.context);
+        this.saveAsync(PhoeniciaContext.context);
         for (BuildStatusUpdateHandler handler : new ArrayList<BuildStatusUpdateHandler>(this.updateHandlers)) {
             handler.onCompleted(this);
         }
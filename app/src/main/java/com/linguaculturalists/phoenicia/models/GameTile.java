@@ -67,6 +67,7 @@ public class GameTile extends Model implements Builder.BuildStatusUpdateHandler,
         this.isoX = new IntegerField();
         this.isoY = new IntegerField();
         this.item_name = new CharField(32);
+        this.session.index("item_name");
     }
 
     /**
@@ -268,20 +269,23 @@ public class GameTile extends Model implements Builder.BuildStatusUpdateHandler,
             } else {
                 Debug.d("Clicked block was NOT ready");
                 // Don't run another modifier animation if one is still running
+                // The progress fields are only written at milestones while nothing watches the builders
+                final int builderProgress = phoeniciaGame.buildScheduler.getProgress(builder);
+                final int timerProgress = phoeniciaGame.buildScheduler.getProgress(timer);
                 String progress;
                 if (builder.status.get() != Builder.COMPLETE) {
-                    progress = String.valueOf(100 * builder.progress.get() / builder.time.get());
+                    progress = String.valueOf(100 * builderProgress / builder.time.get());
                 } else {
-                    progress = String.valueOf(100 * timer.progress.get() / timer.time.get());
+                    progress = String.valueOf(100 * timerProgress / timer.time.get());
                 }
                 if (sprite.getEntityModifierCount() <= 0) {
                     sprite.registerEntityModifier(new ScaleAtModifier(0.5f, sprite.getScaleX(), sprite.getScaleX(), sprite.getScaleY() * 0.7f, sprite.getScaleY(), sprite.getScaleCenterX(), 0, EaseBackOut.getInstance()));
 
                     int time_left;
                     if (builder.status.get() != Builder.COMPLETE) {
-                        time_left = builder.time.get() - builder.progress.get();
+                        time_left = builder.time.get() - builderProgress;
                     } else {
-                        time_left = timer.time.get() - timer.progress.get();
+                        time_left = timer.time.get() - timerProgress;
                     }
                     String time_display = String.valueOf(time_left) + "s";
                     if (time_left > (60*60)) {
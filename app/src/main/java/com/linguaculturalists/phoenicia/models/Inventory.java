@@ -6,9 +6,11 @@ import android.util.AndroidException;
 import com.linguaculturalists.phoenicia.PhoeniciaGame;
 import com.linguaculturalists.phoenicia.util.PhoeniciaContext;
 import com.orm.androrm.Filter;
+import com.orm.androrm.QuerySet;
 
 import org.andengine.util.debug.Debug;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -18,12 +20,17 @@ import java.util.Map;
 
 /**
  * Managing class for adding and removing items from the player's inventory.
+ *
+ * All of the session's \link InventoryItem InventoryItems \endlink are loaded into memory on first
+ * use. Reads are answered from memory, changes are written through to the database by the
+ * write-behind queue, which coalesces repeated saves of the same item.
  */
 public class Inventory {
     protected static Inventory instance;
     //private PhoeniciaGame game;
     private GameSession session;
     private List<InventoryUpdateListener> listeners;
+    private Map<String, InventoryItem> ledger; /**< the session's items by item name, loaded on first use */
 
     protected Inventory(GameSession session) {
         //this.game = game;
@@ -50,32 +57,67 @@ public class Inventory {
         return instance;
     }
 
+    /**
+     * Load all of the session's items with a single query, unless they are already loaded
+     *
+     * @return map of item names to the session's \link InventoryItem InventoryItems \endlink
+     */
+    private synchronized Map<String, InventoryItem> ledger() {
+        if (this.ledger == null) {
+            this.ledger = new HashMap<String, InventoryItem>();
+            QuerySet<InventoryItem> sessionItems = InventoryItem.objects(PhoeniciaContext.context).filter(this.session.filter);
+            for (InventoryItem item : sessionItems) {
+                this.ledger.put(item.item_name.get(), item);
+            }
+            Debug.d("Loaded " + this.ledger.size() + " inventory items");
+        }
+        return this.ledger;
+    }
+
     /**
      * Retrieve a list of all items in the player's inventory.
      *
      * @return a list of \link InventoryItem InventoryItems \endlink with a positive quantity
      */
     public List<InventoryItem> items() {
-        Filter positiveQuantity = new Filter();
-        positiveQuantity.is("quantity", ">", 0);
-        List<InventoryItem> items = InventoryItem.objects(PhoeniciaContext.context).filter(this.session.filter).filter(positiveQuantity).orderBy("#-quantity").toList();
+        List<InventoryItem> items = new ArrayList<InventoryItem>();
+        synchronized (this) {
+            for (InventoryItem item : this.ledger().values()) {
+                if (item.quantity.get() > 0) {
+                    items.add(item);
+                }
+            }
+        }
+        Collections.sort(items, new Comparator<InventoryItem>() {
+            @Override
+            public int compare(InventoryItem lhs, InventoryItem rhs) {
+                return rhs.quantity.get().compareTo(lhs.quantity.get());
+            }
+        });
         return items;
     }
 
     /**
-     * Set all InventoryItem quantities to 0
+     * Set all InventoryItem quantities to 0 and delete their records
+     *
+     * Listeners receive the deleted items with a quantity of 0. They still carry their ids, so
+     * they must not be saved again; items added afterwards get new records.
      */
     public void clear() {
-        List<InventoryItem> itemsList = InventoryItem.objects(PhoeniciaContext.context).filter(this.session.filter).toList();
-        InventoryItem[] items = new InventoryItem[itemsList.size()];
-        items = itemsList.toArray(items);
-        for (int i = 0; i < items.length; i++) {
-            items[i].delete(PhoeniciaContext.context);
-        }
-        for (int i = 0; i < this.listeners.size(); i++) {
-            Debug.d("Calling update listener: " + this.listeners.get(i).getClass());
-            this.listeners.get(i).onInventoryUpdated(items);
+        Change[] changes;
+        synchronized (this) {
+            List<InventoryItem> items = new ArrayList<InventoryItem>(this.ledger().values());
+            changes = new Change[items.size()];
+            for (int i = 0; i < items.size(); i++) {
+                InventoryItem item = items.get(i);
+                changes[i] = new Change(item, item.quantity.get(), 0);
+                item.quantity.set(0);
+            }
+            this.ledger.clear();
         }
+        // Pending writes of these items are flushed before the bulk delete
+        InventoryItem.objects(PhoeniciaContext.context).filter(this.session.filter).delete(PhoeniciaContext.context);
+        this.inventoryUpdated(changes);
     }
 
     /**
@@ -85,17 +127,14 @@ public class Inventory {
      * @return an existing InventoryItem from the inventory, or a new one with 0 quantity
      */
     public InventoryItem get(String inventory_id) {
-        final Filter filter = new Filter();
-        filter.is("item_name", inventory_id);
         InventoryItem item;
-        try {
-            item = InventoryItem.objects(PhoeniciaContext.context).filter(this.session.filter).filter(filter).toList().get(0);
-            if (item != null) {
-                return item;
-            }
-        } catch (IndexOutOfBoundsException e) {
-            Debug.d("No record for " + inventory_id + ", creating a new one");
+        synchronized (this) {
+            item = this.ledger().get(inventory_id);
         }
+        if (item != null) {
+            return item;
+        }
+        Debug.d("No record for " + inventory_id + ", creating a new one");
         item = new InventoryItem();
         item.item_name.set(inventory_id);
         item.quantity.set(0);
@@ -112,6 +151,9 @@ public class Inventory {
     /**
      * Increment the quantity of an InventoryItem (creating a new one of necessary).
      *
+     * A new item starts from 0, so its quantity is the amount added, and its history only counts
+     * the amount if it was earned.
+     *
      * @param inventory_id name of the InventoryItem
      * @param quantity number of this item to add to the inventory
      * @param earned whether the addition was earned or rewarded, only increment history if earned
@@ -119,33 +161,28 @@ public class Inventory {
      */
     public int add(final String inventory_id, final int quantity, boolean earned) {
         Debug.d("Adding item: " + inventory_id);
-        final Filter filter = new Filter();
-        filter.is("item_name", inventory_id);
         InventoryItem item;
-        try {
-            item = InventoryItem.objects(PhoeniciaContext.context).filter(this.session.filter).filter(filter).toList().get(0);
-            if (item != null) {
-                Debug.d("Found record for " + inventory_id + ", updating to " + (item.quantity.get() + 1));
-                item.quantity.set(item.quantity.get() + quantity);
-                if (earned) {
-                    item.history.set(item.history.get() + quantity);
-                }
+        int old_quantity;
+        synchronized (this) {
+            item = this.ledger().get(inventory_id);
+            if (item == null) {
+                Debug.d("No record for " + inventory_id + ", creating a new one");
+                item = new InventoryItem();
+                item.game.set(this.session);
+                item.item_name.set(inventory_id);
+                item.quantity.set(0);
+                item.history.set(0);
+                this.ledger.put(inventory_id, item);
             }
-        } catch (IndexOutOfBoundsException e) {
-            Debug.d("No record for " + inventory_id + ", creating a new one");
-            item = new InventoryItem();
-            item.game.set(this.session);
-            item.item_name.set(inventory_id);
+            old_quantity = item.quantity.get();
+            item.quantity.set(old_quantity + quantity);
             if (earned) {
-                item.quantity.set(1);
-            } else {
-                item.quantity.set(0);
+                item.history.set(item.history.get() + quantity);
             }
-            item.history.set(1);
         }
-        item.save(PhoeniciaContext.context);
-        this.inventoryUpdated(item);
-        return item.quantity.get();
+        item.saveAsync(PhoeniciaContext.context);
+        this.inventoryUpdated(new Change(item, old_quantity, old_quantity + quantity));
+        return old_quantity + quantity;
     }
 
     public int subtract(final String inventory_id) throws Exception {
@@ -161,21 +198,19 @@ public class Inventory {
      */
     public int subtract(final String inventory_id, final int quantity) throws Exception {
         Debug.d("Subtracting item: " + inventory_id);
-        final Filter filter = new Filter();
-        filter.is("item_name", inventory_id);
-        try {
-            InventoryItem item = InventoryItem.objects(PhoeniciaContext.context).filter(this.session.filter).filter(filter).toList().get(0);
-            if (item != null) {
-                final int count = item.quantity.get() - quantity;
-                item.quantity.set(count);
-                item.save(PhoeniciaContext.context);
-                this.inventoryUpdated(item);
-                return count;
+        InventoryItem item;
+        int old_quantity;
+        synchronized (this) {
+            item = this.ledger().get(inventory_id);
+            if (item == null) {
+                throw new Exception("Can not subtract item "+inventory_id+" from inventory because it has none");
             }
-        } catch (IndexOutOfBoundsException e) {
-            throw new Exception("Can not subtract item "+inventory_id+" from inventory because it has none");
+            old_quantity = item.quantity.get();
+            item.quantity.set(old_quantity - quantity);
         }
-        return 0;
+        item.saveAsync(PhoeniciaContext.context);
+        this.inventoryUpdated(new Change(item, old_quantity, old_quantity - quantity));
+        return old_quantity - quantity;
     }
 
     /**
@@ -183,16 +218,12 @@ public class Inventory {
      * @param inventory_id name of the InventoryItem
      * @return current quantity of this item
      */
-    public int getCount(String inventory_id) {
-        final Filter filter = new Filter();
-        filter.is("item_name", inventory_id);
-        List<InventoryItem> items = InventoryItem.objects(PhoeniciaContext.context).filter(this.session.filter).filter(filter).toList();
-        if (items.size() > 0) {
-            return items.get(0).quantity.get();
-        } else {
-            Debug.d("No record of inventory item: "+inventory_id);
+    public synchronized int getCount(String inventory_id) {
+        InventoryItem item = this.ledger().get(inventory_id);
+        if (item == null) {
             return 0;
         }
+        return item.quantity.get();
     }
 
     /**
@@ -200,24 +231,33 @@ public class Inventory {
      * @param inventory_id name of the InventoryItem
      * @return cumulative number of this item added to the inventory
      */
-    public int getHistory(String inventory_id) {
-        final Filter filter = new Filter();
-        filter.is("item_name", inventory_id);
-        List<InventoryItem> items = InventoryItem.objects(PhoeniciaContext.context).filter(this.session.filter).filter(filter).toList();
-        if (items.size() > 0) {
-            return items.get(0).history.get();
-        } else {
-            Debug.d("No record of inventory item: "+inventory_id);
+    public synchronized int getHistory(String inventory_id) {
+        InventoryItem item = this.ledger().get(inventory_id);
+        if (item == null) {
             return 0;
         }
+        return item.history.get();
+    }
+
+    /**
+     * Get the cumulative number of items ever added to the inventory for all item names at once
+     * @return map of item names to the cumulative number of that item added to the inventory
+     */
+    public synchronized Map<String, Integer> history() {
+        Map<String, Integer> history = new HashMap<String, Integer>();
+        for (InventoryItem item : this.ledger().values()) {
+            history.put(item.item_name.get(), item.history.get());
+        }
+        return history;
     }
 
-    private void inventoryUpdated(InventoryItem item) {
-        Debug.d("Inventory updated for: " + item.item_name.get());
-        InventoryItem[] items = {item};
+    private void inventoryUpdated(Change... changes) {
+        for (int i = 0; i < changes.length; i++) {
+            Debug.d("Inventory updated for: " + changes[i].item.item_name.get() + " from " + changes[i].old_quantity + " to " + changes[i].new_quantity);
+        }
         for (int i = 0; i < this.listeners.size(); i++) {
             Debug.d("Calling update listener: "+this.listeners.get(i).getClass());
-            this.listeners.get(i).onInventoryUpdated(items);
+            this.listeners.get(i).onInventoryUpdated(changes);
         }
     }
     public void addUpdateListener(InventoryUpdateListener listener) {
@@ -228,11 +268,26 @@ public class Inventory {
         this.listeners.remove(listener);
     }
 
+    /**
+     * A change to the quantity of one InventoryItem, passed to \link InventoryUpdateListener InventoryUpdateListeners \endlink
+     */
+    public static class Change {
+        public final InventoryItem item; /**< the item that changed */
+        public final int old_quantity; /**< quantity of the item before the change */
+        public final int new_quantity; /**< quantity of the item after the change */
+
+        public Change(InventoryItem item, int old_quantity, int new_quantity) {
+            this.item = item;
+            this.old_quantity = old_quantity;
+            this.new_quantity = new_quantity;
+        }
+    }
+
     /**
      * Callback listener for changes to item quantities in the inventory.
      */
     public interface InventoryUpdateListener {
-        void onInventoryUpdated(final InventoryItem[] item);
+        void onInventoryUpdated(final Change[] changes);
     }
 
 }
@@ -29,6 +29,7 @@ public class InventoryItem extends Model {
         this.item_name = new CharField(32);
         this.quantity = new IntegerField();
         this.history = new IntegerField();
+        this.game.index("item_name");
     }
 
     @Override
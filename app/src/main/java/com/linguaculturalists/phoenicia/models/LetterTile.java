@@ -63,6 +63,7 @@ public class LetterTile extends Model implements Builder.BuildStatusUpdateHandle
         this.isoX = new IntegerField();
         this.isoY = new IntegerField();
         this.item_name = new CharField(32);
+        this.game.index("item_name");
         this.cached_builder = null;
     }
 
@@ -231,7 +232,8 @@ public class LetterTile extends Model implements Builder.BuildStatusUpdateHandle
                 // Don't run another modifier animation if one is still running
                 if (sprite.getEntityModifierCount() <= 0) {
                     sprite.registerEntityModifier(new ScaleAtModifier(0.5f, sprite.getScaleX(), sprite.getScaleX(), sprite.getScaleY() * 0.7f, sprite.getScaleY(), sprite.getScaleCenterX(), 0, EaseBackOut.getInstance()));
-                    int time_left = builder.time.get() - builder.progress.get();
+                    // The progress field is only written at milestones while nothing watches the builder
+                    int time_left = builder.time.get() - phoeniciaGame.buildScheduler.getProgress(builder);
                     String time_display = String.valueOf(time_left) + "s";
                     if (time_left > (60*60)) {
                         time_left = time_left / (60*60);
@@ -7,15 +7,21 @@ import com.linguaculturalists.phoenicia.locale.Locale;
 import com.linguaculturalists.phoenicia.locale.Person;
 import com.linguaculturalists.phoenicia.locale.Word;
 import com.linguaculturalists.phoenicia.util.PhoeniciaContext;
+import com.linguaculturalists.phoenicia.util.WeightedSampler;
+import com.orm.androrm.BatchResult;
 import com.orm.androrm.Filter;
+import com.orm.androrm.Model;
 
 import org.andengine.util.debug.Debug;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Managing class for generating and querying market requests
@@ -92,7 +98,9 @@ public class Market {
     public int neededToFill() {
         int limit = this.game.locale.level_map.get(this.game.current_level).marketRequests;
         Debug.d("Level " + this.game.current_level + " accepts up to " + limit + " requests");
-        int needed = limit - this.requests().size();
+        Filter openRequests = new Filter();
+        openRequests.is("status", MarketRequest.REQUESTED);
+        int needed = limit - MarketRequest.objects(PhoeniciaContext.context).filter(this.session.filter).filter(openRequests).count();
         Debug.d("Need "+needed+" more requests");
         return needed;
     }
@@ -101,13 +109,19 @@ public class Market {
      */
     public void populate() {
         Debug.d("Populating marketplace");
-        int needed = this.neededToFill();
-        if (needed > 0) {
-            for (int i = 0; i < needed; i++) {
-                MarketRequest newRequest = this.createRequest();
-                Debug.d("Adding request from "+newRequest.person_name.get());
-            }
-        }
+        this.fill();
+    }
+
+    /**
+     * Create as many new requests as the current game level allows. All new requests and their
+     * items are written in a single transaction.
+     * @return the newly created requests
+     */
+    public List<MarketRequest> fill() {
+        final List<MarketRequest> open = this.requests();
+        final Level level = this.game.locale.level_map.get(this.game.current_level);
+        Debug.d("Level " + this.game.current_level + " accepts up to " + level.marketRequests + " requests");
+        return this.createRequests(level.marketRequests - open.size(), open);
     }
 
     /**
@@ -115,267 +129,253 @@ public class Market {
      * @return newly created and saved request
      */
     public MarketRequest createRequest() {
-        Date now = new Date();
-        MarketRequest request = new MarketRequest();
-        request.game.set(this.session);
-        // TODO: refactor to be more efficient when adding more than one request at a time
-        List<String> existing_persons = new ArrayList<String>();
-        for (MarketRequest existing_request : this.requests()) {
-            existing_persons.add(existing_request.person_name.get());
+        List<MarketRequest> added = this.createRequests(1, this.requests());
+        if (added.size() < 1) {
+            return null;
         }
-        List<String> available_persons = new ArrayList<String>();
-        for (Person check_person : this.game.locale.people) {
-            if (!existing_persons.contains(check_person.name)) {
-                available_persons.add(check_person.name);
+        return added.get(0);
+    }
+
+    private List<MarketRequest> createRequests(int needed, List<MarketRequest> open) {
+        List<MarketRequest> added = new ArrayList<MarketRequest>();
+        if (needed <= 0) {
+            return added;
+        }
+        Debug.d("Creating " + needed + " new requests");
+        // candidates are collected once and shared by all new requests
+        RequestPools pools = new RequestPools(this.game.locale.level_map.get(this.game.current_level), open);
+        List<Model> writes = new ArrayList<Model>();
+        for (int i = 0; i < needed; i++) {
+            MarketRequest newRequest = this.buildRequest(pools, writes);
+            if (newRequest == null) break;
+            Debug.d("Adding request from "+newRequest.person_name.get());
+            added.add(newRequest);
+        }
+        // items reference their unsaved request, saveAll writes it first and fills in its id
+        BatchResult result = Model.saveAll(PhoeniciaContext.context, writes);
+        Debug.d("Saved market requests: " + result);
+        for (MarketRequest request : added) {
+            this.requestAdded(request);
+        }
+        return added;
+    }
+
+    /**
+     * Candidate people and items for new requests, weighted by the player's inventory
+     */
+    private class RequestPools {
+        private final WeightedSampler<String> persons; /**< people without an open request */
+        private final WeightedSampler<String> inventory; /**< items in the inventory, weighted by quantity */
+        private final WeightedSampler<String> practice; /**< items ever collected, weighted towards the least collected */
+        private final WeightedSampler<String> levelLetters; /**< letters of the current level */
+        private final WeightedSampler<String> levelWords; /**< words of the current level */
+        private final WeightedSampler<String> nextLetters; /**< letters the next level adds */
+        private final WeightedSampler<String> nextWords; /**< words the next level adds */
+
+        private RequestPools(Level level, List<MarketRequest> open) {
+            this.persons = new WeightedSampler<String>();
+            this.inventory = new WeightedSampler<String>();
+            this.practice = new WeightedSampler<String>();
+            this.levelLetters = new WeightedSampler<String>();
+            this.levelWords = new WeightedSampler<String>();
+            this.nextLetters = new WeightedSampler<String>();
+            this.nextWords = new WeightedSampler<String>();
+
+            Set<String> existing_persons = new HashSet<String>();
+            for (MarketRequest existing_request : open) {
+                existing_persons.add(existing_request.person_name.get());
+            }
+            for (Person person : game.locale.people) {
+                if (!existing_persons.contains(person.name)) {
+                    this.persons.add(person.name, 1);
+                }
+            }
+
+            // Both come from the inventory's in-memory ledger
+            for (InventoryItem item : Inventory.getInstance().items()) {
+                if (isRequestable(item.item_name.get())) {
+                    this.inventory.add(item.item_name.get(), item.quantity.get());
+                }
+            }
+            for (Map.Entry<String, Integer> history : Inventory.getInstance().history().entrySet()) {
+                if (isRequestable(history.getKey())) {
+                    this.practice.add(history.getKey(), 1.0 / (1 + history.getValue()));
+                }
+            }
+
+            for (Letter letter : level.letters) {
+                this.levelLetters.add(letter.name, 1);
+            }
+            for (Word word : level.words) {
+                this.levelWords.add(word.name, 1);
+            }
+
+            if (level.next != null && level.prev != null) {
+                List<Letter> next_letters = new ArrayList<Letter>(level.next.letters);
+                next_letters.removeAll(level.prev.letters);
+                for (Letter letter : next_letters) {
+                    this.nextLetters.add(letter.name, 1);
+                }
+                List<Word> next_words = new ArrayList<Word>(level.next.words);
+                next_words.removeAll(level.prev.words);
+                for (Word word : next_words) {
+                    this.nextWords.add(word.name, 1);
+                }
             }
         }
-        if (available_persons.size() < 1) {
+
+        /**
+         * Make all items available again, so a request never contains the same item twice but
+         * different requests can
+         */
+        private void resetItems() {
+            this.inventory.reset();
+            this.practice.reset();
+            this.levelLetters.reset();
+            this.levelWords.reset();
+            this.nextLetters.reset();
+            this.nextWords.reset();
+        }
+    }
+
+    private boolean isRequestable(String item_name) {
+        return this.game.locale.letter_map.containsKey(item_name) || this.game.locale.word_map.containsKey(item_name);
+    }
+
+    /**
+     * Generate a new request and its items without saving them
+     * @param pools candidates for the request, people are drawn without replacement
+     * @param writes receives the request followed by its items
+     * @return the new request, or null if there is nobody left to make one
+     */
+    private MarketRequest buildRequest(RequestPools pools, List<Model> writes) {
+        Date now = new Date();
+        String person_name = pools.persons.next();
+        if (person_name == null) {
             Debug.e("Not enough people for all requests!");
             return null;
         }
-        int person_id = Math.round((float)Math.random() * (available_persons.size()-1));
-        request.person_name.set(available_persons.get(person_id));
+        MarketRequest request = new MarketRequest();
+        request.game.set(this.session);
+        request.person_name.set(person_name);
         request.status.set(MarketRequest.REQUESTED);
         request.requested.set((double) now.getTime());
-        request.save(PhoeniciaContext.context);
+        request.coins.set(0);
+        request.points.set(0);
+        writes.add(request);
+        final int written = writes.size();
 
+        pools.resetItems();
+        int num_items = Math.round((float) Math.random() * (this.game.locale.level_map.get(this.game.current_level).marketRequests - 1)) + 1;
+        float multiplier;
         double requestType = Math.random() * 10;
         if (requestType < 2) { // 0-2
-            Debug.d("Creating current level random request for "+available_persons.get(person_id));
-            this.populateCurrentLevelRandom(request);
+            Debug.d("Creating current level random request for "+person_name);
+            multiplier = this.populateCurrentLevelRandom(request, pools, num_items, writes);
         } else if (requestType < 7) { // 2-7
-            Debug.d("Creating inventory reduction request for "+available_persons.get(person_id));
-            this.populateInventoryReduction(request);
+            Debug.d("Creating inventory reduction request for "+person_name);
+            multiplier = this.populateInventoryReduction(request, pools, num_items, writes);
         } else if (requestType < 9) { // 7-9
-            Debug.d("Creating word practice request for "+available_persons.get(person_id));
-            this.populateWordPractice(request);
+            Debug.d("Creating word practice request for "+person_name);
+            multiplier = this.populateWordPractice(request, pools, num_items, writes);
         } else { // 9-10
-            Debug.d("Creating next level pusher request for "+available_persons.get(person_id));
-            this.populateNextLevelPusher(request);
+            Debug.d("Creating next level pusher request for "+person_name);
+            multiplier = this.populateNextLevelPusher(request, pools, num_items, writes);
         }
-        request.save(PhoeniciaContext.context);
-
-        this.requestAdded(request);
+        if (writes.size() == written) {
+            // e.g. an empty inventory, or no next level
+            Debug.d("No items for this request type, creating current level random request for "+person_name);
+            multiplier = this.populateCurrentLevelRandom(request, pools, num_items, writes);
+        }
+        request.coins.set((int)(request.coins.get() * multiplier));
         return request;
     }
 
-    private RequestItem createRandomRequestLetter(List<Letter> choiceLetters) {
-        return null;
-    }
-
-    private RequestItem createRandomRequestWord() {
-        return null;
+    /**
+     * Add an item to a request, adding its value to the request's coins and points
+     * @param request request the item is added to
+     * @param item_name name of the letter or word requested
+     * @param max_letters largest quantity requested if the item is a letter
+     * @param max_words largest quantity requested if the item is a word
+     * @param writes receives the new item
+     */
+    private void addRequestItem(final MarketRequest request, String item_name, int max_letters, int max_words, List<Model> writes) {
+        RequestItem requestItem = new RequestItem();
+        requestItem.game.set(this.session);
+        requestItem.request.set(request);
+        requestItem.item_name.set(item_name);
+
+        final Letter letter = this.game.locale.letter_map.get(item_name);
+        final Word word = this.game.locale.word_map.get(item_name);
+        int sell;
+        int points;
+        if (letter != null) {
+            requestItem.quantity.set(Math.round((float) Math.random() * (max_letters - 1)) + 1);
+            sell = letter.sell;
+            points = letter.points;
+        } else if (word != null) {
+            requestItem.quantity.set(Math.round((float) Math.random() * (max_words - 1)) + 1);
+            sell = word.sell;
+            points = word.points;
+        } else {
+            Debug.e("Can not request unknown item "+item_name);
+            return;
+        }
+        writes.add(requestItem);
+        request.coins.set(request.coins.get() + sell * requestItem.quantity.get());
+        request.points.set(request.points.get() + points * requestItem.quantity.get());
     }
 
-    private void populateInventoryReduction(final MarketRequest request) {
-        float multiplier = 1.2f;
-        int num_items = Math.round((float) Math.random() * (this.game.locale.level_map.get(this.game.current_level).marketRequests - 1)) + 1;
-
-        Filter positiveQuantity = new Filter();
-        positiveQuantity.is("quantity", ">", 0);
-
-        final List<InventoryItem> inventoryItems = InventoryItem.objects(PhoeniciaContext.context).filter(this.game.session.filter).filter(positiveQuantity).orderBy("#-quantity").limit(5).toList();
-        int requestCoins = 0;
-        int requestPoints = 0;
-
-        List<String> usedList = new ArrayList<String>();
-        for (int i = 0; i < num_items; ) {
-
-            int randomItem = Math.round((float) Math.random() * (inventoryItems.size()-1));
-            String item_name = inventoryItems.get(randomItem).item_name.get();
-
-            // TODO: pick letters and words based on inventory, history and level
-            if (this.game.locale.letter_map.containsKey(item_name)) {
-                RequestItem requestLetter = new RequestItem();
-                requestLetter.game.set(this.session);
-                requestLetter.request.set(request);
-
-                if (usedList.contains(item_name)) continue;
-                usedList.add(item_name);
-
-                requestLetter.item_name.set(item_name);
-                requestLetter.quantity.set((int)Math.round(Math.random() * 7)+1);
-                requestLetter.save(PhoeniciaContext.context);
-                requestCoins += (this.game.locale.letter_map.get(item_name).sell * requestLetter.quantity.get());
-                requestPoints += (this.game.locale.letter_map.get(item_name).points * requestLetter.quantity.get());
-                i += 1;
-            } else if (this.game.locale.word_map.containsKey(item_name)) {
-                RequestItem requestWord = new RequestItem();
-                requestWord.game.set(this.session);
-                requestWord.request.set(request);
-
-                if (usedList.contains(item_name)) continue;
-                usedList.add(item_name);
-
-                requestWord.item_name.set(item_name);
-                requestWord.quantity.set((int)Math.round(Math.random() * 4)+1);
-                requestWord.save(PhoeniciaContext.context);
-                requestCoins += (this.game.locale.word_map.get(item_name).sell * requestWord.quantity.get());
-                requestPoints += (this.game.locale.word_map.get(item_name).points * requestWord.quantity.get());
-                i += 1;
-            }
-
+    private float populateInventoryReduction(final MarketRequest request, RequestPools pools, int num_items, List<Model> writes) {
+        for (int i = 0; i < num_items; i++) {
+            String item_name = pools.inventory.next();
+            if (item_name == null) break;
+            this.addRequestItem(request, item_name, 8, 5, writes);
         }
-        request.coins.set((int)(requestCoins * multiplier));
-        request.points.set(requestPoints);
+        return 1.2f;
     }
 
-    private void populateCurrentLevelRandom(final MarketRequest request) {
-        float multiplier = 1.5f;
-        int num_items = Math.round((float) Math.random() * (this.game.locale.level_map.get(this.game.current_level).marketRequests - 1)) + 1;
-
-        final List<Letter> levelLetters = this.game.locale.level_map.get(this.game.current_level).letters;
-        final List<Word> levelWords = this.game.locale.level_map.get(this.game.current_level).words;
-        int requestCoins = 0;
-        int requestPoints = 0;
-        List<String> usedList = new ArrayList<String>();
+    private float populateCurrentLevelRandom(final MarketRequest request, RequestPools pools, int num_items, List<Model> writes) {
         for (int i = 0; i < num_items; ) {
-
-            // TODO: pick letters and words based on inventory, history and level
-            if (levelLetters.size() > 0) {
-                RequestItem requestLetter = new RequestItem();
-                requestLetter.game.set(this.session);
-                requestLetter.request.set(request);
-                int randomLetter = Math.round((float) Math.random() * (levelLetters.size() - 1));
-
-                if (usedList.contains(levelLetters.get(randomLetter).name)) continue;
-                usedList.add(levelLetters.get(randomLetter).name);
-
-                requestLetter.item_name.set(levelLetters.get(randomLetter).name);
-                requestLetter.quantity.set(Math.round((float) Math.random() * 5)+1);
-                requestLetter.save(PhoeniciaContext.context);
-                requestCoins += (levelLetters.get(randomLetter).sell * requestLetter.quantity.get());
-                requestPoints += (levelLetters.get(randomLetter).points * requestLetter.quantity.get());
+            String letter_name = pools.levelLetters.next();
+            if (letter_name != null) {
+                this.addRequestItem(request, letter_name, 6, 4, writes);
                 i += 1;
             }
-
-            if (levelWords.size() > 0) {
-                RequestItem requestWord = new RequestItem();
-                requestWord.game.set(this.session);
-                requestWord.request.set(request);
-                int randomWord = Math.round((float) Math.random() * (levelWords.size() - 1));
-
-                if (usedList.contains(levelWords.get(randomWord).name)) continue;
-                usedList.add(levelWords.get(randomWord).name);
-
-                requestWord.item_name.set(levelWords.get(randomWord).name);
-                requestWord.quantity.set(Math.round((float) Math.random() * 3)+1);
-                requestWord.save(PhoeniciaContext.context);
-                requestCoins += (levelWords.get(randomWord).sell * requestWord.quantity.get());
-                requestPoints += (levelWords.get(randomWord).points * requestWord.quantity.get());
+            String word_name = pools.levelWords.next();
+            if (word_name != null) {
+                this.addRequestItem(request, word_name, 6, 4, writes);
                 i += 1;
             }
-
+            if (letter_name == null && word_name == null) break;
         }
-        request.coins.set((int)(requestCoins * multiplier));
-        request.points.set(requestPoints);
+        return 1.5f;
     }
 
-    private void populateNextLevelPusher(final MarketRequest request) {
-        float multiplier = 1.9f;
-        Level prev_level = this.game.locale.level_map.get(this.game.current_level).prev;
-        Level next_level = this.game.locale.level_map.get(this.game.current_level).next;
-
-        List<Letter> next_letters = new ArrayList<Letter>(next_level.letters);
-        next_letters.removeAll(prev_level.letters);
-
-        List<Word> next_words = new ArrayList<Word>(next_level.words);
-        next_words.removeAll(prev_level.words);
-
-        int num_items = Math.round((float) Math.random() * (this.game.locale.level_map.get(this.game.current_level).marketRequests - 1)) + 1;
-
-        int requestCoins = 0;
-        int requestPoints = 0;
-        List<String> usedList = new ArrayList<String>();
+    private float populateNextLevelPusher(final MarketRequest request, RequestPools pools, int num_items, List<Model> writes) {
         for (int i = 0; i < num_items; ) {
-
-            // TODO: pick letters and words based on inventory, history and level
-            if (next_letters.size() > 0) {
-                RequestItem requestLetter = new RequestItem();
-                requestLetter.game.set(this.session);
-                requestLetter.request.set(request);
-                int randomLetter = Math.round((float) Math.random() * (next_letters.size() - 1));
-
-                requestLetter.item_name.set(next_letters.get(randomLetter).name);
-                requestLetter.quantity.set(Math.round((float) Math.random() * 2)+1);
-                requestLetter.save(PhoeniciaContext.context);
-
-                next_letters.remove(requestLetter);
-
-                requestCoins += (next_letters.get(randomLetter).sell * requestLetter.quantity.get());
-                requestPoints += (next_letters.get(randomLetter).points * requestLetter.quantity.get());
+            String letter_name = pools.nextLetters.next();
+            if (letter_name != null) {
+                this.addRequestItem(request, letter_name, 3, 2, writes);
                 i += 1;
             }
-            if (next_words.size() > 0) {
-                RequestItem requestWord = new RequestItem();
-                requestWord.game.set(this.session);
-                requestWord.request.set(request);
-                int randomWord = Math.round((float) Math.random() * (next_words.size() - 1));
-
-                requestWord.item_name.set(next_words.get(randomWord).name);
-                requestWord.quantity.set(Math.round((float) Math.random() * 1)+1);
-                requestWord.save(PhoeniciaContext.context);
-
-                next_words.remove(requestWord);
-
-                requestCoins += (next_words.get(randomWord).sell * requestWord.quantity.get());
-                requestPoints += (next_words.get(randomWord).points * requestWord.quantity.get());
+            String word_name = pools.nextWords.next();
+            if (word_name != null) {
+                this.addRequestItem(request, word_name, 3, 2, writes);
                 i += 1;
             }
-            if ( next_letters.size() < 1 &&  next_words.size() < 1) break;
-
+            if (letter_name == null && word_name == null) break;
         }
-        request.coins.set((int)(requestCoins * multiplier));
-        request.points.set(requestPoints);
+        return 1.9f;
     }
 
-    private void populateWordPractice(final MarketRequest request) {
-        float multiplier = 1.7f;
-        int num_items = Math.round((float) Math.random() * (this.game.locale.level_map.get(this.game.current_level).marketRequests - 1)) + 1;
-
-        final List<InventoryItem> inventoryItems = InventoryItem.objects(PhoeniciaContext.context).filter(this.game.session.filter).orderBy("#+history").limit(10).toList();
-        int requestCoins = 0;
-        int requestPoints = 0;
-        List<String> usedList = new ArrayList<String>();
-        for (int i = 0; i < num_items; ) {
-
-            int randomItem = Math.round((float) Math.random() * (inventoryItems.size()-1));
-            String item_name = inventoryItems.get(randomItem).item_name.get();
-
-            // TODO: pick letters and words based on inventory, history and level
-            if (this.game.locale.letter_map.containsKey(item_name)) {
-                RequestItem requestLetter = new RequestItem();
-                requestLetter.game.set(this.session);
-                requestLetter.request.set(request);
-
-                if (usedList.contains(item_name)) continue;
-                usedList.add(item_name);
-
-                requestLetter.item_name.set(item_name);
-                requestLetter.quantity.set(Math.round((float) Math.random() * 5)+1);
-                requestLetter.save(PhoeniciaContext.context);
-                requestCoins += (this.game.locale.letter_map.get(item_name).sell * requestLetter.quantity.get());
-                requestPoints += (this.game.locale.letter_map.get(item_name).points * requestLetter.quantity.get());
-                i += 1;
-            } else if (this.game.locale.word_map.containsKey(item_name)) {
-                RequestItem requestWord = new RequestItem();
-                requestWord.game.set(this.session);
-                requestWord.request.set(request);
-
-                if (usedList.contains(item_name)) continue;
-                usedList.add(item_name);
-
-                requestWord.item_name.set(item_name);
-                requestWord.quantity.set(Math.round((float) Math.random() * 3)+1);
-                requestWord.save(PhoeniciaContext.context);
-                requestCoins += (this.game.locale.word_map.get(item_name).sell * requestWord.quantity.get());
-                requestPoints += (this.game.locale.word_map.get(item_name).points * requestWord.quantity.get());
-                i += 1;
-            }
-
+    private float populateWordPractice(final MarketRequest request, RequestPools pools, int num_items, List<Model> writes) {
+        for (int i = 0; i < num_items; i++) {
+            String item_name = pools.practice.next();
+            if (item_name == null) break;
+            this.addRequestItem(request, item_name, 6, 4, writes);
         }
-        request.coins.set((int)(requestCoins * multiplier));
-        request.points.set(requestPoints);
+        return 1.7f;
     }
 
     /**
@@ -397,23 +397,20 @@ public class Market {
         Bank.getInstance().credit(request.coins.get());
         this.game.session.addExperience(request.points.get());
         request.status.set(MarketRequest.FULFILLED);
-        request.save(PhoeniciaContext.context);
+        request.saveAsync(PhoeniciaContext.context);
         this.requestFulfilled(request);
     }
 
     public void cancelRequest(MarketRequest request) {
         request.status.set(MarketRequest.CANCELED);
-        request.save(PhoeniciaContext.context);
+        request.saveAsync(PhoeniciaContext.context);
         this.requestCanceled(request);
     }
     /**
      * Delete all Market requests
      */
     public void clear() {
-        List<MarketRequest> items = MarketRequest.objects(PhoeniciaContext.context).filter(this.session.filter).toList();
-        for (int i = 0; i < items.size(); i++) {
-            items.get(i).delete(PhoeniciaContext.context);
-        }
+        MarketRequest.objects(PhoeniciaContext.context).filter(this.session.filter).delete(PhoeniciaContext.context);
     }
 
     private void requestAdded(MarketRequest request) {
@@ -45,6 +45,7 @@ public class MarketRequest extends Model {
         this.points = new IntegerField();
         this.requested = new DoubleField();
         this.fulfilled = new DoubleField();
+        this.game.index("status");
     }
 
     public List<RequestItem> getItems(Context context) {
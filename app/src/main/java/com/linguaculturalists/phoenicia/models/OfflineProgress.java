@@ -0,0 +1,159 @@
+package com.linguaculturalists.phoenicia.models;
+
+import android.content.Context;
+
+import com.linguaculturalists.phoenicia.util.PhoeniciaContext;
+import com.orm.androrm.WriteBehind;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Catches up on the builds that ran while the game was not running.
+ *
+ * Every running builder is advanced by the time the game was away in a single step, instead of
+ * replaying that time second by second. A \link WordTile WordTile's \endlink build queue is
+ * advanced as a chain: the time left over when its active builder completes is passed on to the
+ * builder the tile starts next, so a long absence completes as many queued words as fit into it.
+ * All builders that were changed are written in one transaction by #commit(Context).
+ */
+public class OfflineProgress {
+
+    private final int seconds; /**< time the game was away */
+    private final Set<Builder> advanced; /**< builders that were advanced, in the order they were advanced */
+    private final Map<String, Integer> completed; /**< number of completed builds by item name */
+    private int total;
+
+    /**
+     * Start catching up on the given amount of time
+     * @param seconds time the game was not running
+     */
+    public OfflineProgress(int seconds) {
+        this.seconds = Math.max(seconds, 0);
+        this.advanced = new LinkedHashSet<Builder>();
+        this.completed = new HashMap<String, Integer>();
+        this.total = 0;
+    }
+
+    /**
+     * A queue of builders that starts its next builder when the active one completes
+     */
+    public interface BuildQueue {
+        /**
+         * @return the builder that is currently running, or null if there is none
+         */
+        public Builder getActiveBuilder();
+    }
+
+    /**
+     * Advance the build queue of a tile, starting each queued builder as soon as the one before
+     * it completes
+     * @param tile tile whose build queue to advance
+     * @return number of builds from this tile's queue that completed
+     */
+    public int advance(final WordTile tile) {
+        return this.advance(new BuildQueue() {
+            @Override
+            public Builder getActiveBuilder() {
+                return tile.getActiveBuilder(PhoeniciaContext.context);
+            }
+        });
+    }
+
+    /**
+     * Advance a build queue, passing the time left over when its active builder completes on to
+     * the builder it starts next
+     * @param queue queue to advance
+     * @return number of builds from this queue that completed
+     */
+    public int advance(BuildQueue queue) {
+        int remaining = this.seconds;
+        int count = 0;
+        Builder active = queue.getActiveBuilder();
+        while (active != null && remaining > 0 && this.advanced.add(active)) {
+            final int step = Math.min(remaining, this.remainingTime(active));
+            remaining -= step;
+            if (this.advance(active, step)) {
+                count++;
+            }
+            // The queue starts its next builder when the active one completes
+            active = queue.getActiveBuilder();
+        }
+        return count;
+    }
+
+    /**
+     * Advance a running builder that isn't part of a build queue, or wasn't advanced with its
+     * queue already
+     * @param builder builder to advance
+     * @return true if the builder completed
+     */
+    public boolean advance(Builder builder) {
+        if (builder.status.get() != Builder.BUILDING || !this.advanced.add(builder)) {
+            return false;
+        }
+        return this.advance(builder, Math.min(this.seconds, this.remainingTime(builder)));
+    }
+
+    private int remainingTime(Builder builder) {
+        return Math.max(builder.time.get() - builder.progress.get(), 0);
+    }
+
+    private boolean advance(Builder builder, int step) {
+        // Completes the builder, and notifies its handlers, once the build time is reached
+        builder.update(step);
+        if (builder.status.get() != Builder.COMPLETE) {
+            return false;
+        }
+        final String item_name = builder.item_name.get();
+        final Integer count = this.completed.get(item_name);
+        this.completed.put(item_name, count == null ? 1 : count + 1);
+        this.total++;
+        return true;
+    }
+
+    /**
+     * Write all advanced builders, together with any other pending writes, in a single transaction
+     *
+     * If the transaction fails, the exception is passed on and the builders stay queued on the
+     * WriteBehind queue.
+     * @param context ApplicationContext for use in database calls
+     */
+    public void commit(Context context) {
+        final WriteBehind writeBehind = WriteBehind.getInstance(context);
+        for (Builder builder : this.advanced) {
+            writeBehind.save(builder);
+        }
+        writeBehind.flush();
+    }
+
+    /**
+     * @return time the game was away, in seconds
+     */
+    public int getSeconds() {
+        return this.seconds;
+    }
+
+    /**
+     * @return number of builders that were advanced
+     */
+    public int getAdvanced() {
+        return this.advanced.size();
+    }
+
+    /**
+     * @return number of completed builds by the name of the item they built
+     */
+    public Map<String, Integer> getCompleted() {
+        return this.completed;
+    }
+
+    /**
+     * @return total number of builds that completed while the game was away
+     */
+    public int getTotal() {
+        return this.total;
+    }
+}
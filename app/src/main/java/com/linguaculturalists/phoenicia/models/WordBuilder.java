@@ -31,6 +31,7 @@ public class WordBuilder extends Builder {
         this.time = new IntegerField();
         this.progress = new IntegerField();
         this.status = new IntegerField();
+        this.tile.index();
         this.progress.set(0);
         this.status.set(NONE);
 
@@ -78,6 +78,7 @@ public class WordTile extends Model implements Builder.BuildStatusUpdateHandler,
         this.isoY = new IntegerField();
         this.item_name = new CharField(32);
         this.stock = new IntegerField();
+        this.game.index("item_name");
         this.buildQueue = new ArrayList<WordBuilder>();
     }
 
@@ -183,9 +184,11 @@ public class WordTile extends Model implements Builder.BuildStatusUpdateHandler,
             if (builder.status.get() == Builder.SCHEDULED) {
                 this.setActiveBuilder(builder);
                 Debug.d("Starting word builder: " + builder.getId());
-                break;
+                return;
             }
         }
+        // Nothing left to build, so there is nothing to catch up on either
+        phoeniciaGame.removeWordTile(this);
     }
 
     public void restart(Context context) {
@@ -217,6 +220,7 @@ public class WordTile extends Model implements Builder.BuildStatusUpdateHandler,
 
     public void setActiveBuilder(final WordBuilder builder) {
         this.isActive = true;
+        phoeniciaGame.addWordTile(this);
         final WordTile tile = this;
         builder.addUpdateHandler(new Builder.BuildStatusUpdateHandler() {
             @Override
@@ -246,8 +250,8 @@ public class WordTile extends Model implements Builder.BuildStatusUpdateHandler,
                 phoeniciaGame.addBuilder(builder);
             }
         });
+        // start() queues the builder to be saved
         builder.start();
-        builder.save(PhoeniciaContext.context);
     }
 
     public WordBuilder getActiveBuilder(Context context) {
@@ -318,6 +322,14 @@ public class WordTile extends Model implements Builder.BuildStatusUpdateHandler,
         }
     }
 
+    @Override
+    public <T extends Model> boolean delete(Context context) {
+        if (this.phoeniciaGame != null) {
+            this.phoeniciaGame.removeWordTile(this);
+        }
+        return super.delete(context);
+    }
+
     @Override
     protected void migrate(Context context) {
         Migrator<WordTile> migrator = new Migrator<WordTile>(WordTile.class);
@@ -364,7 +376,8 @@ public class WordTile extends Model implements Builder.BuildStatusUpdateHandler,
                 if (sprite.getEntityModifierCount() <= 0) {
                     sprite.registerEntityModifier(new ScaleAtModifier(0.5f, sprite.getScaleX(), sprite.getScaleX(), sprite.getScaleY() * 0.7f, sprite.getScaleY(), sprite.getScaleCenterX(), 0, EaseBackOut.getInstance()));
 
-                    int time_left = builder.time.get() - builder.progress.get();
+                    // The progress field is only written at milestones while nothing watches the builder
+                    int time_left = builder.time.get() - phoeniciaGame.buildScheduler.getProgress(builder);
                     String time_display = String.valueOf(time_left) + "s";
                     if (time_left > (60*60)) {
                         time_left = time_left / (60*60);
@@ -7,6 +7,7 @@ import com.linguaculturalists.phoenicia.locale.Game;
 import com.linguaculturalists.phoenicia.locale.Level;
 import com.linguaculturalists.phoenicia.models.Bank;
 import com.linguaculturalists.phoenicia.models.GameSession;
+import com.linguaculturalists.phoenicia.models.OfflineProgress;
 import com.linguaculturalists.phoenicia.tour.TourOverlay;
 import com.linguaculturalists.phoenicia.util.GameFonts;
 import com.linguaculturalists.phoenicia.util.GameTextures;
@@ -15,7 +16,11 @@ import com.linguaculturalists.phoenicia.util.PhoeniciaContext;
 import com.linguaculturalists.phoenicia.util.RepeatedClickDetectorListener;
 
 import org.andengine.entity.Entity;
+import org.andengine.entity.IEntity;
+import org.andengine.entity.modifier.FadeOutModifier;
+import org.andengine.entity.modifier.IEntityModifier;
 import org.andengine.entity.modifier.MoveYModifier;
+import org.andengine.entity.modifier.ParallelEntityModifier;
 import org.andengine.entity.sprite.ButtonSprite;
 import org.andengine.entity.sprite.Sprite;
 import org.andengine.entity.text.Text;
@@ -26,14 +31,16 @@ import org.andengine.opengl.texture.region.ITextureRegion;
 import org.andengine.opengl.texture.region.ITiledTextureRegion;
 import org.andengine.util.adt.align.HorizontalAlign;
 import org.andengine.util.debug.Debug;
+import org.andengine.util.modifier.IModifier;
 import org.andengine.util.modifier.ease.EaseBackOut;
+import org.andengine.util.modifier.ease.EaseLinear;
 
 /**
  * The default HUD for Phoenicia
  *
  * Displays the current level, bank account balance, and buttons for adding letter or work tiles
  */
-public class DefaultHUD extends PhoeniciaHUD implements PhoeniciaGame.LevelChangeListener, Bank.BankUpdateListener {
+public class DefaultHUD extends PhoeniciaHUD implements PhoeniciaGame.LevelChangeListener, PhoeniciaGame.CatchUpListener, Bank.BankUpdateListener {
 
     private ButtonSprite levelIcon;
     private Text levelDisplay;
@@ -57,6 +64,7 @@ public class DefaultHUD extends PhoeniciaHUD implements PhoeniciaGame.LevelChang
         this.setBackgroundEnabled(false);
         this.game = game;
         this.game.addLevelListener(this);
+        this.game.addCatchUpListener(this);
         Bank.getInstance().addUpdateListener(this);
 
 
@@ -263,6 +271,41 @@ public class DefaultHUD extends PhoeniciaHUD implements PhoeniciaGame.LevelChang
         //this.balanceDisplay.setPosition(64 + (this.balanceDisplay.getWidth() / 2), this.balanceDisplay.getY());
     }
 
+    /**
+     * Called once the game has caught up on the builds that ran while it was away
+     * @param progress summary of the builds that completed in the meantime
+     */
+    public void onCaughtUp(OfflineProgress progress) {
+        if (progress.getTotal() < 1) return;
+        final String completedDisplay = "+" + progress.getTotal();
+        game.activity.runOnUpdateThread(new Runnable() {
+            @Override
+            public void run() {
+                final float y = GameActivity.CAMERA_HEIGHT / 2;
+                final Text completedText = new Text(GameActivity.CAMERA_WIDTH / 2, y, GameFonts.defaultHUDDisplay(), completedDisplay, completedDisplay.length(), PhoeniciaContext.vboManager);
+                attachChild(completedText);
+                completedText.registerEntityModifier(new ParallelEntityModifier(
+                        new MoveYModifier(3.0f, y, y + 64, EaseLinear.getInstance()),
+                        new FadeOutModifier(3.0f, new IEntityModifier.IEntityModifierListener() {
+                            @Override
+                            public void onModifierStarted(IModifier<IEntity> iModifier, IEntity iEntity) {
+                            }
+
+                            @Override
+                            public void onModifierFinished(IModifier<IEntity> iModifier, IEntity iEntity) {
+                                game.activity.runOnUpdateThread(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        detachChild(completedText);
+                                    }
+                                });
+                            }
+                        }, EaseLinear.getInstance())
+                ));
+            }
+        });
+    }
+
     @Override
     public void finish() {
         // Default HUD should never finish
@@ -171,9 +171,8 @@ public class InventoryHUD extends PhoeniciaHUD {
     }
     protected void sellLetter(LetterSprite block) {
         try {
-            Inventory.getInstance().subtract(block.getLetter().name);
+            final int newCount = Inventory.getInstance().subtract(block.getLetter().name);
             Bank.getInstance().credit(block.getLetter().sell);
-            final int newCount = Inventory.getInstance().getCount(block.getLetter().name);
             block.setCount(newCount);
             if (newCount < 1) {
                 block.setEnabled(false);
@@ -187,9 +186,8 @@ public class InventoryHUD extends PhoeniciaHUD {
 
     protected void sellWord(WordSprite block) {
         try {
-            Inventory.getInstance().subtract(block.getWord().name);
+            final int newCount = Inventory.getInstance().subtract(block.getWord().name);
             Bank.getInstance().credit(block.getWord().sell);
-            final int newCount = Inventory.getInstance().getCount(block.getWord().name);
             block.setCount(newCount);
             if (newCount < 1) {
                 block.setEnabled(false);
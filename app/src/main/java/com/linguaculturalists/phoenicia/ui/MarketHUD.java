@@ -268,8 +268,7 @@ public class MarketHUD extends PhoeniciaHUD {
         GameSounds.play(GameSounds.FAILED);
         this.removeRequestFromQueue(request);
 
-        for (int i = 0; i < Market.getInstance().neededToFill(); i++) {
-            MarketRequest newRequest = Market.getInstance().createRequest();
+        for (MarketRequest newRequest : Market.getInstance().fill()) {
             this.addRequestToQueue(newRequest, true);
         }
 
@@ -302,8 +301,7 @@ public class MarketHUD extends PhoeniciaHUD {
 
         this.removeRequestFromQueue(request);
 
-        for (int i = 0; i < Market.getInstance().neededToFill(); i++) {
-            MarketRequest newRequest = Market.getInstance().createRequest();
+        for (MarketRequest newRequest : Market.getInstance().fill()) {
             this.addRequestToQueue(newRequest, true);
         }
     }
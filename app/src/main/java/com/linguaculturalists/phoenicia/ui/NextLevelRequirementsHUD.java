@@ -32,6 +32,8 @@ import org.andengine.util.adt.align.HorizontalAlign;
 import org.andengine.util.adt.color.Color;
 import org.andengine.util.debug.Debug;
 
+import java.util.Map;
+
 /**
  * Created by mhall on 8/15/16.
  */
@@ -91,11 +93,13 @@ public class NextLevelRequirementsHUD extends PhoeniciaHUD {
         int offsetX = 0;
         int offsetY = startY;
 
+        // Load the inventory history once for all requirement items
+        Map<String, Integer> itemHistory = Inventory.getInstance().history();
         for (Requirement unknown_req : level.requirements) {
             if (unknown_req instanceof CollectLetterReq) {
                 CollectLetterReq req = (CollectLetterReq) unknown_req;
                 for (final Letter currentLetter : req.getLetters()) {
-                    int history = Inventory.getInstance().getHistory(currentLetter.name);
+                    int history = itemHistory.containsKey(currentLetter.name) ? itemHistory.get(currentLetter.name) : 0;
 
                     if (offsetX >= columns) {
                         offsetY -= 118;
@@ -120,7 +124,7 @@ public class NextLevelRequirementsHUD extends PhoeniciaHUD {
             if (unknown_req instanceof CollectWordReq) {
                 CollectWordReq req = (CollectWordReq) unknown_req;
                 for (final Word currentWord : req.getWords()) {
-                    int history = Inventory.getInstance().getHistory(currentWord.name);
+                    int history = itemHistory.containsKey(currentWord.name) ? itemHistory.get(currentWord.name) : 0;
 
                     if (offsetX >= columns) {
                         offsetY -= 118;
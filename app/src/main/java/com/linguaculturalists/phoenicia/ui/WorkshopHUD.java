@@ -10,7 +10,6 @@ import com.linguaculturalists.phoenicia.locale.Word;
 import com.linguaculturalists.phoenicia.models.Builder;
 import com.linguaculturalists.phoenicia.models.DefaultTile;
 import com.linguaculturalists.phoenicia.models.Inventory;
-import com.linguaculturalists.phoenicia.models.InventoryItem;
 import com.linguaculturalists.phoenicia.models.WordBuilder;
 import com.linguaculturalists.phoenicia.models.WorkshopBuilder;
 import com.linguaculturalists.phoenicia.util.GameFonts;
@@ -324,6 +323,8 @@ public class WorkshopHUD extends PhoeniciaHUD implements Inventory.InventoryUpda
         this.queuePane.attachChild(buildProgress);
 
         builder.addUpdateHandler(this.buildUpdateHandler);
+        // The remaining time is shown, so keep its progress current every second
+        game.buildScheduler.watch(builder);
 
         switch (builder.status.get()) {
             case Builder.SCHEDULED:
@@ -362,6 +363,7 @@ public class WorkshopHUD extends PhoeniciaHUD implements Inventory.InventoryUpda
         Inventory.getInstance().removeUpdateListener(this);
         if (this.builder != null) {
             this.builder.removeUpdateHandler(this.buildUpdateHandler);
+            game.buildScheduler.unwatch(this.builder);
         }
     }
 
@@ -470,8 +472,8 @@ public class WorkshopHUD extends PhoeniciaHUD implements Inventory.InventoryUpda
                     }
                     if (spelling[i] != ' ') {
                         usedCounts.put(new String(spelling, i, 1), 0);
-                        InventoryItem[] items = {Inventory.getInstance().get(new String(spelling, i, 1))};
-                        onInventoryUpdated(items);
+                        final String letter = new String(spelling, i, 1);
+                        updateCount(letter, Inventory.getInstance().getCount(letter));
                     }
                     spelling[i] = ' ';
 
@@ -482,21 +484,29 @@ public class WorkshopHUD extends PhoeniciaHUD implements Inventory.InventoryUpda
 
     /**
      * Handle changes in the player's inventory by resetting the counter under each letter
-     * @param items The items which have changed
+     * @param changes The items which have changed, with their new quantities
      */
-    public void onInventoryUpdated(final InventoryItem[] items) {
+    public void onInventoryUpdated(final Inventory.Change[] changes) {
         Debug.d("Updating WorkshopHUD inventory");
-        for (int i = 0; i < items.length; i++) {
-            Debug.d("Updating WorkshopHUD count for "+items[i].item_name.get());
-            if (this.inventoryCounts.containsKey(items[i].item_name.get())) {
-                Debug.d("New HUD count: "+items[i].quantity.get().toString());
-                final Text countText = this.inventoryCounts.get(items[i].item_name.get());
-                final int newCount =(items[i].quantity.get()-this.usedCounts.get(items[i].item_name.get()));
-                countText.setText(""+newCount);
-                //countText.setText("9");
-            } else {
-                Debug.e("[Workshop] No HUD item for "+items[i].item_name.get());
-            }
+        for (int i = 0; i < changes.length; i++) {
+            this.updateCount(changes[i].item.item_name.get(), changes[i].new_quantity);
+        }
+    }
+
+    /**
+     * Reset the counter under a letter to the quantity that isn't used yet
+     * @param item_name name of the letter's InventoryItem
+     * @param quantity quantity of the letter in the player's inventory
+     */
+    private void updateCount(final String item_name, final int quantity) {
+        Debug.d("Updating WorkshopHUD count for "+item_name);
+        if (this.inventoryCounts.containsKey(item_name)) {
+            Debug.d("New HUD count: "+quantity);
+            final Text countText = this.inventoryCounts.get(item_name);
+            final int newCount =(quantity-this.usedCounts.get(item_name));
+            countText.setText(""+newCount);
+        } else {
+            Debug.e("[Workshop] No HUD item for "+item_name);
         }
     }
 
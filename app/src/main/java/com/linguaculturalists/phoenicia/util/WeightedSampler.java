@@ -0,0 +1,124 @@
+package com.linguaculturalists.phoenicia.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Draws distinct items at random, each with a probability proportional to its weight.
+ *
+ * The cumulative weights of the pool are precomputed into a Fenwick tree, so a draw is a binary
+ * search for a random point within the total weight. A drawn item's weight is taken out of the
+ * tree, so it can't be drawn again. Both take O(log n), and #reset() makes all items available
+ * again in O(n), so a pool can be built once and sampled from many times.
+ */
+public class WeightedSampler<T> {
+
+    private final Random random;
+    private final List<T> items;
+    private final List<Double> weights; /**< weights the items were added with */
+    private double[] remaining; /**< weights of the items that haven't been drawn, 0 once drawn */
+    private double[] tree; /**< Fenwick tree of #remaining, indexed from 1 */
+    private int drawn; /**< number of items drawn since the last reset */
+
+    public WeightedSampler() {
+        this(new Random());
+    }
+
+    public WeightedSampler(Random random) {
+        this.random = random;
+        this.items = new ArrayList<T>();
+        this.weights = new ArrayList<Double>();
+    }
+
+    /**
+     * Add an item to the pool, making all items available to be drawn again. Items without a
+     * positive weight are never drawn.
+     * @param item item to add
+     * @param weight relative chance of drawing this item
+     */
+    public void add(T item, double weight) {
+        if (weight <= 0) return;
+        this.items.add(item);
+        this.weights.add(weight);
+        this.tree = null;
+    }
+
+    /**
+     * Draw an item that hasn't been drawn since the last #reset()
+     * @return the drawn item, or null if all items have been drawn
+     */
+    public T next() {
+        if (this.tree == null) {
+            this.reset();
+        }
+        final int size = this.items.size();
+        if (this.drawn >= size) {
+            return null;
+        }
+        double target = this.random.nextDouble() * this.sum(size);
+        // Find the first item whose cumulative weight exceeds the target
+        int chosen = 0;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            final int next = chosen + step;
+            if (next <= size && this.tree[next] <= target) {
+                chosen = next;
+                target -= this.tree[next];
+            }
+        }
+        if (chosen >= size || this.remaining[chosen] <= 0) {
+            // Rounding pushed the target past the last item that is left
+            chosen = size - 1;
+            while (this.remaining[chosen] <= 0) {
+                chosen--;
+            }
+        }
+        this.update(chosen, -this.remaining[chosen]);
+        this.remaining[chosen] = 0;
+        this.drawn++;
+        return this.items.get(chosen);
+    }
+
+    /**
+     * Make all items available to be drawn again
+     */
+    public void reset() {
+        final int size = this.items.size();
+        this.remaining = new double[size];
+        this.tree = new double[size + 1];
+        for (int i = 0; i < size; i++) {
+            this.remaining[i] = this.weights.get(i);
+            this.tree[i + 1] += this.remaining[i];
+            // Pass the partial sum on to the parent node, building the tree in O(n)
+            final int parent = (i + 1) + Integer.lowestOneBit(i + 1);
+            if (parent <= size) {
+                this.tree[parent] += this.tree[i + 1];
+            }
+        }
+        this.drawn = 0;
+    }
+
+    /**
+     * @return number of items that can still be drawn
+     */
+    public int remaining() {
+        if (this.tree == null) {
+            return this.items.size();
+        }
+        return this.items.size() - this.drawn;
+    }
+
+    private void update(int index, double delta) {
+        for (int i = index + 1; i < this.tree.length; i += Integer.lowestOneBit(i)) {
+            this.tree[i] += delta;
+        }
+    }
+
+    private double sum(int count) {
+        double sum = 0;
+        for (int i = count; i > 0; i -= Integer.lowestOneBit(i)) {
+            sum += this.tree[i];
+        }
+        return sum;
+    }
+}